@@ -36,6 +36,29 @@ public abstract class BaseWatchable implements Watchable, Runnable
     private static boolean SuppressSetErrorStackTrace = false;
     /** the thread we are running in */
     private Thread thread;
+    /** the most iterations run in one batch */
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    /** the longest a batch should run for, in milliseconds, or 0 for no limit */
+    private long batchMillis = DEFAULT_BATCH_MILLIS;
+    
+    /** the default number of iterations run in one batch */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    /** the default time a batch should run for, in milliseconds */
+    public static final long DEFAULT_BATCH_MILLIS = 50;
+    /** the priority to run with on the scheduler */
+    private int priority = Scheduler.PRIORITY_VISIBLE;
+    /** true if we have been started in the background, on the scheduler */
+    private boolean pooled;
+    /** true if a slice is waiting on the scheduler */
+    private boolean queued;
+    /** runs one batch of this watchable on a scheduler worker */
+    private Runnable slice = new Runnable()
+    {
+        public void run()
+        {
+            runSlice();
+        }
+    };
     
     /** 
      * Creates a new instance of BaseWatchable
@@ -58,6 +81,69 @@ public abstract class BaseWatchable implements Watchable, Runnable
      */
     protected abstract int iterate() throws Exception;
     
+    /**
+     * Called before each batch of iterations.  Subclasses should extend
+     * this method if they need to get hold of anything for the batch.
+     */
+    protected void beginBatch()
+    {
+        // do nothing
+    }
+    
+    /**
+     * Called after each batch of iterations, even if one of them failed.
+     * Subclasses should extend this method to let go of anything they got
+     * hold of in beginBatch().
+     */
+    protected void endBatch()
+    {
+        // do nothing
+    }
+    
+    /**
+     * Set how much work is done in one batch.  Iterations are run in
+     * batches, and the status only changes (and waiting threads are only
+     * woken) when an iteration stops returning RUNNING.  Between batches
+     * other threads get a chance to run.
+     *
+     * @param iterations the most iterations to run in one batch
+     * @param millis the longest a batch should run for, in milliseconds,
+     * or 0 for no limit
+     */
+    public void setBatch(int iterations, long millis)
+    {
+        this.batchSize = Math.max(iterations, 1);
+        this.batchMillis = millis;
+    }
+    
+    /**
+     * Get the priority this watchable runs with in the background
+     *
+     * @return one of the Scheduler priorities
+     */
+    public int getPriority()
+    {
+        return priority;
+    }
+    
+    /**
+     * Set the priority this watchable runs with in the background.  If it
+     * is waiting to run it is moved to its new place in the queue.
+     *
+     * @param priority one of the Scheduler priorities
+     */
+    public void setPriority(int priority)
+    {
+        synchronized(statusLock)
+        {
+            this.priority = priority;
+            if (queued)
+            {
+                Scheduler.getDefault().setPriority(slice, priority);
+            }
+        }
+    }
+    
     /** 
      * Prepare for a set of iterations.  Called before the first iterate() call
      * in a sequence.  Subclasses should extend this method if they need to do
@@ -102,10 +188,9 @@ public abstract class BaseWatchable implements Watchable, Runnable
                     {
                         // keep going until the status is no longer running,
                         // our gate tells us to stop, or no-one is watching
-                        while ((getStatus() == Watchable.RUNNING) && (gate == null || !gate.iterate()))
+                        while (runBatch())
                         {
-                            // update the status based on this iteration
-                            setStatus(iterate());
+                            Thread.yield();
                         }
                         
                         // make sure we are paused
@@ -127,6 +212,7 @@ public abstract class BaseWatchable implements Watchable, Runnable
                     {
                         if (!isExecutable())
                         {
+                            Scheduler.beginBlocking();
                             try
                             {
                                 statusLock.wait();
@@ -135,6 +221,10 @@ public abstract class BaseWatchable implements Watchable, Runnable
                             {
                                 // ignore
                             }
+                            finally
+                            {
+                                Scheduler.endBlocking();
+                            }
                         }
                     }
                 }
@@ -153,6 +243,132 @@ public abstract class BaseWatchable implements Watchable, Runnable
         thread = null;
     }
     
+    /**
+     * Run one batch of this watchable on a scheduler worker, then go back
+     * in the queue if there is more to do.  Unlike run(), this never waits:
+     * a watchable that needs data or has reached its gate leaves the
+     * scheduler until its status lets it run again.
+     */
+    private void runSlice()
+    {
+        synchronized(statusLock)
+        {
+            queued = false;
+            if (thread != null)
+            {
+                // someone is already running us in their own thread
+                return;
+            }
+            thread = Thread.currentThread();
+        }
+        
+        try
+        {
+            // call setup the first time we run
+            if (getStatus() == Watchable.NOT_STARTED)
+            {
+                setup();
+                setStatus(Watchable.PAUSED);
+            }
+            
+            boolean finished = false;
+            synchronized(parserLock)
+            {
+                if (isExecutable())
+                {
+                    setStatus(Watchable.RUNNING);
+                    
+                    try
+                    {
+                        // the status stays running between slices so
+                        // only pause if we've been told to stop
+                        if (!runBatch() && getStatus() == Watchable.RUNNING)
+                        {
+                            setStatus(Watchable.PAUSED);
+                        }
+                    }
+                    catch (Exception ex)
+                    {
+                        setError(ex);
+                    }
+                    finished = isFinished();
+                }
+            }
+            
+            // call cleanup when we are done
+            if (finished)
+            {
+                cleanup();
+            }
+        }
+        finally
+        {
+            synchronized(statusLock)
+            {
+                thread = null;
+                
+                // go to the back of our priority so other work gets a turn
+                schedule();
+            }
+        }
+    }
+    
+    /**
+     * Queue a slice of this watchable on the scheduler if it can run and
+     * isn't already queued or running.  Must be called with the status
+     * lock held.
+     */
+    private void schedule()
+    {
+        if (!queued && thread == null && (status == Watchable.NOT_STARTED || isExecutable()))
+        {
+            queued = true;
+            Scheduler.getDefault().schedule(slice, priority);
+        }
+    }
+    
+    /**
+     * Run one batch of iterations.  The status is only updated if an
+     * iteration returns something other then RUNNING.
+     *
+     * @return true if the batch ran out and there is more to do
+     */
+    private boolean runBatch() throws Exception
+    {
+        beginBatch();
+        try
+        {
+            int size = batchSize;
+            long end = batchMillis > 0 ? System.currentTimeMillis() + batchMillis : Long.MAX_VALUE;
+            for (int i = 0; i < size; i++)
+            {
+                if (getStatus() != Watchable.RUNNING || (gate != null && gate.iterate()))
+                {
+                    return false;
+                }
+                
+                int result = iterate();
+                if (result != Watchable.RUNNING)
+                {
+                    // update the status based on this iteration
+                    setStatus(result);
+                    return false;
+                }
+                
+                // checking the time isn't free, so only check it now and then
+                if ((i & 7) == 7 && System.currentTimeMillis() >= end)
+                {
+                    break;
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            endBatch();
+        }
+    }
+    
     /**
      * Get the status of this watchable
      *
@@ -191,8 +407,8 @@ public abstract class BaseWatchable implements Watchable, Runnable
     }
     
     /**
-     * Start this watchable and run in a new thread until it is finished or
-     * stopped.
+     * Start this watchable and run in the background until it is finished
+     * or stopped.
      * Note the watchable may be stopped if go() with a
      * different time is called during execution.
      */
@@ -254,6 +470,7 @@ public abstract class BaseWatchable implements Watchable, Runnable
         {
             while (!isFinished() && getStatus() != Watchable.STOPPED)
             {
+                Scheduler.beginBlocking();
                 try
                 {
                     statusLock.wait();
@@ -262,6 +479,10 @@ public abstract class BaseWatchable implements Watchable, Runnable
                 {
                     // ignore
                 }
+                finally
+                {
+                    Scheduler.endBlocking();
+                }
             }
         }
     }
@@ -273,35 +494,48 @@ public abstract class BaseWatchable implements Watchable, Runnable
      */
     protected synchronized void execute(boolean synchronous)
     {
-        // see if we're already running
-        if (thread != null)
+        synchronized(statusLock)
         {
-            // we're already running. Make sure we wake up on any change.
-            synchronized(statusLock)
+            // if we're waiting on the scheduler, run here instead
+            if (synchronous && queued && Scheduler.getDefault().cancel(slice))
+            {
+                queued = false;
+            }
+            
+            // see if we're already running
+            if (thread != null || queued)
             {
+                // we're already running. Make sure we wake up on any change.
                 statusLock.notifyAll();
+                
+                return;
+            }
+            else if(isFinished())
+            {
+                // we're all finished
+                return;
             }
             
-            return;
-        }
-        else if(isFinished())
-        {
-            // we're all finished
-            return;
+            // we'return not running. Start up
+            if (synchronous)
+            {
+                thread = Thread.currentThread();
+            }
+            else
+            {
+                // run a batch at a time on the scheduler.  As with starting
+                // a thread, anything but a new watchable starts out paused
+                pooled = true;
+                if (status != Watchable.NOT_STARTED)
+                {
+                    setStatus(Watchable.PAUSED);
+                }
+                schedule();
+                return;
+            }
         }
         
-        // we'return not running. Start up
-        if (synchronous)
-        {
-            thread = Thread.currentThread();
-            run();
-        }
-        else
-        {
-            thread = new Thread(this);
-            //thread.setName(getClass().getName());
-            thread.start();
-        }
+        run();
     }
     
     /**
@@ -311,10 +545,29 @@ public abstract class BaseWatchable implements Watchable, Runnable
     {
         synchronized(statusLock)
         {
+            if (this.status == status)
+            {
+                // nothing has changed, so there's no one to wake
+                return;
+            }
             this.status = status;
             
             // System.out.println(getName() + " status set to " + getStatusString());
             
+            if (queued && !isExecutable())
+            {
+                // stopped or out of data, so don't take up a worker
+                if (Scheduler.getDefault().cancel(slice))
+                {
+                    queued = false;
+                }
+            }
+            else if (pooled)
+            {
+                // we may be able to run again
+                schedule();
+            }
+            
             statusLock.notifyAll();
         }
     }
@@ -110,7 +110,11 @@ public class ByteBufferInputStream extends InputStream
     
     public int read() throws IOException
     {
-        return buffer.get();
+        if (!buffer.hasRemaining())
+        {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
     }
     
     public int available() throws IOException
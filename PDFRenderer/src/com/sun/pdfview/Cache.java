@@ -22,25 +22,71 @@
  */
 package com.sun.pdfview;
 
+import java.util.Enumeration;
 import java.util.Hashtable;
 
-import com.sun.pdfview.helper.PDFUtil;
-import com.sun.pdfview.helper.SoftReference;
-
 import net.rim.device.api.system.Bitmap;
 
 /**
  * A cache of PDF pages and images.
+ * <p>
+ * The cache holds on to as many pages and images as fit in its budget,
+ * in bytes, and evicts the least recently used ones once the budget is
+ * exceeded.  The sizes used are estimates: the pixels of an image, and
+ * the number of commands of a page.  A page's images are evicted with
+ * it.  Pinned pages (such as the one being displayed) and anything that
+ * is still being parsed or rendered are never evicted.
+ * <p>
+ * The decoded images the pages draw are kept in an {@link ImageCache}
+ * shared by all the pages.  They count towards this cache's budget, and
+ * are evicted once nothing else can be.
  */
 public class Cache
 {
+	/** the default budget, in bytes */
+	public static final int DEFAULT_BUDGET = 4 * 1024 * 1024;
+	
+	/** the estimated size of a page, not counting its commands */
+	private static final int PAGE_SIZE = 512;
+	/** the estimated size of a single command of a page */
+	private static final int COMMAND_SIZE = 48;
+	/** the estimated number of bytes per pixel of an image */
+	private static final int PIXEL_SIZE = 4;
+	
 	/** the pages in the cache, mapped by page number */
     private Hashtable pages;
+    /** the page numbers of the pinned pages */
+    private Hashtable pinned;
+    /** the decoded images drawn by the pages */
+    private ImageCache decodedImages;
+    
+    /** the most and least recently used records */
+    private Record head, tail;
+    
+    /** the most bytes the cache should hold */
+    private int budget;
+    /** the estimated number of bytes in the cache */
+    private int size;
+    
+    private int hits, misses, evictions;
     
     /** Creates a new instance of a Cache */
     public Cache()
     {
-        pages = PDFUtil.synchronizedTable(new Hashtable());
+        this(DEFAULT_BUDGET);
+    }
+    
+    /**
+     * Creates a new instance of a Cache
+     * 
+     * @param budget the most bytes the cache should hold
+     */
+    public Cache(int budget)
+    {
+        pages = new Hashtable();
+        pinned = new Hashtable();
+        decodedImages = new ImageCache(this, ImageCache.DEFAULT_BUDGET);
+        this.budget = budget;
     }
     
     /**
@@ -101,15 +147,17 @@ public class Cache
      * @param pageNumber the number of the page to get
      * @return the page, if it is in the cache, or null if not
      */
-    public PDFPage getPage(Integer pageNumber)
+    public synchronized PDFPage getPage(Integer pageNumber)
     {
         PageRecord rec = getPageRecord(pageNumber);
         if (rec != null)
         {
+            hits++;
             return (PDFPage)rec.value;
         }
         
         // not found
+        misses++;
         return null;
     }
     
@@ -139,15 +187,17 @@ public class Cache
      *
      * @return the image if it is in the cache, or null if not
      */
-    public Bitmap getImage(PDFPage page, ImageInfo info)
+    public synchronized Bitmap getImage(PDFPage page, ImageInfo info)
     {
         Record rec = getImageRecord(page, info);
         if (rec != null)
         {
+            hits++;
             return (Bitmap)rec.value;
         }
         
         // not found 
+        misses++;
         return null;
     }
     
@@ -192,17 +242,163 @@ public class Cache
         removeImageRecord(page, info);
     }
     
+    /**
+     * Keep a page, and its images, in the cache until it is unpinned, no
+     * matter how far over budget the cache is.  The page doesn't need to
+     * be in the cache yet.
+     * 
+     * @param pageNumber the number of the page to pin
+     */
+    public synchronized void pinPage(Integer pageNumber)
+    {
+        pinned.put(pageNumber, pageNumber);
+    }
+    
+    /**
+     * Let a pinned page be evicted again
+     * 
+     * @param pageNumber the number of the page to unpin
+     */
+    public synchronized void unpinPage(Integer pageNumber)
+    {
+        if (pinned.remove(pageNumber) != null)
+        {
+            evict();
+        }
+    }
+    
+    /**
+     * Get the cache of decoded images shared by the pages
+     */
+    public ImageCache getImageCache()
+    {
+        return decodedImages;
+    }
+    
+    /**
+     * Get the most bytes the cache should hold
+     */
+    public synchronized int getBudget()
+    {
+        return budget;
+    }
+    
+    /**
+     * Set the most bytes the cache should hold, evicting pages and
+     * images if it is now over budget
+     */
+    public synchronized void setBudget(int budget)
+    {
+        this.budget = budget;
+        evict();
+    }
+    
+    /**
+     * Called by the ImageCache when a decoded image has been added, since
+     * it counts towards this cache's budget too
+     */
+    synchronized void imageAdded()
+    {
+        evict();
+    }
+    
+    /**
+     * Determine if an image of the given size would fit in the budget
+     * without anything having to be evicted.  Use a size of 0 to check for
+     * any room at all.
+     */
+    synchronized boolean hasRoom(int width, int height)
+    {
+        return size + decodedImages.getSize() + width * height * PIXEL_SIZE < budget;
+    }
+    
+    /**
+     * Get the estimated number of bytes held by the cache, not counting
+     * decoded images
+     */
+    public synchronized int getSize()
+    {
+        return size;
+    }
+    
+    /**
+     * Get the number of times a page or image was found in the cache
+     */
+    public synchronized int getHits()
+    {
+        return hits;
+    }
+    
+    /**
+     * Get the number of times a page or image was not found in the cache
+     */
+    public synchronized int getMisses()
+    {
+        return misses;
+    }
+    
+    /**
+     * Get the number of pages and images evicted to stay in budget
+     */
+    public synchronized int getEvictions()
+    {
+        return evictions;
+    }
+    
+    /**
+     * Reset the hit, miss and eviction counts to zero
+     */
+    public synchronized void resetCounters()
+    {
+        hits = misses = evictions = 0;
+    }
+    
+    /**
+     * Remove everything from the cache, other then pinned pages and
+     * anything still being generated
+     */
+    public synchronized void trim()
+    {
+        evict(0);
+    }
+    
+    /**
+     * Stop everything that is still parsing or rendering the pages and
+     * images in the cache, such as before the file they are read from is
+     * closed.  What has already been generated is kept.
+     */
+    public synchronized void stopAll()
+    {
+        for (Record rec = head; rec != null; rec = rec.next)
+        {
+            if (rec.generator != null)
+            {
+                rec.generator.stop();
+            }
+            if (rec instanceof PageRecord)
+            {
+                ((PDFPage)rec.value).stopRenderers();
+            }
+        }
+    }
+    
     /**
      * The internal routine to add a page to the cache, and return the
      * page record which was generated
      */
-    PageRecord addPageRecord(Integer pageNumber, PDFPage page, PDFParser parser)
+    synchronized PageRecord addPageRecord(Integer pageNumber, PDFPage page, PDFParser parser)
     {
+        removePageRecord(pageNumber);
+        
         PageRecord rec = new PageRecord();
+        rec.key = pageNumber;
         rec.value = page;
         rec.generator = parser;
         
-        pages.put(pageNumber, new SoftReference(rec));
+        pages.put(pageNumber, rec);
+        link(rec);
+        resize(rec);
+        evict();
         
         return rec;
     }
@@ -212,42 +408,42 @@ public class Cache
      *
      * @return the record, or null if it's not in the cache
      */
-    PageRecord getPageRecord(Integer pageNumber)
+    synchronized PageRecord getPageRecord(Integer pageNumber)
     {
-        // System.out.println("Request for page " + pageNumber);
-        SoftReference ref = (SoftReference)pages.get(pageNumber);
-        if (ref != null)
+        PageRecord rec = (PageRecord)pages.get(pageNumber);
+        if (rec != null)
         {
-            String val = (ref.get() == null) ? " not in " : " in ";
-            // System.out.println("Page " + pageNumber + val + "cache");
-            return (PageRecord) ref.get();
+            touch(rec);
+            
+            // the page may have grown since it was last seen
+            if (resize(rec))
+            {
+                evict();
+            }
         }
         
-        // System.out.println("Page " + pageNumber + " not in cache");
-        // not in cache
-        return null;
+        return rec;
     }
     
     /**
      * Remove a page's record from the cache
      */
-    PageRecord removePageRecord(Integer pageNumber)
+    synchronized PageRecord removePageRecord(Integer pageNumber)
     {
-        SoftReference ref = (SoftReference)pages.remove(pageNumber);
-        if (ref != null)
+        PageRecord rec = (PageRecord)pages.remove(pageNumber);
+        if (rec != null)
         {
-            return (PageRecord)ref.get();
+            unlinkPage(rec);
         }
         
-        // not in cache
-        return null;
+        return rec;
     }
     
     /**
      * The internal routine to add an image to the cache and return the
      * record that was generated.
      */
-    Record addImageRecord(PDFPage page, ImageInfo info, Bitmap image, PDFRenderer renderer)
+    synchronized Record addImageRecord(PDFPage page, ImageInfo info, Bitmap image, PDFRenderer renderer)
     {
         // first, find or create the relevant page record
         Integer pageNumber = new Integer(page.getPageNumber());
@@ -259,11 +455,20 @@ public class Cache
         
         // next, create the image record
         Record rec = new Record();
+        rec.key = info;
+        rec.page = pageRec;
         rec.value = image;
         rec.generator = renderer;
         
         // add it to the cache
-        pageRec.images.put(info, new SoftReference(rec));
+        Record old = (Record)pageRec.images.put(info, rec);
+        if (old != null)
+        {
+            unlink(old);
+        }
+        link(rec);
+        resize(rec);
+        evict();
         
         return rec;
     }
@@ -273,26 +478,22 @@ public class Cache
      *
      * @return the record, or null if it's not in the cache
      */
-    Record getImageRecord(PDFPage page, ImageInfo info)
+    synchronized Record getImageRecord(PDFPage page, ImageInfo info)
     {
         // first find the relevant page record
         Integer pageNumber = new Integer(page.getPageNumber());
         
-        // System.out.println("Request for image on page " + pageNumber);
-        
         PageRecord pageRec = getPageRecord(pageNumber);
         if (pageRec != null)
         {
-            SoftReference ref = (SoftReference)pageRec.images.get(info);
-            if (ref != null)
+            Record rec = (Record)pageRec.images.get(info);
+            if (rec != null)
             {
-                String val = (ref.get() == null) ? " not in " : " in ";
-                // System.out.println("Image on page " + pageNumber + val + " cache");
-                return (Record) ref.get();
+                touch(rec);
+                return rec;
             }
         }
         
-        // System.out.println("Image on page " + pageNumber + " not in cache");
         // not found
         return null;
     }
@@ -300,23 +501,205 @@ public class Cache
     /**
      * Remove an image's record from the cache
      */
-    Record removeImageRecord(PDFPage page, ImageInfo info)
+    synchronized Record removeImageRecord(PDFPage page, ImageInfo info)
     {
         // first find the relevant page record
         Integer pageNumber = new Integer(page.getPageNumber());
-        PageRecord pageRec = getPageRecord(pageNumber);
+        PageRecord pageRec = (PageRecord)pages.get(pageNumber);
         if (pageRec != null)
         {
-            SoftReference ref = (SoftReference)pageRec.images.remove(info);
-            if (ref != null)
+            Record rec = (Record)pageRec.images.remove(info);
+            if (rec != null)
             {
-                return (Record)ref.get();
+                unlink(rec);
+                return rec;
             }
         }
         
         return null;
     }
     
+    /**
+     * Estimate the size of a record, and update the size of the cache.
+     * 
+     * @return true if the record has grown
+     */
+    private boolean resize(Record rec)
+    {
+        int recSize;
+        if (rec instanceof PageRecord)
+        {
+            recSize = PAGE_SIZE + ((PDFPage)rec.value).getCommandCount() * COMMAND_SIZE;
+        }
+        else
+        {
+            Bitmap image = (Bitmap)rec.value;
+            recSize = image == null ? 0 : image.getWidth() * image.getHeight() * PIXEL_SIZE;
+        }
+        int delta = recSize - rec.size;
+        rec.size = recSize;
+        size += delta;
+        return delta > 0;
+    }
+    
+    /**
+     * Add a record as the most recently used.
+     */
+    private void link(Record rec)
+    {
+        rec.prev = null;
+        rec.next = head;
+        if (head != null)
+        {
+            head.prev = rec;
+        }
+        head = rec;
+        if (tail == null)
+        {
+            tail = rec;
+        }
+    }
+    
+    /**
+     * Remove a record from the list of records, and its size from the
+     * cache.
+     */
+    private void unlink(Record rec)
+    {
+        if (rec.prev != null)
+        {
+            rec.prev.next = rec.next;
+        }
+        else
+        {
+            head = rec.next;
+        }
+        if (rec.next != null)
+        {
+            rec.next.prev = rec.prev;
+        }
+        else
+        {
+            tail = rec.prev;
+        }
+        rec.prev = rec.next = null;
+        size -= rec.size;
+        rec.size = 0;
+    }
+    
+    /**
+     * Remove a page record, and all of its images, from the list of records.
+     */
+    private void unlinkPage(PageRecord rec)
+    {
+        for (Enumeration e = rec.images.elements(); e.hasMoreElements();)
+        {
+            unlink((Record)e.nextElement());
+        }
+        rec.images.clear();
+        unlink(rec);
+    }
+    
+    /**
+     * Mark a record as the most recently used.
+     */
+    private void touch(Record rec)
+    {
+        if (head != rec)
+        {
+            int recSize = rec.size;
+            unlink(rec);
+            link(rec);
+            rec.size = recSize;
+            size += recSize;
+        }
+    }
+    
+    /**
+     * Evict the least recently used records until the cache, and the
+     * decoded images, are within budget.  Decoded images are only evicted
+     * if the records that could be evicted weren't enough.
+     */
+    private void evict()
+    {
+        evict(budget);
+    }
+    
+    private void evict(int limit)
+    {
+        Record rec = tail;
+        while (size + decodedImages.getSize() > limit && rec != null)
+        {
+            if (canEvict(rec))
+            {
+                if (rec instanceof PageRecord)
+                {
+                    pages.remove(rec.key);
+                    unlinkPage((PageRecord)rec);
+                }
+                else
+                {
+                    rec.page.images.remove(rec.key);
+                    unlink(rec);
+                }
+                evictions++;
+                
+                // evicting a page takes its images with it, so start over
+                rec = tail;
+            }
+            else
+            {
+                rec = rec.prev;
+            }
+        }
+        
+        if (size + decodedImages.getSize() > limit)
+        {
+            decodedImages.trim(Math.max(limit - size, 0));
+        }
+    }
+    
+    /**
+     * Determine if a record can be evicted.  Records still being generated
+     * can't be, and neither can a page with an image still being rendered.
+     * Pinned pages and their images can't be either, except for tiles,
+     * which the viewer renders again if a visible one goes missing.
+     */
+    private boolean canEvict(Record rec)
+    {
+        if (isGenerating(rec))
+        {
+            return false;
+        }
+        if (rec instanceof PageRecord)
+        {
+            if (pinned.containsKey(rec.key))
+            {
+                return false;
+            }
+            for (Enumeration e = ((PageRecord)rec).images.elements(); e.hasMoreElements();)
+            {
+                if (isGenerating((Record)e.nextElement()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // tiles can always be rendered again, so they aren't kept for pinned pages
+        return rec.key instanceof TileInfo || !pinned.containsKey(rec.page.key);
+    }
+    
+    /**
+     * Determine if a record's page or image is still being generated.  A
+     * stopped generator would have to start over anyway, so it doesn't count.
+     */
+    private static boolean isGenerating(Record rec)
+    {
+        BaseWatchable generator = rec.generator;
+        return generator != null && !generator.isFinished() && generator.getStatus() != Watchable.STOPPED;
+    }
+    
     /** the basic information about a page or image */
     class Record
     {
@@ -324,6 +707,14 @@ public class Cache
         Object value;
         /** the thing generating the page, or null if done/not provided */
         BaseWatchable generator;
+        /** the key the record is stored under: the page number or image info */
+        Object key;
+        /** the page record an image belongs to, or null for a page */
+        PageRecord page;
+        /** the estimated size of the page or image, in bytes */
+        int size;
+        /** the more and less recently used records */
+        Record prev, next;
     }
     
     /** the record stored for each page in the cache */
@@ -335,7 +726,7 @@ public class Cache
         /** create a new page record */
         public PageRecord()
         {
-            images = PDFUtil.synchronizedTable(new Hashtable());
+            images = new Hashtable();
         }
     }
 }
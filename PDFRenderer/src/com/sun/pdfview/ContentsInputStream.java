@@ -0,0 +1,147 @@
+/*
+ * File: ContentsInputStream.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 3:41:08 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.sun.pdfview.i18n.ResourcesResource;
+
+/**
+ * Reads the content streams of a page one after another, as if they were a single stream. Each content stream is decoded as it is read, so
+ * none of them need to be decoded all at once. A new line is inserted after each content stream since the streams are only allowed to be split
+ * between tokens.
+ * @author Vincent Simonetti
+ */
+final class ContentsInputStream extends InputStream
+{
+	private PDFObject[] contents;
+	/** The index of the next content stream to open. */
+	private int index;
+	private InputStream current;
+	private boolean separator;
+
+	/**
+	 * Create a new stream.
+	 * @param contents The content streams, in order.
+	 */
+	public ContentsInputStream(PDFObject[] contents)
+	{
+		this.contents = contents;
+	}
+
+	/**
+	 * Make sure there is data to read.
+	 * @return <code>false</code> if all the content streams have been read.
+	 */
+	private boolean next() throws IOException
+	{
+		while(this.current == null)
+		{
+			if(this.contents == null || this.index >= this.contents.length)
+			{
+				return false;
+			}
+			PDFObject content = this.contents[this.index];
+			InputStream in = content.openStream();
+			if(in == null)
+			{
+				throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_NO_STREAM, new Object[]{new Integer(this.index), content.toString()}));
+			}
+			this.index++;
+			this.current = in;
+		}
+		return true;
+	}
+
+	/**
+	 * Called when the current stream has been read to the end.
+	 */
+	private void finish() throws IOException
+	{
+		this.current.close();
+		this.current = null;
+		this.separator = true;
+	}
+
+	public int read() throws IOException
+	{
+		if(this.separator || next())
+		{
+			if(this.separator)
+			{
+				this.separator = false;
+				return '\n';
+			}
+			int c = this.current.read();
+			if(c >= 0)
+			{
+				return c;
+			}
+			finish();
+			return read();
+		}
+		return -1;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if(len == 0)
+		{
+			return 0;
+		}
+		if(!this.separator && !next())
+		{
+			return -1;
+		}
+		if(this.separator)
+		{
+			this.separator = false;
+			b[off] = '\n';
+			return 1;
+		}
+		int read = this.current.read(b, off, len);
+		if(read < 0)
+		{
+			finish();
+			return read(b, off, len);
+		}
+		return read;
+	}
+
+	public int available() throws IOException
+	{
+		if(this.separator)
+		{
+			return 1;
+		}
+		return this.current == null ? 0 : this.current.available();
+	}
+
+	public void close() throws IOException
+	{
+		if(this.current != null)
+		{
+			this.current.close();
+			this.current = null;
+		}
+		this.contents = null;
+	}
+}
@@ -0,0 +1,347 @@
+//#preprocessor
+
+/*
+ * File: GlyphCache.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 8:37:15 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.util.Hashtable;
+
+import net.rim.device.api.system.Bitmap;
+
+import com.sun.pdfview.helper.AffineTransform;
+import com.sun.pdfview.helper.PDFGraphics;
+import com.sun.pdfview.helper.XYRectFloat;
+import com.sun.pdfview.helper.graphics.Composite;
+import com.sun.pdfview.helper.graphics.Geometry;
+import com.sun.pdfview.helper.graphics.Paint;
+
+/**
+ * Glyphs already drawn as bitmaps, so the same character at the same size doesn't have to be filled as an outline every time it is drawn.
+ * Glyphs are found by their outline, which is shared by every use of a glyph of a font, their scale on the device, the fraction of a pixel
+ * they start at and their color. Only small glyphs that aren't rotated or skewed are cached, anything else is left to be filled as an outline.
+ * <p>
+ * The least recently used glyphs are dropped once the cache is over its budget.
+ * @author Vincent Simonetti
+ */
+final class GlyphCache
+{
+	/** The default budget, in bytes. */
+	public static final int DEFAULT_BUDGET = 256 * 1024;
+	/** The widest or tallest glyph that is cached, in pixels. */
+	public static final int MAX_SIZE = 48;
+
+	/** The number of positions within a pixel a glyph can start at. */
+	private static final int SUBPIXELS = 4;
+	/** The estimated number of bytes per pixel of a glyph. */
+	private static final int PIXEL_SIZE = 4;
+	/** The estimated size of an entry, not counting its image. Glyphs that are too big to cache still take up an entry. */
+	private static final int ENTRY_SIZE = 48;
+	/** The scale bits that are dropped, so scales that only differ by a fraction of a percent share a glyph. */
+	private static final int SCALE_MASK = ~0x7FFF;
+
+	private static GlyphCache instance;
+
+	/**
+	 * A drawn glyph, and the key it is found by.
+	 */
+	private static final class Entry
+	{
+		public Geometry outline;
+		public int scaleX, scaleY;
+		public int phase;
+		public int color;
+
+		/** The drawn glyph, or null if the glyph is too big to cache. */
+		public Bitmap image;
+		/** The position of the glyph's origin in the image. */
+		public int originX, originY;
+		public int size;
+		/** The more and less recently used entries. */
+		public Entry prev, next;
+
+		public int hashCode()
+		{
+			return System.identityHashCode(this.outline) ^ this.scaleX ^ (this.scaleY >>> 7) ^ (this.phase << 24) ^ this.color;
+		}
+
+		public boolean equals(Object o)
+		{
+			if(!(o instanceof Entry))
+			{
+				return false;
+			}
+			Entry e = (Entry)o;
+			return this.outline == e.outline && this.scaleX == e.scaleX && this.scaleY == e.scaleY && this.phase == e.phase && this.color == e.color;
+		}
+	}
+
+	private Hashtable entries;
+	/** The most and least recently used entries. */
+	private Entry head, tail;
+	private int size;
+	private int budget;
+	/** The key used to look up entries, so a lookup doesn't create anything. Only used while synchronized. */
+	private Entry key;
+	private float[] matrix;
+
+	/**
+	 * Create a new glyph cache.
+	 * @param budget The most bytes the cache should hold.
+	 */
+	public GlyphCache(int budget)
+	{
+		this.entries = new Hashtable();
+		this.budget = budget;
+		this.key = new Entry();
+		this.matrix = new float[9];
+	}
+
+	/**
+	 * Get the glyph cache renderers use.
+	 */
+	public static synchronized GlyphCache getDefault()
+	{
+		if(instance == null)
+		{
+			instance = new GlyphCache(DEFAULT_BUDGET);
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the most bytes the cache should hold.
+	 */
+	public synchronized int getBudget()
+	{
+		return this.budget;
+	}
+
+	/**
+	 * Set the most bytes the cache should hold, dropping glyphs if it is now over budget.
+	 */
+	public synchronized void setBudget(int budget)
+	{
+		this.budget = budget;
+		trim();
+	}
+
+	/**
+	 * Get the estimated number of bytes held by the cache.
+	 */
+	public synchronized int getSize()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Drop every glyph. Glyphs are found by the outlines of the fonts they came from, so once a document is closed its glyphs can't be
+	 * found again and are only taking up room.
+	 */
+	public synchronized void clear()
+	{
+		this.entries.clear();
+		this.head = this.tail = null;
+		this.size = 0;
+	}
+
+	/**
+	 * Draw a glyph, drawing it into the cache first if it isn't there.
+	 * @param g The graphics to draw into. Its transform is left as the identity.
+	 * @param outline The glyph's outline.
+	 * @param at The transform from the outline's space to the device.
+	 * @param color The color of the glyph.
+	 * @param alpha The alpha of the glyph, 0-255.
+	 * @return The region of the device that was drawn, or <code>null</code> if the glyph can't be cached at this transform and has to be
+	 * filled as an outline.
+	 */
+	public XYRectFloat draw(PDFGraphics g, Geometry outline, AffineTransform at, int color, int alpha)
+	{
+		float[] mat = this.matrix;
+		Entry entry;
+		int x, y;
+		synchronized(this)
+		{
+			at.getArray(mat);
+			float sx = mat[0];
+			float sy = mat[4];
+
+			// only glyphs that aren't rotated or skewed
+			float tolerance = Math.max(Math.abs(sx), Math.abs(sy)) / 1024;
+			if(Math.abs(mat[1]) > tolerance || Math.abs(mat[3]) > tolerance || sx == 0 || sy == 0)
+			{
+				return null;
+			}
+
+			float ox = mat[6];
+			float oy = mat[7];
+			x = (int)Math.floor(ox);
+			y = (int)Math.floor(oy);
+			Entry k = this.key;
+			k.outline = outline;
+			k.scaleX = Float.floatToIntBits(sx) & SCALE_MASK;
+			k.scaleY = Float.floatToIntBits(sy) & SCALE_MASK;
+			k.phase = ((int)((ox - x) * SUBPIXELS) << 8) | (int)((oy - y) * SUBPIXELS);
+			k.color = color;
+			entry = (Entry)this.entries.get(k);
+			if(entry != null)
+			{
+				unlink(entry);
+				link(entry);
+			}
+			else
+			{
+				entry = new Entry();
+				entry.outline = outline;
+				entry.scaleX = k.scaleX;
+				entry.scaleY = k.scaleY;
+				entry.phase = k.phase;
+				entry.color = color;
+			}
+			k.outline = null;
+		}
+
+		if(entry.image == null && entry.size == 0)
+		{
+			// drawn outside the lock, if two threads draw the same glyph the second one is kept
+			rasterize(entry);
+			synchronized(this)
+			{
+				Object old = this.entries.put(entry, entry);
+				if(old != null)
+				{
+					unlink((Entry)old);
+					this.size -= ((Entry)old).size;
+				}
+				link(entry);
+				this.size += entry.size;
+				trim();
+			}
+		}
+		Bitmap image = entry.image;
+		if(image == null)
+		{
+			return null;
+		}
+
+		x -= entry.originX;
+		y -= entry.originY;
+		g.setTransform(new AffineTransform());
+		g.setComposite(Composite.getInstance(Composite.SRC_OVER, alpha));
+		g.drawImage(image, AffineTransform.createTranslation(x, y));
+		return new XYRectFloat(x, y, image.getWidth(), image.getHeight());
+	}
+
+	/**
+	 * Draw a glyph into a new image.
+	 */
+	private static void rasterize(Entry entry)
+	{
+		float sx = Float.intBitsToFloat(entry.scaleX);
+		float sy = Float.intBitsToFloat(entry.scaleY);
+		XYRectFloat bounds = entry.outline.getBounds2D();
+		float minX = (float)Math.min(bounds.x * sx, (bounds.x + bounds.width) * sx);
+		float maxX = (float)Math.max(bounds.x * sx, (bounds.x + bounds.width) * sx);
+		float minY = (float)Math.min(bounds.y * sy, (bounds.y + bounds.height) * sy);
+		float maxY = (float)Math.max(bounds.y * sy, (bounds.y + bounds.height) * sy);
+		if(maxX - minX > MAX_SIZE || maxY - minY > MAX_SIZE)
+		{
+			// too big, remember that so it isn't measured again
+			entry.size = ENTRY_SIZE;
+			return;
+		}
+
+		// a pixel all round for anti-aliasing and the fraction of a pixel the glyph starts at
+		entry.originX = 1 - (int)Math.floor(minX);
+		entry.originY = 1 - (int)Math.floor(minY);
+		int width = (int)Math.ceil(maxX) + entry.originX + 1;
+		int height = (int)Math.ceil(maxY) + entry.originY + 1;
+
+//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
+		Bitmap image = new Bitmap(Bitmap.ROWWISE_16BIT_COLOR, width, height);
+		image.createAlpha(Bitmap.ALPHA_BITDEPTH_8BPP);
+//#else
+		Bitmap image = new Bitmap(Bitmap.ROWWISE_32BIT_ARGB8888, width, height);
+//#endif
+		image.setARGB(new int[width * height], 0, width, 0, 0, width, height);
+
+		PDFGraphics g = PDFGraphics.createGraphics(image);
+		g.setRenderingHint(PDFGraphics.KEY_ANTIALIASING, PDFGraphics.VALUE_ANTIALIAS_ON);
+		g.setComposite(Composite.getInstance(Composite.SRC_OVER));
+		g.setPaint(Paint.getInstance(entry.color));
+		float px = (float)(entry.phase >> 8) / SUBPIXELS;
+		float py = (float)(entry.phase & 0xFF) / SUBPIXELS;
+		g.setTransform(new AffineTransform(sx, 0, 0, sy, entry.originX + px, entry.originY + py));
+		g.fill(entry.outline);
+		PDFGraphics.finishGraphics(g);
+
+		entry.image = image;
+		entry.size = ENTRY_SIZE + width * height * PIXEL_SIZE;
+	}
+
+	private void link(Entry entry)
+	{
+		entry.prev = null;
+		entry.next = this.head;
+		if(this.head != null)
+		{
+			this.head.prev = entry;
+		}
+		this.head = entry;
+		if(this.tail == null)
+		{
+			this.tail = entry;
+		}
+	}
+
+	private void unlink(Entry entry)
+	{
+		if(entry.prev != null)
+		{
+			entry.prev.next = entry.next;
+		}
+		else if(this.head == entry)
+		{
+			this.head = entry.next;
+		}
+		if(entry.next != null)
+		{
+			entry.next.prev = entry.prev;
+		}
+		else if(this.tail == entry)
+		{
+			this.tail = entry.prev;
+		}
+		entry.prev = entry.next = null;
+	}
+
+	/**
+	 * Drop the least recently used glyphs until the cache is in budget.
+	 */
+	private void trim()
+	{
+		while(this.size > this.budget && this.tail != null)
+		{
+			Entry entry = this.tail;
+			unlink(entry);
+			this.entries.remove(entry);
+			this.size -= entry.size;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * File: ImageCache.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 9:47:05 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.util.Vector;
+
+/**
+ * A cache of decoded images, shared by every page of a document. Images that are drawn on many pages, such as logos and backgrounds, are decoded
+ * once instead of once per page or every time the garbage collector reclaims them. Images are kept by object number, generation and the step
+ * they were decoded at, and the least recently used are evicted once the decoded size of the images goes over a budget.
+ * <p>
+ * The cache belongs to a {@link Cache}, and the decoded images count towards that cache's budget as well as this one's.
+ * @author Vincent Simonetti
+ */
+public final class ImageCache
+{
+	/** The default number of bytes of decoded images to keep. */
+	public static final int DEFAULT_BUDGET = 2 * 1024 * 1024;
+
+	/** The estimated number of bytes per pixel of a decoded image. */
+	static final int PIXEL_SIZE = 4;
+	/** The most of the budget a single image decoded whole may use, as a fraction, so one large image can't evict all the others. */
+	static final int IMAGE_SHARE = 4;
+	/** The most pixels of an image decoded whole with the default budget. */
+	static final int DEFAULT_MAX_PIXELS = DEFAULT_BUDGET / (PIXEL_SIZE * IMAGE_SHARE);
+
+	private static final class Entry
+	{
+		public int objNum;
+		public int objGen;
+		public int step;
+		public PDFImage.Decoded image;
+		public int size;
+
+		public Entry(int objNum, int objGen, int step, PDFImage.Decoded image)
+		{
+			this.objNum = objNum;
+			this.objGen = objGen;
+			this.step = step;
+			this.image = image;
+			this.size = image.image.getWidth() * image.image.getHeight() * PIXEL_SIZE;
+		}
+	}
+
+	/** The Cache the images count towards, or <code>null</code>. */
+	private Cache owner;
+	/** The cached images, most recently used first. */
+	private Vector entries;
+	private int budget;
+	private int size;
+	private int hits, misses, evictions;
+
+	/**
+	 * Create a new cache.
+	 * @param owner The Cache the images count towards, or <code>null</code>.
+	 * @param budget The number of bytes of decoded images to keep.
+	 */
+	ImageCache(Cache owner, int budget)
+	{
+		this.owner = owner;
+		this.entries = new Vector();
+		this.budget = budget;
+	}
+
+	/**
+	 * Get a decoded image.
+	 * @param objNum The object number of the image.
+	 * @param objGen The generation number of the image.
+	 * @param step The step the image was decoded at.
+	 * @return The image, or <code>null</code> if it isn't cached.
+	 */
+	synchronized PDFImage.Decoded get(int objNum, int objGen, int step)
+	{
+		int i = indexOf(objNum, objGen, step);
+		if(i < 0)
+		{
+			this.misses++;
+			return null;
+		}
+		Entry entry = (Entry)this.entries.elementAt(i);
+		if(i > 0)
+		{
+			this.entries.removeElementAt(i);
+			this.entries.insertElementAt(entry, 0);
+		}
+		this.hits++;
+		return entry.image;
+	}
+
+	/**
+	 * Determine if an image has been decoded at any step.
+	 */
+	synchronized boolean contains(int objNum, int objGen)
+	{
+		int len = this.entries.size();
+		for(int i = 0; i < len; i++)
+		{
+			Entry entry = (Entry)this.entries.elementAt(i);
+			if(entry.objNum == objNum && entry.objGen == objGen)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a decoded image, replacing any decoded at the same step, and evict the least recently used images if the budget is exceeded. The newest
+	 * image is always kept. The owning Cache is then brought back within its own budget.
+	 * @param objNum The object number of the image.
+	 * @param objGen The generation number of the image.
+	 * @param step The step the image was decoded at.
+	 * @param image The decoded image.
+	 */
+	void put(int objNum, int objGen, int step, PDFImage.Decoded image)
+	{
+		synchronized(this)
+		{
+			int i = indexOf(objNum, objGen, step);
+			if(i >= 0)
+			{
+				this.size -= ((Entry)this.entries.elementAt(i)).size;
+				this.entries.removeElementAt(i);
+			}
+			Entry entry = new Entry(objNum, objGen, step, image);
+			this.entries.insertElementAt(entry, 0);
+			this.size += entry.size;
+			evict(this.budget, 1);
+		}
+		// the owner locks itself before this cache, so it can't be called while this cache is locked
+		if(this.owner != null)
+		{
+			this.owner.imageAdded();
+		}
+	}
+
+	private int indexOf(int objNum, int objGen, int step)
+	{
+		int len = this.entries.size();
+		for(int i = 0; i < len; i++)
+		{
+			Entry entry = (Entry)this.entries.elementAt(i);
+			if(entry.objNum == objNum && entry.objGen == objGen && entry.step == step)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Evict the least recently used images until the decoded size is within a limit.
+	 * @param limit The most bytes to keep.
+	 * @param keep The number of most recently used images to keep no matter what.
+	 */
+	private void evict(int limit, int keep)
+	{
+		int last;
+		while(this.size > limit && (last = this.entries.size() - 1) >= keep)
+		{
+			Entry entry = (Entry)this.entries.elementAt(last);
+			this.entries.removeElementAt(last);
+			this.size -= entry.size;
+			this.evictions++;
+		}
+	}
+
+	/**
+	 * Evict the least recently used images until the decoded size is within a limit. Used by the owning {@link Cache} when it is over its own
+	 * budget.
+	 */
+	synchronized void trim(int limit)
+	{
+		evict(limit, 0);
+	}
+
+	/**
+	 * Get the most pixels of an image that should be decoded whole, so it uses no more than its share of the budget.
+	 */
+	synchronized int getMaxPixels()
+	{
+		return this.budget / (PIXEL_SIZE * IMAGE_SHARE);
+	}
+
+	/**
+	 * Get the most bytes of decoded images to keep.
+	 */
+	public synchronized int getBudget()
+	{
+		return this.budget;
+	}
+
+	/**
+	 * Set the most bytes of decoded images to keep, evicting images if the cache is now over budget.
+	 */
+	public synchronized void setBudget(int budget)
+	{
+		this.budget = budget;
+		evict(budget, 0);
+	}
+
+	/**
+	 * Get the estimated number of bytes of decoded images held by the cache.
+	 */
+	public synchronized int getSize()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Get the number of decoded images held by the cache.
+	 */
+	public synchronized int getCount()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Get the number of times a decoded image was found in the cache.
+	 */
+	public synchronized int getHits()
+	{
+		return this.hits;
+	}
+
+	/**
+	 * Get the number of times an image had to be decoded because it wasn't in the cache.
+	 */
+	public synchronized int getMisses()
+	{
+		return this.misses;
+	}
+
+	/**
+	 * Get the number of decoded images evicted to stay in budget.
+	 */
+	public synchronized int getEvictions()
+	{
+		return this.evictions;
+	}
+
+	/**
+	 * Reset the hit, miss and eviction counts to zero.
+	 */
+	public synchronized void resetCounters()
+	{
+		this.hits = this.misses = this.evictions = 0;
+	}
+
+	/**
+	 * Remove all decoded images.
+	 */
+	public synchronized void clear()
+	{
+		this.entries.removeAllElements();
+		this.size = 0;
+	}
+}
@@ -33,6 +33,8 @@ public class ImageInfo
     int height;
     XYRectFloat clip;
     int bgColor;
+    /** if true, the image is a quick draft of the page */
+    boolean draft;
     
     public ImageInfo(int width, int height, XYRectFloat clip)
     {
@@ -71,7 +73,7 @@ public class ImageInfo
         
         ImageInfo ii = (ImageInfo)o;
         
-        if (width != ii.width || height != ii.height)
+        if (width != ii.width || height != ii.height || draft != ii.draft)
         {
             return false;
         }
@@ -0,0 +1,139 @@
+/*
+ * File: ObjStmCache.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 1:12:27 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.util.Vector;
+
+/**
+ * A cache of the objects parsed out of object streams (ObjStm). When one object in an object stream is needed, every object in it is parsed in
+ * one pass and kept here so the stream doesn't need to be decoded again for its neighbours. Whole object streams are evicted, least recently used
+ * first, once the decoded size of the cached streams goes over a budget.
+ * @author Vincent Simonetti
+ */
+final class ObjStmCache
+{
+	/** The default number of decoded bytes worth of object streams to keep. */
+	public static final int DEFAULT_BUDGET = 256 * 1024;
+
+	private static final class Entry
+	{
+		public int streamNum;
+		public PDFObject[] objects;
+		public int size;
+
+		public Entry(int streamNum, PDFObject[] objects, int size)
+		{
+			this.streamNum = streamNum;
+			this.objects = objects;
+			this.size = size;
+		}
+	}
+
+	/** The cached streams, most recently used first. */
+	private Vector entries;
+	private int budget;
+	private int size;
+
+	/**
+	 * Create a new cache.
+	 * @param budget The number of decoded bytes worth of object streams to keep.
+	 */
+	public ObjStmCache(int budget)
+	{
+		this.entries = new Vector();
+		this.budget = budget;
+	}
+
+	/**
+	 * Get the objects of an object stream.
+	 * @param streamNum The object number of the object stream.
+	 * @return The objects, in the order they appear in the stream, or <code>null</code> if the stream isn't cached.
+	 */
+	public synchronized PDFObject[] get(int streamNum)
+	{
+		int len = this.entries.size();
+		for(int i = 0; i < len; i++)
+		{
+			Entry entry = (Entry)this.entries.elementAt(i);
+			if(entry.streamNum == streamNum)
+			{
+				if(i > 0)
+				{
+					this.entries.removeElementAt(i);
+					this.entries.insertElementAt(entry, 0);
+				}
+				return entry.objects;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Add the objects of an object stream, evicting the least recently used streams if the budget is exceeded. The newest stream is always kept.
+	 * @param streamNum The object number of the object stream.
+	 * @param objects The objects, in the order they appear in the stream.
+	 * @param size The decoded length of the object stream.
+	 */
+	public synchronized void put(int streamNum, PDFObject[] objects, int size)
+	{
+		remove(streamNum);
+		this.entries.insertElementAt(new Entry(streamNum, objects, size), 0);
+		this.size += size;
+		int last;
+		while(this.size > this.budget && (last = this.entries.size() - 1) > 0)
+		{
+			Entry entry = (Entry)this.entries.elementAt(last);
+			this.entries.removeElementAt(last);
+			this.size -= entry.size;
+		}
+	}
+
+	private void remove(int streamNum)
+	{
+		int len = this.entries.size();
+		for(int i = 0; i < len; i++)
+		{
+			Entry entry = (Entry)this.entries.elementAt(i);
+			if(entry.streamNum == streamNum)
+			{
+				this.entries.removeElementAt(i);
+				this.size -= entry.size;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the decoded size of all the cached object streams.
+	 */
+	public synchronized int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Remove all cached object streams.
+	 */
+	public synchronized void clear()
+	{
+		this.entries.removeAllElements();
+		this.size = 0;
+	}
+}
@@ -0,0 +1,747 @@
+/*
+ * File: PDFDisplayList.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 5:58:40 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.sun.pdfview.helper.AffineTransform;
+import com.sun.pdfview.helper.XYRectFloat;
+import com.sun.pdfview.helper.graphics.Geometry;
+
+import com.sun.pdfview.i18n.ResourcesResource;
+
+/**
+ * The commands of a PDFPage, packed into arrays. Each command is an opcode and one argument, which is either the index of its first float
+ * operand or the index of its object. Simple state changes (push, pop, transforms and alpha) don't need an object at all, and identical stroke
+ * changes share one object.
+ * <p>
+ * Commands are only ever added to the end of the list. Adding is synchronized, but reading isn't: the arrays are filled in before the count is
+ * published, and arrays that grow are copied and published before the count, so a reader that only looks below {@link #size()} never needs
+ * to lock even while the parser is still adding commands.
+ * <p>
+ * Commands that draw (shapes and images) also get their bounds in page space, worked out from the transforms, pushes and pops added before
+ * them. The commands are grouped into blocks with the combined bounds of their drawing commands, so a renderer drawing part of a page can
+ * skip whole blocks that are outside it, and single drawing commands inside the blocks it can't skip. Commands that change the graphics
+ * state are never skipped.
+ * <p>
+ * Filled glyphs aren't copied into page space. Each one is the font's shared outline and the transform it is drawn with, which the renderer
+ * applies when it draws the glyph.
+ * @author Vincent Simonetti
+ */
+final class PDFDisplayList
+{
+	/** Any other PDFCmd, kept as an object. */
+	private static final byte OP_CMD = 0;
+	private static final byte OP_PUSH = 1;
+	private static final byte OP_POP = 2;
+	/** A transform, 6 floats. */
+	private static final byte OP_XFORM = 3;
+	/** A stroke change, a shared PDFChangeStrokeCmd. */
+	private static final byte OP_STROKE = 4;
+	/** A fill paint, a PDFPaint. */
+	private static final byte OP_FILL_PAINT = 5;
+	/** A stroke paint, a PDFPaint. */
+	private static final byte OP_STROKE_PAINT = 6;
+	/** A fill alpha, 1 float. */
+	private static final byte OP_FILL_ALPHA = 7;
+	/** A stroke alpha, 1 float. */
+	private static final byte OP_STROKE_ALPHA = 8;
+	/** An image, a PDFImage. */
+	private static final byte OP_IMAGE = 9;
+	/** A path, a PDFShapeCmd. */
+	private static final byte OP_SHAPE = 10;
+	/** A filled glyph, a shared Geometry and 6 floats transforming it into user space. */
+	private static final byte OP_GLYPH = 11;
+
+	private static final int INITIAL_SIZE = 256;
+	/** The number of commands in a block, must divide {@link #INITIAL_SIZE}. */
+	private static final int BLOCK_SIZE = 32;
+
+	/**
+	 * The arrays of the list. Once published a Data is only ever added to beyond the published count, when it is full a larger copy is
+	 * published in its place.
+	 */
+	private static final class Data
+	{
+		public byte[] ops;
+		public int[] args;
+		public float[] floats;
+		public Object[] objects;
+		/** The index of the floats of each object that has them. */
+		public int[] objectFloats;
+		/** The bounds (min x, min y, max x, max y) of each object that draws, NaN for objects that don't. */
+		public float[] objectBounds;
+		/** The combined bounds of the drawing commands in each block. */
+		public float[] blockBounds;
+		/** If a block has commands that must always be executed. */
+		public boolean[] blockState;
+
+		public Data(int commands, int floats, int objects)
+		{
+			this.ops = new byte[commands];
+			this.args = new int[commands];
+			this.floats = new float[floats];
+			this.objects = new Object[objects];
+			this.objectFloats = new int[objects];
+			this.objectBounds = new float[objects * 4];
+			int blocks = commands / BLOCK_SIZE;
+			this.blockBounds = new float[blocks * 4];
+			for(int i = 0; i < blocks * 4; i += 4)
+			{
+				this.blockBounds[i] = this.blockBounds[i + 1] = Float.POSITIVE_INFINITY;
+				this.blockBounds[i + 2] = this.blockBounds[i + 3] = Float.NEGATIVE_INFINITY;
+			}
+			this.blockState = new boolean[blocks];
+		}
+	}
+
+	private volatile Data data;
+	private volatile int count;
+
+	// only used by writers, while synchronized
+	private int floatCount;
+	private int objectCount;
+	/** The stroke changes in the list, so identical ones are only kept once. */
+	private Hashtable strokes;
+	private float[] matrix;
+	/** The transform from user space to page space at the end of the list. */
+	private AffineTransform ctm;
+	/** The stroke width and miter limit at the end of the list. */
+	private float lineWidth, miterLimit;
+	/** The transforms, stroke widths and miter limits saved by pushes. */
+	private Vector stack;
+	private float[] corners;
+	/** The transform from a glyph's space to page space. */
+	private AffineTransform glyphTransform;
+
+	public PDFDisplayList()
+	{
+		this.data = new Data(INITIAL_SIZE, INITIAL_SIZE, INITIAL_SIZE);
+		this.strokes = new Hashtable();
+		this.matrix = new float[9];
+		this.corners = new float[8];
+		this.glyphTransform = new AffineTransform();
+		this.stack = new Vector();
+		resetState();
+	}
+
+	private void resetState()
+	{
+		this.ctm = new AffineTransform();
+		this.lineWidth = 1;
+		this.miterLimit = 10;
+		this.stack.removeAllElements();
+	}
+
+	/**
+	 * Get the number of commands in the list. Commands below this can be read without locking.
+	 */
+	public int size()
+	{
+		return this.count;
+	}
+
+	/**
+	 * Get an estimate of the memory used by the list, not counting the objects it refers to.
+	 */
+	public int getMemorySize()
+	{
+		Data d = this.data;
+		return d.ops.length + (d.args.length + d.floats.length + d.objects.length * 2) * 4;
+	}
+
+	/**
+	 * Make sure there is room for another command, its floats and its object.
+	 */
+	private Data reserve(int floats, int objects)
+	{
+		Data d = this.data;
+		int n = this.count;
+		if(n < d.ops.length && this.floatCount + floats <= d.floats.length && this.objectCount + objects <= d.objects.length)
+		{
+			return d;
+		}
+		Data nd = new Data(n < d.ops.length ? d.ops.length : d.ops.length * 2,
+				this.floatCount + floats <= d.floats.length ? d.floats.length : Math.max(d.floats.length * 2, this.floatCount + floats),
+				this.objectCount + objects <= d.objects.length ? d.objects.length : d.objects.length * 2);
+		System.arraycopy(d.ops, 0, nd.ops, 0, n);
+		System.arraycopy(d.args, 0, nd.args, 0, n);
+		System.arraycopy(d.floats, 0, nd.floats, 0, this.floatCount);
+		System.arraycopy(d.objects, 0, nd.objects, 0, this.objectCount);
+		System.arraycopy(d.objectFloats, 0, nd.objectFloats, 0, this.objectCount);
+		System.arraycopy(d.objectBounds, 0, nd.objectBounds, 0, this.objectCount * 4);
+		int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		System.arraycopy(d.blockBounds, 0, nd.blockBounds, 0, blocks * 4);
+		System.arraycopy(d.blockState, 0, nd.blockState, 0, blocks);
+
+		// readers still using the old arrays only read what was already in them
+		this.data = nd;
+		return nd;
+	}
+
+	/**
+	 * Add a command once its operands are in place.
+	 */
+	private void add(Data d, byte op, int arg)
+	{
+		int n = this.count;
+		d.ops[n] = op;
+		d.args[n] = arg;
+
+		// add the command to its block
+		int block = n / BLOCK_SIZE;
+		if(isDrawing(op) && !Float.isNaN(d.objectBounds[arg * 4]))
+		{
+			float[] bounds = d.objectBounds;
+			float[] blockBounds = d.blockBounds;
+			int b = arg * 4;
+			int bb = block * 4;
+			blockBounds[bb] = Math.min(blockBounds[bb], bounds[b]);
+			blockBounds[bb + 1] = Math.min(blockBounds[bb + 1], bounds[b + 1]);
+			blockBounds[bb + 2] = Math.max(blockBounds[bb + 2], bounds[b + 2]);
+			blockBounds[bb + 3] = Math.max(blockBounds[bb + 3], bounds[b + 3]);
+		}
+		else
+		{
+			d.blockState[block] = true;
+		}
+
+		// publish the command
+		this.count = n + 1;
+	}
+
+	private static boolean isDrawing(byte op)
+	{
+		return op == OP_SHAPE || op == OP_IMAGE || op == OP_GLYPH;
+	}
+
+	private synchronized void addObject(byte op, Object obj)
+	{
+		Data d = reserve(0, 1);
+		int index = this.objectCount++;
+		d.objects[index] = obj;
+		d.objectBounds[index * 4] = Float.NaN;
+		add(d, op, index);
+	}
+
+	/**
+	 * Add a command that draws, with its bounds.
+	 * @param at The transform from the space of the bounds to page space.
+	 */
+	private synchronized void addObject(byte op, Object obj, AffineTransform at, float minX, float minY, float maxX, float maxY)
+	{
+		Data d = reserve(0, 1);
+		int index = this.objectCount++;
+		d.objects[index] = obj;
+		setBounds(d, index, at, minX, minY, maxX, maxY);
+		add(d, op, index);
+	}
+
+	/**
+	 * Set the bounds of an object in page space to the bounds of the transformed corners of its bounds.
+	 */
+	private void setBounds(Data d, int index, AffineTransform at, float minX, float minY, float maxX, float maxY)
+	{
+		float[] pts = this.corners;
+		pts[0] = minX;
+		pts[1] = minY;
+		pts[2] = maxX;
+		pts[3] = minY;
+		pts[4] = maxX;
+		pts[5] = maxY;
+		pts[6] = minX;
+		pts[7] = maxY;
+		at.transform(pts, 0, pts, 0, 4);
+		float[] bounds = d.objectBounds;
+		int b = index * 4;
+		bounds[b] = Math.min(Math.min(pts[0], pts[2]), Math.min(pts[4], pts[6]));
+		bounds[b + 1] = Math.min(Math.min(pts[1], pts[3]), Math.min(pts[5], pts[7]));
+		bounds[b + 2] = Math.max(Math.max(pts[0], pts[2]), Math.max(pts[4], pts[6]));
+		bounds[b + 3] = Math.max(Math.max(pts[1], pts[3]), Math.max(pts[5], pts[7]));
+	}
+
+	private synchronized void addFloat(byte op, float f)
+	{
+		Data d = reserve(1, 0);
+		int index = this.floatCount++;
+		d.floats[index] = f;
+		add(d, op, index);
+	}
+
+	/**
+	 * Add a command that pushes the graphics state.
+	 */
+	public synchronized void addPush()
+	{
+		this.stack.addElement(new Object[]{new AffineTransform(this.ctm), new float[]{this.lineWidth, this.miterLimit}});
+		add(reserve(0, 0), OP_PUSH, 0);
+	}
+
+	/**
+	 * Add a command that pops the graphics state.
+	 */
+	public synchronized void addPop()
+	{
+		int top = this.stack.size() - 1;
+		if(top >= 0)
+		{
+			Object[] saved = (Object[])this.stack.elementAt(top);
+			this.stack.removeElementAt(top);
+			this.ctm = (AffineTransform)saved[0];
+			float[] stroke = (float[])saved[1];
+			this.lineWidth = stroke[0];
+			this.miterLimit = stroke[1];
+		}
+		add(reserve(0, 0), OP_POP, 0);
+	}
+
+	/**
+	 * Add a command that concatenates a transform to the graphics state.
+	 */
+	public synchronized void addXform(AffineTransform at)
+	{
+		if(at == null)
+		{
+			throw new RuntimeException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.PAGE_NULL_TRANSFORM));
+		}
+		Data d = reserve(6, 0);
+		int index = putTransform(d, at);
+		this.ctm.concatenate(at);
+		add(d, OP_XFORM, index);
+	}
+
+	/**
+	 * Add a command that changes the stroke. The command must not be changed once it has been added.
+	 */
+	public synchronized void addStroke(PDFChangeStrokeCmd stroke)
+	{
+		if(stroke.w != PDFRenderer.NOWIDTH)
+		{
+			this.lineWidth = stroke.w;
+		}
+		if(stroke.limit != PDFRenderer.NOLIMIT)
+		{
+			this.miterLimit = stroke.limit;
+		}
+		addObject(OP_STROKE, intern(stroke));
+	}
+
+	/**
+	 * Get the stroke change in this list that is identical to the given one, adding it if there isn't one.
+	 */
+	private PDFChangeStrokeCmd intern(PDFChangeStrokeCmd stroke)
+	{
+		PDFChangeStrokeCmd shared = (PDFChangeStrokeCmd)this.strokes.get(stroke);
+		if(shared == null)
+		{
+			this.strokes.put(stroke, stroke);
+			shared = stroke;
+		}
+		return shared;
+	}
+
+	/**
+	 * Add a command that sets the fill paint.
+	 */
+	public void addFillPaint(PDFPaint p)
+	{
+		addObject(OP_FILL_PAINT, p);
+	}
+
+	/**
+	 * Add a command that sets the stroke paint.
+	 */
+	public void addStrokePaint(PDFPaint p)
+	{
+		addObject(OP_STROKE_PAINT, p);
+	}
+
+	/**
+	 * Add a command that sets the fill alpha.
+	 */
+	public void addFillAlpha(float a)
+	{
+		addFloat(OP_FILL_ALPHA, a);
+	}
+
+	/**
+	 * Add a command that sets the stroke alpha.
+	 */
+	public void addStrokeAlpha(float a)
+	{
+		addFloat(OP_STROKE_ALPHA, a);
+	}
+
+	/**
+	 * Add a command that draws an image.
+	 */
+	public synchronized void addImage(PDFImage image)
+	{
+		// images are drawn into the unit square
+		addObject(OP_IMAGE, image, this.ctm, 0, 0, 1, 1);
+	}
+
+	/**
+	 * Add a command that draws a path or changes the clip.
+	 */
+	public synchronized void addShape(PDFShapeCmd shape)
+	{
+		XYRectFloat bounds = shape.getBounds();
+		int style = shape.getStyle();
+		if((style & PDFShapeCmd.CLIP) != 0 || bounds == null)
+		{
+			// changing the clip changes the graphics state, so it can't be skipped
+			addObject(OP_SHAPE, shape);
+			return;
+		}
+		float grow = 0;
+		if((style & PDFShapeCmd.STROKE) != 0)
+		{
+			// allow for the stroke, including any miter joins
+			grow = Math.abs(this.lineWidth) * Math.max(this.miterLimit, 1) / 2;
+		}
+		addObject(OP_SHAPE, shape, this.ctm, (float)bounds.x - grow, (float)bounds.y - grow, (float)(bounds.x + bounds.width) + grow,
+				(float)(bounds.y + bounds.height) + grow);
+	}
+
+	/**
+	 * Add a command that fills a glyph.
+	 * @param outline The glyph's outline, shared by every use of the glyph. It must not be changed once it has been added.
+	 * @param bounds The bounds of the outline.
+	 * @param at The transform from the outline's space to user space.
+	 */
+	public synchronized void addGlyph(Geometry outline, XYRectFloat bounds, AffineTransform at)
+	{
+		Data d = reserve(6, 1);
+		int index = this.objectCount++;
+		d.objects[index] = outline;
+		d.objectFloats[index] = putTransform(d, at);
+
+		AffineTransform gt = this.glyphTransform;
+		gt.set(this.ctm);
+		gt.concatenate(at);
+		setBounds(d, index, gt, (float)bounds.x, (float)bounds.y, (float)(bounds.x + bounds.width), (float)(bounds.y + bounds.height));
+		add(d, OP_GLYPH, index);
+	}
+
+	/**
+	 * Put a transform in the floats, the room must already be reserved.
+	 * @return The index of the first float.
+	 */
+	private int putTransform(Data d, AffineTransform at)
+	{
+		int index = this.floatCount;
+		float[] mat = this.matrix;
+		at.getArray(mat);
+		float[] floats = d.floats;
+		floats[index] = mat[0];
+		floats[index + 1] = mat[1];
+		floats[index + 2] = mat[3];
+		floats[index + 3] = mat[4];
+		floats[index + 4] = mat[6];
+		floats[index + 5] = mat[7];
+		this.floatCount += 6;
+		return index;
+	}
+
+	/**
+	 * Add a command. The commands the list knows about are packed like those added with the other add methods, anything else is kept as is.
+	 */
+	public void addCommand(PDFCmd cmd)
+	{
+		if(cmd instanceof PDFPushCmd)
+		{
+			addPush();
+		}
+		else if(cmd instanceof PDFPopCmd)
+		{
+			addPop();
+		}
+		else if(cmd instanceof PDFXformCmd)
+		{
+			addXform(((PDFXformCmd)cmd).at);
+		}
+		else if(cmd instanceof PDFChangeStrokeCmd)
+		{
+			addStroke((PDFChangeStrokeCmd)cmd);
+		}
+		else if(cmd instanceof PDFFillPaintCmd)
+		{
+			addFillPaint(((PDFFillPaintCmd)cmd).p);
+		}
+		else if(cmd instanceof PDFStrokePaintCmd)
+		{
+			addStrokePaint(((PDFStrokePaintCmd)cmd).p);
+		}
+		else if(cmd instanceof PDFFillAlphaCmd)
+		{
+			addFillAlpha(((PDFFillAlphaCmd)cmd).a);
+		}
+		else if(cmd instanceof PDFStrokeAlphaCmd)
+		{
+			addStrokeAlpha(((PDFStrokeAlphaCmd)cmd).a);
+		}
+		else if(cmd instanceof PDFImageCmd)
+		{
+			addImage(((PDFImageCmd)cmd).image);
+		}
+		else if(cmd instanceof PDFShapeCmd)
+		{
+			addShape((PDFShapeCmd)cmd);
+		}
+		else
+		{
+			if(cmd == null)
+			{
+				throw new NullPointerException();
+			}
+			addObject(OP_CMD, cmd);
+		}
+	}
+
+	/**
+	 * Add all the commands of another list to the end of this one. The objects of the other list are shared, not copied. The bounds of the
+	 * other list are relative to its own page space, so they are transformed by the current transform of this list.
+	 */
+	public synchronized void addAll(PDFDisplayList list)
+	{
+		AffineTransform at = this.ctm;
+		// the count has to be read first, the arrays are always published before it
+		int len = list.count;
+		Data src = list.data;
+		for(int i = 0; i < len; i++)
+		{
+			byte op = src.ops[i];
+			int arg = src.args[i];
+			switch(op)
+			{
+				case OP_XFORM:
+				{
+					Data d = reserve(6, 0);
+					int index = this.floatCount;
+					System.arraycopy(src.floats, arg, d.floats, index, 6);
+					this.floatCount += 6;
+					add(d, op, index);
+					break;
+				}
+				case OP_FILL_ALPHA:
+				case OP_STROKE_ALPHA:
+					addFloat(op, src.floats[arg]);
+					break;
+				case OP_PUSH:
+				case OP_POP:
+					add(reserve(0, 0), op, 0);
+					break;
+				case OP_STROKE:
+					// the bounds of the other list already allow for its strokes
+					addObject(op, intern((PDFChangeStrokeCmd)src.objects[arg]));
+					break;
+				case OP_GLYPH:
+				{
+					Data d = reserve(6, 1);
+					int index = this.objectCount++;
+					d.objects[index] = src.objects[arg];
+					d.objectFloats[index] = this.floatCount;
+					System.arraycopy(src.floats, src.objectFloats[arg], d.floats, this.floatCount, 6);
+					this.floatCount += 6;
+					float[] bounds = src.objectBounds;
+					int b = arg * 4;
+					setBounds(d, index, at, bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+					add(d, op, index);
+					break;
+				}
+				default:
+				{
+					int b = arg * 4;
+					float[] bounds = src.objectBounds;
+					if((op == OP_SHAPE || op == OP_IMAGE) && !Float.isNaN(bounds[b]))
+					{
+						addObject(op, src.objects[arg], at, bounds[b], bounds[b + 1], bounds[b + 2], bounds[b + 3]);
+					}
+					else
+					{
+						addObject(op, src.objects[arg]);
+					}
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove all the commands.
+	 */
+	public synchronized void clear()
+	{
+		this.count = 0;
+		this.data = new Data(INITIAL_SIZE, INITIAL_SIZE, INITIAL_SIZE);
+		this.floatCount = this.objectCount = 0;
+		this.strokes.clear();
+		resetState();
+	}
+
+	/**
+	 * Find the next command that has to be executed to draw a region of the page. Commands that change the graphics state are always
+	 * executed, commands that draw are skipped if they are entirely outside the region.
+	 * @param index The index of the first command to look at.
+	 * @param end The number of commands to look through, no more then {@link #size()}.
+	 * @param region The region being drawn in page space, or <code>null</code> if the whole page is being drawn.
+	 * @param state The renderer, which is told if a shape was skipped so it doesn't try to join the next shape to it.
+	 * @return The index of the next command to execute, or <code>end</code> if there are no more.
+	 */
+	public int nextVisible(int index, int end, XYRectFloat region, PDFRenderer state)
+	{
+		if(region == null)
+		{
+			return index;
+		}
+		Data d = this.data;
+		float minX = (float)region.x;
+		float minY = (float)region.y;
+		float maxX = (float)(region.x + region.width);
+		float maxY = (float)(region.y + region.height);
+		boolean skipped = false;
+		while(index < end)
+		{
+			if((index % BLOCK_SIZE) == 0 && index + BLOCK_SIZE <= end)
+			{
+				// the whole block has been added, so its bounds won't change
+				int block = index / BLOCK_SIZE;
+				if(!d.blockState[block] && !intersects(d.blockBounds, block * 4, minX, minY, maxX, maxY))
+				{
+					index += BLOCK_SIZE;
+					skipped = true;
+					continue;
+				}
+			}
+			byte op = d.ops[index];
+			if(isDrawing(op))
+			{
+				int b = d.args[index] * 4;
+				if(!Float.isNaN(d.objectBounds[b]) && !intersects(d.objectBounds, b, minX, minY, maxX, maxY))
+				{
+					index++;
+					skipped = true;
+					continue;
+				}
+			}
+			break;
+		}
+		if(skipped)
+		{
+			state.setLastShape(null);
+		}
+		return index;
+	}
+
+	private static boolean intersects(float[] bounds, int b, float minX, float minY, float maxX, float maxY)
+	{
+		return bounds[b] <= maxX && bounds[b + 2] >= minX && bounds[b + 1] <= maxY && bounds[b + 3] >= minY;
+	}
+
+	/**
+	 * Execute a command.
+	 * @param index The index of the command, less then {@link #size()}.
+	 * @param state The renderer to execute the command with.
+	 * @return The region made dirty by the command, or <code>null</code> if no region was touched.
+	 */
+	public XYRectFloat execute(int index, PDFRenderer state)
+	{
+		Data d = this.data;
+		int arg = d.args[index];
+		switch(d.ops[index])
+		{
+			case OP_PUSH:
+				state.push();
+				return null;
+			case OP_POP:
+				state.pop();
+				return null;
+			case OP_XFORM:
+				state.transform(d.floats, arg);
+				return null;
+			case OP_STROKE:
+				return ((PDFChangeStrokeCmd)d.objects[arg]).execute(state);
+			case OP_FILL_PAINT:
+				state.setFillPaint((PDFPaint)d.objects[arg]);
+				return null;
+			case OP_STROKE_PAINT:
+				state.setStrokePaint((PDFPaint)d.objects[arg]);
+				return null;
+			case OP_FILL_ALPHA:
+				state.setFillAlpha(d.floats[arg]);
+				return null;
+			case OP_STROKE_ALPHA:
+				state.setStrokeAlpha(d.floats[arg]);
+				return null;
+			case OP_IMAGE:
+				return state.drawImage((PDFImage)d.objects[arg]);
+			case OP_GLYPH:
+				return state.fillInstance((Geometry)d.objects[arg], d.floats, d.objectFloats[arg]);
+			default:
+				// shapes and any other commands
+				return ((PDFCmd)d.objects[arg]).execute(state);
+		}
+	}
+
+	/**
+	 * Get a command as a PDFCmd. Packed commands are unpacked into a new PDFCmd each time, so renderers should use
+	 * {@link #execute(int, PDFRenderer)} instead.
+	 * @param index The index of the command, less then {@link #size()}.
+	 */
+	public PDFCmd getCommand(int index)
+	{
+		Data d = this.data;
+		int arg = d.args[index];
+		switch(d.ops[index])
+		{
+			case OP_PUSH:
+				return new PDFPushCmd();
+			case OP_POP:
+				return new PDFPopCmd();
+			case OP_XFORM:
+			{
+				float[] floats = d.floats;
+				return new PDFXformCmd(new AffineTransform(floats[arg], floats[arg + 1], floats[arg + 2], floats[arg + 3], floats[arg + 4], floats[arg + 5]));
+			}
+			case OP_FILL_PAINT:
+				return new PDFFillPaintCmd((PDFPaint)d.objects[arg]);
+			case OP_STROKE_PAINT:
+				return new PDFStrokePaintCmd((PDFPaint)d.objects[arg]);
+			case OP_FILL_ALPHA:
+				return new PDFFillAlphaCmd(d.floats[arg]);
+			case OP_STROKE_ALPHA:
+				return new PDFStrokeAlphaCmd(d.floats[arg]);
+			case OP_IMAGE:
+				return new PDFImageCmd((PDFImage)d.objects[arg]);
+			case OP_GLYPH:
+			{
+				float[] floats = d.floats;
+				int f = d.objectFloats[arg];
+				AffineTransform at = new AffineTransform(floats[f], floats[f + 1], floats[f + 2], floats[f + 3], floats[f + 4], floats[f + 5]);
+				return new PDFShapeCmd(((Geometry)d.objects[arg]).createTransformedShape(at), PDFShapeCmd.FILL);
+			}
+			default:
+				// shapes and stroke changes are never changed, so they can be returned as is
+				return (PDFCmd)d.objects[arg];
+		}
+	}
+}
@@ -46,8 +46,13 @@ import com.sun.pdfview.decrypt.PDFDecrypter;
 import com.sun.pdfview.decrypt.PDFDecrypterFactory;
 import com.sun.pdfview.decrypt.PDFPassword;
 import com.sun.pdfview.decrypt.UnsupportedEncryptionException;
+import com.sun.pdfview.helper.ByteBufferSource;
+import com.sun.pdfview.helper.DebugLog;
 import com.sun.pdfview.helper.PDFUtil;
+import com.sun.pdfview.helper.RandomAccessSource;
+import com.sun.pdfview.helper.SeekableInputSource;
 import com.sun.pdfview.helper.SoftReference;
+import com.sun.pdfview.helper.SourceBuffer;
 import com.sun.pdfview.helper.XYRectFloat;
 
 import net.rim.device.api.ui.XYRect;
@@ -68,6 +73,8 @@ public class PDFFile
 {
 	public final static int NUL_CHAR = 0;
     public final static int FF_CHAR = 12;
+    /** the default number of pages either side of the current one to prefetch */
+    public final static int DEFAULT_PREFETCH_DISTANCE = 2;
     
     private String versionString = "1.1";
     private int majorVersion = 1;
@@ -76,14 +83,18 @@ public class PDFFile
     /** the comment text to begin the file to determine it's version */
     private static String VERSION_COMMENT = "%PDF-";
     /**
-     * A ByteBuffer containing the file data
+     * The source the file data is read from
      */
-    ByteBuffer fileBuf;
+    private RandomAccessSource source;
+    /**
+     * A cursor over the file data
+     */
+    SourceBuffer fileBuf;
     /**
      * the cross reference table mapping object numbers to locations
      * in the PDF file
      */
-    PDFXrefEntry[] xrefEntries;
+    PDFXrefTable xrefTable;
     /** the root PDFObject, as specified in the PDF file */
     PDFObject root = null;
     /** the Encrypt PDFObject, from the trailer */
@@ -94,6 +105,39 @@ public class PDFFile
     
     /** a mapping of page numbers to parsed PDF commands */
     Cache cache;
+    /** the pages started by prefetch() that haven't been asked for since */
+    private Vector prefetched = new Vector();
+    /** the page the last prefetch was run for, or 0 */
+    private int prefetchPage;
+    /** the page, distance, width and height prefetch() was last called with */
+    private int[] prefetchArgs = new int[4];
+    /** runs the last prefetch asked for, so the caller isn't held up reading the file */
+    private Runnable prefetchTask = new Runnable()
+    {
+        public void run()
+        {
+            int pagenum, distance, width, height;
+            synchronized (prefetchArgs)
+            {
+                pagenum = prefetchArgs[0];
+                distance = prefetchArgs[1];
+                width = prefetchArgs[2];
+                height = prefetchArgs[3];
+            }
+            if (pagenum > 0)
+            {
+                prefetchPages(pagenum, distance, width, height);
+            }
+        }
+    };
+    /** the index of the page tree, created the first time a page is needed */
+    private PDFPageIndex pageIndex;
+    /** the objects parsed out of recently used object streams */
+    private ObjStmCache objStmCache = new ObjStmCache(ObjStmCache.DEFAULT_BUDGET);
+    /** idle cursors over the file, used when dereferencing objects */
+    private Vector cursors = new Vector();
+    /** the most idle cursors to hold on to */
+    private static final int MAX_IDLE_CURSORS = 4;
     /**
      * whether the file is printable or not (trailer -> Encrypt -> P & 0x4)
      */
@@ -167,8 +211,6 @@ public class PDFFile
     	//TODO: If a native SoftReference is created then how should references be cleaned up? Maybe it will automatically get cleaned up when all references are removed.
     }
     
-    //TODO: Add support for InputStream but make sure that if it is something like a input stream from a HTTP request that the file can be read in sections and doesn't need full, instant loads.
-    
     /**
      * Get a PDFFile from a .pdf file.
      * <p>
@@ -205,13 +247,89 @@ public class PDFFile
      */
     public PDFFile(ByteBuffer buf, PDFPassword password) throws IOException
     {
-        this.fileBuf = buf;
-        
+        this(new ByteBufferSource(buf), password);
+    }
+
+    /**
+     * Get a PDFFile from a random-access source, such as a file opened
+     * with a {@link SeekableInputSource}. Only the cross reference tables
+     * are read when the file is opened, objects and streams are read from
+     * the source when they are needed. The source must stay open until
+     * {@link #close()} is called.
+     * <p>
+     * Use the getPage(...) methods to get a page from the PDF file.
+     * @param source the source containing the PDF.
+     * @throws IOException if there's a problem reading from the source
+     * @throws PDFParseException if the document appears to be malformed, or
+     *  its features are unsupported.
+     * @throws PDFAuthenticationFailureException if the file is password
+     *  protected and requires a password
+     */
+    public PDFFile(RandomAccessSource source) throws IOException
+    {
+    	this(source, null);
+    }
+
+    /**
+     * Get a PDFFile from a random-access source, such as a file opened
+     * with a {@link SeekableInputSource}. Only the cross reference tables
+     * are read when the file is opened, objects and streams are read from
+     * the source when they are needed. The source must stay open until
+     * {@link #close()} is called.
+     * <p>
+     * Use the getPage(...) methods to get a page from the PDF file.
+     * @param source the source containing the PDF.
+     * @param password the user or owner password
+     * @throws IOException if there's a problem reading from the source
+     * @throws PDFParseException if the document appears to be malformed, or
+     *  its features are unsupported. If the file is encrypted in a manner that
+     *  the product or platform does not support then the exception's {@link
+     *  PDFParseException#getCause() cause} will be an instance of {@link
+     *  UnsupportedEncryptionException}.
+     * @throws PDFAuthenticationFailureException if the file is password
+     *  protected and the supplied password does not decrypt the document
+     */
+    public PDFFile(RandomAccessSource source, PDFPassword password) throws IOException
+    {
+    	this.source = source;
+    	this.fileBuf = new SourceBuffer(source);
+    	this.xrefTable = new PDFXrefTable(source);
+
         cache = new Cache();
-        
+
         parseFile(password);
     }
-    
+
+    /**
+     * Close the source the PDF is read from. No more objects can be read
+     * from the file after this is called, though pages that have already
+     * been parsed can still be rendered.
+     * @throws IOException if the source can't be closed
+     */
+    public void close() throws IOException
+    {
+        // nothing should read the source once it's closed
+        synchronized (prefetchArgs)
+        {
+            prefetchArgs[0] = 0;
+        }
+        Scheduler.getDefault().cancel(prefetchTask);
+        cache.stopAll();
+    	objStmCache.clear();
+    	GlyphCache.getDefault().clear();
+    	source.close();
+    }
+
+    /**
+     * Get the cache of pages and rendered images of this file.  Its
+     * budget can be changed to suit the device, and the displayed page
+     * can be pinned so it isn't evicted.
+     */
+    public Cache getCache()
+    {
+        return cache;
+    }
+
     /**
      * Gets whether the owner of the file has given permission to print
      * the file.
@@ -249,7 +367,7 @@ public class PDFFile
     {
         try
         {
-            return root.getDictRef("Pages").getDictRef("Count").getIntValue();
+            return getPageIndex().getPageCount();
         }
         catch (Exception ioe)
         {
@@ -300,22 +418,19 @@ public class PDFFile
      * Used internally to track down PDFObject references.  You should never
      * need to call this.
      * <p>
-     * Since this is the only public method for tracking down PDF objects,
-     * it is synchronized.  This means that the PDFFile can only hunt down
-     * one object at a time, preventing the file's location from getting
-     * messed around.
-     * <p>
-     * This call stores the current buffer position before any changes are made
-     * and restores it afterwards, so callers need not know that the position
-     * has changed.
+     * Each call reads with its own cursor over the file, so any number of
+     * threads can hunt down different objects at the same time without
+     * moving the file's location. If two threads ask for the same object,
+     * the second waits for the first to finish reading it, so an object is
+     * only ever parsed once.
      *
      */
-    public synchronized PDFObject dereference(PDFXref ref, PDFDecrypter decrypter) throws IOException
+    public PDFObject dereference(PDFXref ref, PDFDecrypter decrypter) throws IOException
     {
         int id = ref.getObjectNumber();
         
         // make sure the id is valid and has been read
-        if (id >= xrefEntries.length || id < 0)
+        if (id >= xrefTable.size() || id < 0)
         {
             return PDFObject.nullObj;
         }
@@ -323,100 +438,183 @@ public class PDFFile
         // if there is an entry, make sure that it can resolve to the
         // requested generation number and that it's not a free entry; if
         // so, we should return the null object
-        final PDFXrefEntry entry = xrefEntries[id];
-        if (entry == null || !entry.resolves(ref))
+        if (!xrefTable.resolves(ref))
         {
             return PDFObject.nullObj;
         }
         
-        // check to see if this is already dereferenced
-        PDFObject obj = entry.getObject();
+        // check to see if this is already dereferenced, or wait for
+        // another thread that is reading it
+        PDFObject obj = xrefTable.claimObject(id);
         if (obj != null)
         {
             return obj;
         }
         
-        switch (entry.getType())
+        try
+        {
+            obj = readEntry(ref, decrypter);
+        }
+        finally
+        {
+            // store the object (if any) and wake anyone waiting for it
+            xrefTable.releaseObject(id, obj);
+        }
+        return obj;
+    }
+    
+    /**
+     * Read the object for an entry in the xref table. The caller must have
+     * claimed the entry.
+     */
+    private PDFObject readEntry(PDFXref ref, PDFDecrypter decrypter) throws IOException
+    {
+        int id = ref.getObjectNumber();
+        PDFObject obj;
+        switch (xrefTable.getType(id))
         {
-	        case PDFXrefEntry.TYPE_OBJ_IN_BODY:
-	            int loc = entry.getOffset();
+	        case PDFXrefTable.TYPE_OBJ_IN_BODY:
+	            int loc = xrefTable.getOffset(id);
 		        if (loc < 0)
 		        {
 		            return PDFObject.nullObj;
 		        }
 		        
-		        // store the current position in the buffer
-		        int startPos = fileBuf.position();
-		        
-		        // move to where this object is
-		        fileBuf.position(loc);
-		        
-		        // read the object and cache the reference
-		        obj = readObject(fileBuf, ref.getObjectNumber(), ref.getGeneration(), decrypter);
+		        // use a cursor of our own so fileBuf and other threads
+		        // are left where they are
+		        SourceBuffer buf = takeCursor();
+		        try
+		        {
+		            // move to where this object is
+		            buf.position(loc);
+		            
+		            // read the object
+		            obj = readObject(buf, ref.getObjectNumber(), ref.getGeneration(), decrypter);
+		        }
+		        finally
+		        {
+		            returnCursor(buf);
+		        }
 		        if (obj == null)
 		        {
 		            obj = PDFObject.nullObj;
 		        }
-		        
-		        entry.setObject(obj);
-		        
-		        // reset to the previous position
-		        fileBuf.position(startPos);
-		        
 		        return obj;
-	        case PDFXrefEntry.TYPE_OBJ_IN_STREAM:
-	        	final PDFObject stream = dereference(entry.getStream(), getDefaultDecrypter());
-	            if (stream == null || stream.getType() != PDFObject.STREAM || !"ObjStm".equals(stream.getDictRef("Type").getStringValue()))
-	            {
-	                throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_NOT_STREAM_BUT_REF_AS, new Object[]{new Integer(entry.getStream().getObjectNumber())}));
-	            }
-	            
-	            final ByteBuffer streamBuf = stream.getStreamBuffer();
-	            
-	            final PDFXrefEntry streamSourceEntry = xrefEntries[entry.getStream().getObjectNumber()];
-	            int[] offsets = streamSourceEntry.getObjectIndexOffsets();
-	            if (offsets == null)
+	        case PDFXrefTable.TYPE_OBJ_IN_STREAM:
+	            final int streamNum = xrefTable.getStreamNumber(id);
+	            PDFObject[] objects = objStmCache.get(streamNum);
+	            if (objects == null)
 	            {
-	                offsets = new int[((PDFObject)stream.getDictionary().get("N")).getIntValue()];
-	                int first = ((PDFObject)stream.getDictionary().get("First")).getIntValue();
-	                for (int i = 0; i < offsets.length; ++i)
-	                {
-	                    // we don't need the object number
-	                    final PDFObject objNum = readObject(streamBuf, -1, -1, IdentityDecrypter.getInstance());
-	                    // add in the initial offset represented by First here
-	                    offsets[i] = first + readObject(streamBuf, -1, -1, IdentityDecrypter.getInstance()).getIntValue();
-	                }
-	                streamSourceEntry.setObjectIndexOffsets(offsets);
+	                objects = readObjectStream(streamNum);
 	            }
 	            
-	            if (entry.getOffset() < 0 || entry.getOffset() >= offsets.length)
+	            final int index = xrefTable.getOffset(id);
+	            if (index < 0 || index >= objects.length)
 	            {
 	                throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_XREF_INDEX_NOT_IN_STREAM));
 	            }
-	            
-	            streamBuf.position(offsets[entry.getOffset()]);
-	            // According to the PDF spec:
-	            //  "Any strings that are inside streams such as content streams
-	            //  and compressed object streams, which themselves are
-	            //  encrypted"
-	            // So, we figure out whether the containing stream was
-	            // encrypted or not; unfortunately, we don't have this
-	            // cached anywhere. If the stream was encrypted, we make
-	            // sure we don't attempt to decrypt any strings within.
-	            obj= readObject(streamBuf, ref.getObjectNumber(), ref.getGeneration(), PDFDecoder.isEncrypted(stream) ? IdentityDecrypter.getInstance() : getDefaultDecrypter());
-	            if (obj == null)
-	            {
-	                obj = PDFObject.nullObj;
-	            }
-	            
-	            entry.setObject(obj);
-	            return obj;
-	        case PDFXrefEntry.TYPE_FREE:
+	            return objects[index];
+	        case PDFXrefTable.TYPE_FREE:
 	        	// this case should in practice be covered by the
-                // call to entry.resolves() above
+                // call to xrefTable.resolves() above
                 return PDFObject.nullObj;
 	        default:
-                throw new UnsupportedOperationException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_UNK_XREF_TYPE, new Object[]{new Integer(entry.getType())}));
+                throw new UnsupportedOperationException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_UNK_XREF_TYPE, new Object[]{new Integer(xrefTable.getType(id))}));
+        }
+    }
+    
+    /**
+     * Decode an object stream and parse every object in it, in one pass,
+     * into the object stream cache.
+     * @param streamNum the object number of the object stream
+     * @return the objects in the stream, in the order they are stored
+     */
+    private PDFObject[] readObjectStream(int streamNum) throws IOException
+    {
+        final PDFObject stream = dereference(new PDFXref(streamNum, 0), getDefaultDecrypter());
+        if (stream == null || stream.getType() != PDFObject.STREAM || !"ObjStm".equals(stream.getDictRef("Type").getStringValue()))
+        {
+            throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_NOT_STREAM_BUT_REF_AS, new Object[]{new Integer(streamNum)}));
+        }
+        
+        synchronized (stream)
+        {
+            // another thread may have just read it
+            PDFObject[] objects = objStmCache.get(streamNum);
+            if (objects != null)
+            {
+                return objects;
+            }
+            
+            final ByteBuffer streamData = stream.getStreamBuffer();
+            final SourceBuffer streamBuf = new SourceBuffer(new ByteBufferSource(streamData));
+            
+            final int count = ((PDFObject)stream.getDictionary().get("N")).getIntValue();
+            final int first = ((PDFObject)stream.getDictionary().get("First")).getIntValue();
+            final int[] objNums = new int[count];
+            final int[] offsets = new int[count];
+            for (int i = 0; i < count; ++i)
+            {
+                objNums[i] = readObject(streamBuf, -1, -1, IdentityDecrypter.getInstance()).getIntValue();
+                // add in the initial offset represented by First here
+                offsets[i] = first + readObject(streamBuf, -1, -1, IdentityDecrypter.getInstance()).getIntValue();
+            }
+            
+            // According to the PDF spec:
+            //  "Any strings that are inside streams such as content streams
+            //  and compressed object streams, which themselves are
+            //  encrypted"
+            // So, we figure out whether the containing stream was
+            // encrypted or not; unfortunately, we don't have this
+            // cached anywhere. If the stream was encrypted, we make
+            // sure we don't attempt to decrypt any strings within.
+            final PDFDecrypter decrypter = PDFDecoder.isEncrypted(stream) ? IdentityDecrypter.getInstance() : getDefaultDecrypter();
+            objects = new PDFObject[count];
+            for (int i = 0; i < count; ++i)
+            {
+                streamBuf.position(offsets[i]);
+                PDFObject obj = readObject(streamBuf, objNums[i], 0, decrypter);
+                objects[i] = obj == null ? PDFObject.nullObj : obj;
+            }
+            
+            objStmCache.put(streamNum, objects, streamData.limit());
+            
+            // everything has been parsed out of it, the decoded data
+            // isn't needed anymore
+            stream.clearDecodedStream();
+            return objects;
+        }
+    }
+    
+    /**
+     * Get a cursor over the file that no other thread is using.
+     */
+    private SourceBuffer takeCursor()
+    {
+        synchronized (cursors)
+        {
+            int count = cursors.size();
+            if (count > 0)
+            {
+                SourceBuffer buf = (SourceBuffer)cursors.elementAt(count - 1);
+                cursors.removeElementAt(count - 1);
+                return buf;
+            }
+        }
+        return fileBuf.duplicate();
+    }
+    
+    /**
+     * Return a cursor from {@link #takeCursor()} so it can be reused.
+     */
+    private void returnCursor(SourceBuffer buf)
+    {
+        synchronized (cursors)
+        {
+            if (cursors.size() < MAX_IDLE_CURSORS)
+            {
+                cursors.addElement(buf);
+            }
         }
     }
     
@@ -489,7 +687,7 @@ public class PDFFile
      *  being read; negative only if the objNum is unavailable
      * @param decrypter the decrypter to use
      */
-    private PDFObject readObject(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readObject(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
     	return readObject(buf, objNum, objGen, false, decrypter);
     }
@@ -508,7 +706,7 @@ public class PDFFile
      *  an object reference, and not otherwise)
      * @param decrypter the decrypter to use
      */
-    private PDFObject readObject(ByteBuffer buf, int objNum, int objGen, boolean numscan, PDFDecrypter decrypter) throws IOException
+    private PDFObject readObject(SourceBuffer buf, int objNum, int objGen, boolean numscan, PDFDecrypter decrypter) throws IOException
     {
         // skip whitespace
         int c;
@@ -612,7 +810,7 @@ public class PDFFile
      * @param buf the buffer to read from
      * @return the next non-whitespace character
      */
-    private int nextNonWhitespaceChar(ByteBuffer buf)
+    private int nextNonWhitespaceChar(SourceBuffer buf) throws IOException
     {
         int c;
         while (isWhiteSpace(c = buf.get()));
@@ -624,7 +822,7 @@ public class PDFFile
      * leaving the buffer positioned at non-whitespace
      * @param buf the buffer to read from
      */
-    private void consumeWhitespace(ByteBuffer buf)
+    private void consumeWhitespace(SourceBuffer buf) throws IOException
     {
         nextNonWhitespaceChar(buf);
         buf.position(buf.position() - 1);
@@ -638,7 +836,7 @@ public class PDFFile
      * must be in the file
      * @return true if the next characters match; false otherwise.
      */
-    private boolean nextItemIs(ByteBuffer buf, String match) throws IOException
+    private boolean nextItemIs(SourceBuffer buf, String match) throws IOException
     {
         // skip whitespace
         int c = nextNonWhitespaceChar(buf);
@@ -720,7 +918,7 @@ public class PDFFile
      * @param decrypter the decrypter to use
      * @return the Dictionary as a PDFObject.
      */
-    private PDFObject readDictionary(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readDictionary(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
     	Hashtable hm = new Hashtable();
         // we've already read the <<.  Now get /Name obj pairs until >>
@@ -755,7 +953,7 @@ public class PDFFile
      * [0-9a-fA-F]
      * @param buf the buffer to read from
      */
-    private int readHexDigit(ByteBuffer buf) throws IOException
+    private int readHexDigit(SourceBuffer buf) throws IOException
     {
         int a = nextNonWhitespaceChar(buf);
         switch (a)
@@ -784,7 +982,7 @@ public class PDFFile
      * return its value as if there were an implicit 0 after it.
      * @param buf
      */
-    private int readHexPair(ByteBuffer buf) throws IOException
+    private int readHexPair(SourceBuffer buf) throws IOException
     {
         int first = readHexDigit(buf);
         if (first < 0)
@@ -815,7 +1013,7 @@ public class PDFFile
      *  being read; negative only if the objNum is unavailable
      * @param decrypter the decrypter to use
      */
-    private PDFObject readHexString(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readHexString(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
         // we've already read the <. Now get the hex bytes until >
         int val;
@@ -864,7 +1062,7 @@ public class PDFFile
      *  being read; negative only if the objNum is unavailable
      * @param decrypter the decrypter to use
      */
-    private PDFObject readLiteralString(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readLiteralString(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
         int c;
 
@@ -992,7 +1190,7 @@ public class PDFFile
      * encountered.  If a '\r' is encountered, it is discarded.
      * @param buf the buffer to read from
      */
-    private String readLine(ByteBuffer buf)
+    private String readLine(SourceBuffer buf) throws IOException
     {
         StringBuffer sb = new StringBuffer();
 
@@ -1035,7 +1233,7 @@ public class PDFFile
      *  being read; negative only if the objNum is unavailable
      * @param decrypter the decrypter to use
      */
-    private PDFObject readArray(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readArray(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
         // we've already read the [.  Now read objects until ]
         Vector ary = new Vector();
@@ -1063,7 +1261,7 @@ public class PDFFile
      * read a /name.  The / has already been read.
      * @param buf the buffer to read from
      */
-    private PDFObject readName(ByteBuffer buf) throws IOException
+    private PDFObject readName(SourceBuffer buf) throws IOException
     {
         // we've already read the / that begins the name.
         // all we have to check for is #hh hex notations.
@@ -1098,7 +1296,7 @@ public class PDFFile
      * read a number. The initial digit or . or - is passed in as the
      * argument.
      */
-    private PDFObject readNumber(ByteBuffer buf, char start) throws IOException
+    private PDFObject readNumber(SourceBuffer buf, char start) throws IOException
     {
     	//TODO: Can this be changed to use floats instead of doubles? It's much faster :)
     	
@@ -1149,7 +1347,7 @@ public class PDFFile
      * read a bare keyword.  The initial character is passed in as the
      * argument.
      */
-    private PDFObject readKeyword(ByteBuffer buf, char start) throws IOException
+    private PDFObject readKeyword(SourceBuffer buf, char start) throws IOException
     {
         // we've read the first character (it's passed in as the argument)
         StringBuffer sb = new StringBuffer(String.valueOf(start));
@@ -1172,7 +1370,7 @@ public class PDFFile
      *  the second number in the intro line (0 in "4 0 obj").
      * @param decrypter the decrypter to use
      */
-    private PDFObject readObjectDescription(ByteBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
+    private PDFObject readObjectDescription(SourceBuffer buf, int objNum, int objGen, PDFDecrypter decrypter) throws IOException
     {
         // we've already read the 4 0 obj bit.  Next thing up is the object.
         // object descriptions end with the keyword endobj
@@ -1188,19 +1386,17 @@ public class PDFFile
         {
             // skip until we see \n
             readLine(buf);
-            ByteBuffer data = readStream(buf, obj);
-            if (data == null)
-            {
-                data = ByteBuffer.allocateDirect(0);
-            }
-            obj.setStream(data);
+            readStream(buf, obj);
             endkey= readObject(buf, objNum, objGen, decrypter);
         }
         // at this point, obj is the object, keyword should be "endobj"
         String endcheck = endkey.getStringValue();
         if (endcheck == null || !endcheck.equals("endobj"))
         {
-            System.out.println("WARNING: object at " + debugpos + " didn't end with 'endobj'");
+            if (DebugLog.ENABLED && DebugLog.isLoggable(DebugLog.WARNING))
+            {
+                DebugLog.log("WARNING: object at " + debugpos + " didn't end with 'endobj'", DebugLog.WARNING);
+            }
             //throw new PDFParseException("Object musst end with 'endobj'");
         }
         obj.setObjectId(objNum, objGen);
@@ -1208,14 +1404,16 @@ public class PDFFile
     }
     
     /**
-     * read the stream portion of a PDFObject.  Calls decodeStream to
-     * un-filter the stream as necessary.
+     * read the stream portion of a PDFObject and attach it to the
+     * dictionary. The stream is left encoded; PDFObject decodes it when
+     * it is asked for. If the stream is in a memory buffer then the data
+     * is shared with it, if it is in the file's source then only its
+     * location is recorded and the data is read when it is needed.
      *
      * @param buf the buffer to read from
      * @param dict the dictionary associated with this stream.
-     * @return a ByteBuffer with the encoded stream data
      */
-    private ByteBuffer readStream(ByteBuffer buf, PDFObject dict) throws IOException
+    private void readStream(SourceBuffer buf, PDFObject dict) throws IOException
     {
         // pointer is at the start of a stream.  read the stream and
         // decode, based on the entries in the dictionary
@@ -1230,31 +1428,67 @@ public class PDFFile
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_UNK_LEN));
         }
         
-        // slice the data
         int start = buf.position();
-        ByteBuffer streamBuf = buf.slice();
-        streamBuf.limit(length);
+        RandomAccessSource bufSource = buf.getSource();
+        if (bufSource instanceof ByteBufferSource)
+        {
+        	// slice the data
+        	dict.setStream(((ByteBufferSource)bufSource).slice(buf.getBase() + start, length));
+        }
+        else if (bufSource == source)
+        {
+        	// remember where the data is, it will be read when needed
+        	dict.setStream(buf.getBase() + start, length);
+        }
+        else
+        {
+        	byte[] data = new byte[length];
+        	buf.get(data);
+        	dict.setStream(ByteBuffer.wrap(data));
+        }
         
         // move the current position to the end of the data
-        buf.position(buf.position() + length);
+        buf.position(start + length);
         int ending = buf.position();
         
         if (!nextItemIs(buf, "endstream"))
         {
-            System.out.println("read " + length + " chars from " + start + " to " + ending);
+            if (DebugLog.ENABLED && DebugLog.isLoggable(DebugLog.WARNING))
+            {
+                DebugLog.log("read " + length + " chars from " + start + " to " + ending, DebugLog.WARNING);
+            }
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_EOS));
         }
-        
-        return streamBuf;
-        // now decode stream
-        // return PDFDecoder.decodeStream(dict, streamBuf);
+    }
+    
+    /**
+     * Read the encoded data of a stream whose location was recorded by
+     * readStream.
+     * @param offset the offset of the stream data in the file
+     * @param length the length of the stream data
+     * @return a buffer containing the encoded stream data
+     */
+    ByteBuffer readRawStream(int offset, int length) throws IOException
+    {
+    	byte[] data = new byte[length];
+    	int total = 0;
+    	while (total < length)
+    	{
+    		int r = source.read(offset + total, data, total, length - total);
+    		if (r < 0)
+    		{
+    			throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_EOS));
+    		}
+    		total += r;
+    	}
+    	return ByteBuffer.wrap(data);
     }
     
     /**
      * read the cross reference table from a PDF file.  When this method
      * is called, the file pointer must point to the start of an xref table
      * (i.e., to the start of the "xref" keyword) or an xref stream object.
-     * Reads the xref entries and populate xrefEntries. Also reads the
+     * Records the xref sections in xrefTable. Also reads the
      * trailer/xref stream dictionary to set root, fileIdentifier and encryption
      * parameters. If /Prev entries are present, proceeds to read previous
      * trailers and xrefs, too.
@@ -1365,47 +1599,16 @@ public class PDFFile
             }
             int numEntries = sizeObj.getIntValue();
             
-            final int lastObjNum = objNumStart + numEntries;
-            ensureXrefEntriesCapacity(lastObjNum + 1);
-            
             consumeWhitespace(fileBuf);
             
-            // read entry lines
+            // only record where the entries are, each is read when the
+            // object is first dereferenced. If an earlier section has an
+            // entry for the same object number then it came from a later
+            // incremental update and will take precedence.
+            xrefTable.addTableSection(objNumStart, numEntries, fileBuf.position());
             
-            final byte[] refline = new byte[20];
-            for (int objNum = objNumStart; objNum < lastObjNum; objNum++)
-            {
-                // each reference line is 20 bytes long
-                fileBuf.get(refline);
-                
-                // if xrefEntries already contains an entry for this
-                // object number then we've earlier read a xref
-                // for this object number from a later incremental
-                // upgrade
-                if (xrefEntries[objNum] == null)
-                {
-                    PDFXrefEntry entry;
-                    final byte entryType = refline[17];
-                    if (entryType == 'n')
-                    {
-                        // active entry
-                        int offset = Integer.parseInt(new String(refline, 0, 10));
-                        int generation = Integer.parseInt(new String(refline, 11, 5));
-                        final PDFXref ref = new PDFXref(objNum, generation);
-                        entry = PDFXrefEntry.toBodyObject(generation, offset);
-                    }
-                    else if (entryType == 'f')
-                    {
-                        // freed entry
-                        entry = PDFXrefEntry.forFreedObject();
-                    }
-                    else
-                    {
-                        throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_UNK_XREF_ENTRY_TYPE, new Object[]{new Integer(entryType & 0xFF)}));
-                    }
-                    xrefEntries[objNum] = entry;
-                }
-            }
+            // each reference line is 20 bytes long
+            fileBuf.position(fileBuf.position() + numEntries * 20);
         }
 
         // at this point, the "trailer" word (not EOL) has been read, hopefully!
@@ -1528,7 +1731,7 @@ public class PDFFile
         }
         
         final int size = xrefStream.getDictRef("Size").getIntValue();
-        ensureXrefEntriesCapacity(size);
+        xrefTable.ensureSize(size);
         final PDFObject[] wObjs = xrefStream.getDictRef("W").getArray();
         final int[] fieldLengths = new int[3];
         int entryLength = 0;
@@ -1549,80 +1752,20 @@ public class PDFFile
             index = new PDFObject[]{new PDFObject(new Integer(0)), new PDFObject(new Integer(size))};             
         }
         
-        final ByteBuffer table = xrefStream.getStreamBuffer();
+        // only record where each subsection starts in the decoded stream,
+        // the entries are read when their objects are first dereferenced
+        int offset = 0;
         for (int i = 0; i < index.length; i += 2)
         {
             final int start = index[i].getIntValue();
-            final int end = start + index[i + 1].getIntValue();
-            for (int objNum = start; objNum < end; ++objNum)
-            {
-                if (xrefEntries[objNum] == null)
-                {
-                    int type;
-                    if (fieldLengths[0] == 0)
-                    {
-                        type = PDFXrefEntry.TYPE_OBJ_IN_BODY;
-                    }
-                    else
-                    {
-                        type = PDFXrefEntry.forTypeField(readInt(table, fieldLengths[0]));
-                    }
-                    int field2  = readInt(table, fieldLengths[1]);
-                    // note that this is supposed to default to 0 if field 3
-                    // length is 0 for type 1 entries, and that will work just fine
-                    int field3  = readInt(table, fieldLengths[2]);
-                    xrefEntries[objNum] = PDFXrefEntry.makeXrefStreamEntry(type, field2, field3);
-                }
-                else
-                {
-                    table.position(table.position() + entryLength);
-                }
-            }
+            final int count = index[i + 1].getIntValue();
+            xrefTable.addStreamSection(start, count, xrefStream, offset, fieldLengths);
+            offset += count * entryLength;
         }
         
         return processTrailerDict(xrefStream, true, followPrev);
     }
     
-    /**
-     * Read an numBytes-bytes big-endian unsigned int from a table
-     * @param table the table to read from
-     * @param numBytes the number of bytes to read
-     * @return the integer read; 0 if numBytes is 0
-     */
-    private int readInt(ByteBuffer table, int numBytes)
-    {
-        int val = 0;
-        while (numBytes-- > 0)
-        {
-            final int b = table.get() & 0xFF;
-            val = (val << 8) | b;
-        }
-        return val;
-    }
-    
-    /**
-     * Ensure that the xrefEntries table will support a given number of
-     * objects from 0-size. If we were to read the Size entry from a
-     * cross reference table before processing cross reference tables
-     * then we could immediately set it to the correct size, but until we
-     * do so, we'll just have to resize every now and then, though for
-     * most documents, no resizes should be required.
-     * @param size the required size of the xref table (i.e., the maximum
-     *  object number plus 1)
-     */
-    private void ensureXrefEntriesCapacity(int size)
-    {
-        if (xrefEntries == null || xrefEntries.length < size)
-        {
-            final PDFXrefEntry[] newXrefEntries = new PDFXrefEntry[size];
-            if (xrefEntries != null)
-            {
-                System.arraycopy(xrefEntries, 0, newXrefEntries, 0, xrefEntries.length);
-            }
-            xrefEntries = newXrefEntries;
-        }
-    }
-    
     /**
      * build the PDFFile reference table.  Nothing in the PDFFile actually
      * gets parsed, despite the name of this function.  Things only get
@@ -1685,7 +1828,7 @@ public class PDFFile
      * @param scanToken the token to scan for
      * @return whether the token was found
      */
-    private boolean backscan(ByteBuffer buf, String scanToken) {
+    private boolean backscan(SourceBuffer buf, String scanToken) throws IOException {
 
         byte[] scanbuf = new byte[32];
         if (scanToken.length() * 2 > scanbuf.length)
@@ -1839,41 +1982,38 @@ public class PDFFile
             return 0;
         }
         
-        int count = 0;
-        while (true)
+        return getPageIndex().getPageNumber(page);
+    }
+    
+    /**
+     * Get the Page dictionary for a given page, without parsing it. The page
+     * tree is indexed as it is searched, so finding any page only costs a
+     * few lookups once the Pages nodes above it have been read.
+     *
+     * @param pagenum the number of the page, from 1 to getNumPages()
+     * @return the Page dictionary or <code>null</code> if there is no
+     * such page
+     */
+    public PDFObject getPageObject(int pagenum) throws IOException
+    {
+        PDFPageIndex.Node node = getPageIndex().getPage(pagenum);
+        return node == null ? null : node.getDict();
+    }
+    
+    /**
+     * Get the index of the page tree, creating it if needed.
+     */
+    private synchronized PDFPageIndex getPageIndex() throws IOException
+    {
+        if (pageIndex == null)
         {
-            PDFObject parent = page.getDictRef("Parent");
-            if (parent == null)
-            {
-                break;
-            }
-            PDFObject kids[] = parent.getDictRef("Kids").getArray();
-            for (int i = 0; i < kids.length; i++)
-            {
-                if (kids[i].equals(page))
-                {
-                    break;
-                }
-                else
-                {
-                    PDFObject kcount = kids[i].getDictRef("Count");
-                    if (kcount != null)
-                    {
-                        count += kcount.getIntValue();
-                    }
-                    else
-                    {
-                        count += 1;
-                    }
-                }
-            }
-            page = parent;
+            pageIndex = new PDFPageIndex(root.getDictRef("Pages"));
         }
-        return count;
+        return pageIndex;
     }
     
     /**
-     * Get the page commands for a given page in a separate thread.
+     * Get the page commands for a given page in the background.
      *
      * @param pagenum the number of the page to get commands for
      */
@@ -1889,46 +2029,64 @@ public class PDFFile
      * @param wait if true, do not exit until the page is complete.
      */
     public PDFPage getPage(int pagenum, boolean wait)
+    {
+        return getPage(pagenum, wait, Scheduler.PRIORITY_VISIBLE);
+    }
+    
+    /**
+     * Get the page commands for a given page.
+     *
+     * @param pagenum the number of the page to get commands for
+     * @param wait if true, do not exit until the page is complete.
+     * @param priority the priority to parse and render the page with in
+     * the background, one of the Scheduler priorities.  A page that is
+     * already in the cache is only ever raised to this priority, use
+     * setPagePriority() to lower it.
+     */
+    public PDFPage getPage(int pagenum, boolean wait, int priority)
     {
         Integer key = new Integer(pagenum);
-        Hashtable resources = null;
-        PDFObject pageObj = null;
         //boolean needread = false;
         
         PDFPage page = cache.getPage(key);
         PDFParser parser = cache.getPageParser(key);
+        boolean created = page == null;
         if (page == null)
         {
             try
             {
                 // hunt down the page!
-                resources = new Hashtable();
-                
-                PDFObject topPagesObj = root.getDictRef("Pages");
-                pageObj = findPage(topPagesObj, 0, pagenum, resources);
-                
-                if (pageObj == null)
+                PDFPageIndex.Node pageNode = getPageIndex().getPage(pagenum);
+                if (pageNode == null)
                 {
                     return null;
                 }
                 
-                page = createPage(pagenum, pageObj);
+                page = createPage(pagenum, pageNode);
+                page.setPriority(priority);
                 
-                byte[] stream = getContents(pageObj);
-                parser = new PDFParser(page, stream, resources);
+                InputStream contents = getContents(pageNode.getDict());
+                parser = new PDFParser(page, contents, pageNode.getResources());
                 
                 cache.addPage(key, page, parser);
             }
             catch (IOException ioe)
             {
-                System.out.println("GetPage inner loop:");
-                ioe.printStackTrace();
+                if (DebugLog.ENABLED && DebugLog.isLoggable(DebugLog.WARNING))
+                {
+                    DebugLog.log("GetPage inner loop:", DebugLog.WARNING);
+                    ioe.printStackTrace();
+                }
                 return null;
             }
         }
         
         if (parser != null && !parser.isFinished())
         {
+            if (created || parser.getPriority() < priority)
+            {
+                parser.setPriority(priority);
+            }
             parser.go(wait);
         }
         
@@ -1936,93 +2094,218 @@ public class PDFFile
     }
     
     /**
-     * Stop the rendering of a particular image on this page
+     * Change the priority of the work for a page, so the page being shown
+     * isn't held up by pages the user has moved away from.  Nothing is
+     * done if the page isn't in the cache.
+     *
+     * @param pagenum the number of the page
+     * @param priority one of the Scheduler priorities
      */
-    public void stop(int pageNum)
+    public void setPagePriority(int pagenum, int priority)
     {
-        PDFParser parser = cache.getPageParser(new Integer(pageNum));
+        Integer key = new Integer(pagenum);
+        PDFParser parser = cache.getPageParser(key);
         if (parser != null)
         {
-            // stop it
-            parser.stop();
+            parser.setPriority(priority);
+        }
+        PDFPage page = cache.getPage(key);
+        if (page != null)
+        {
+            page.setPriority(priority);
         }
     }
     
     /**
-     * get the stream representing the content of a particular page.
+     * Start parsing, and optionally rendering, the pages around the one
+     * being shown in the background, so they are ready when the user moves
+     * to them.  The page after the current one, in the direction the user
+     * is moving, is started first.  Pages that were being prefetched but
+     * are no longer near the current page are stopped, unless something
+     * else has asked for them since.  Nothing more is started once the
+     * cache is full, so prefetching never evicts pages that are in use.
+     * <p>
+     * The work is queued on the Scheduler at PRIORITY_PREFETCH, so this
+     * returns straight away.  Only the last prefetch asked for is run.
      *
-     * @param pageObj the page object to get the contents of
-     * @return a concatenation of any content streams for the requested
-     * page.
+     * @param pagenum the number of the page being shown
+     * @param distance how many pages either side of the current one to
+     *        prefetch
+     * @param width the width to render the pages at, or 0 to only parse them
+     * @param height the height to render the pages at, or 0 to only parse
+     *        them
      */
-    private byte[] getContents(PDFObject pageObj) throws IOException
+    public void prefetch(int pagenum, int distance, int width, int height)
     {
-        // concatenate all the streams
-        PDFObject contentsObj = pageObj.getDictRef("Contents");
-        if (contentsObj == null)
+        synchronized (prefetchArgs)
         {
-            throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_NO_CONTENTS));
+            prefetchArgs[0] = pagenum;
+            prefetchArgs[1] = distance;
+            prefetchArgs[2] = width;
+            prefetchArgs[3] = height;
         }
+        Scheduler.getDefault().schedule(prefetchTask, Scheduler.PRIORITY_PREFETCH);
+    }
+    
+    /**
+     * Do the work of prefetch(), on the Scheduler.
+     */
+    private void prefetchPages(int pagenum, int distance, int width, int height)
+    {
+        int numPages = getNumPages();
+        int direction = pagenum < prefetchPage ? -1 : 1;
+        prefetchPage = pagenum;
         
-        PDFObject[] contents = contentsObj.getArray();
-        
-        // see if we have only one stream (the easy case)
-        if (contents.length == 1)
+        // the pages wanted, nearest first
+        Vector wanted = new Vector();
+        for (int i = 1; i <= distance; i++)
         {
-            return contents[0].getStream();
+            int ahead = pagenum + i * direction;
+            int behind = pagenum - i * direction;
+            if (ahead >= 1 && ahead <= numPages)
+            {
+                wanted.addElement(new Integer(ahead));
+            }
+            if (behind >= 1 && behind <= numPages)
+            {
+                wanted.addElement(new Integer(behind));
+            }
         }
         
-        // first get the total length of all the streams
-        int len = 0;
-        int c;
-        byte[][] streams = new byte[c = contents.length][];
-        for (int i = 0; i < c; i++)
+        synchronized (prefetched)
         {
-        	streams[i] = contents[i].getStream();
-            if (streams[i] == null)
+            // stop the work that is no longer wanted
+            for (int i = prefetched.size() - 1; i >= 0; i--)
+            {
+                Integer key = (Integer)prefetched.elementAt(i);
+                if (!wanted.contains(key))
+                {
+                    prefetched.removeElementAt(i);
+                    if (key.intValue() != pagenum)
+                    {
+                        cancelPrefetch(key);
+                    }
+                }
+            }
+            
+            int len = wanted.size();
+            for (int i = 0; i < len; i++)
             {
-                throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_NO_STREAM, new Object[]{new Integer(i), contents[i].toString()}));
+                if (!cache.hasRoom(0, 0))
+                {
+                    break;
+                }
+                Integer key = (Integer)wanted.elementAt(i);
+                int priority = Math.abs(key.intValue() - pagenum) == 1 ? Scheduler.PRIORITY_ADJACENT : Scheduler.PRIORITY_PREFETCH;
+                boolean started = cache.getPage(key) == null;
+                PDFPage page = getPage(key.intValue(), false, priority);
+                if (page == null)
+                {
+                    continue;
+                }
+                if (started && !prefetched.contains(key))
+                {
+                    prefetched.addElement(key);
+                }
+                if (width > 0 && height > 0 && cache.hasRoom(width, height))
+                {
+                    page.setPriority(priority);
+                    page.renderTiles(width, height, 0, 0, width, height, true, false);
+                }
             }
-            len += streams[i].length;
+        }
+    }
+    
+    /**
+     * Stop prefetching a page.  The page is only stopped if nothing has
+     * asked for it at a higher priority since it was prefetched, and is
+     * removed from the cache so it is started again the next time it is
+     * needed.
+     */
+    private void cancelPrefetch(Integer key)
+    {
+        PDFParser parser = cache.getPageParser(key);
+        if (parser != null && parser.getPriority() > Scheduler.PRIORITY_ADJACENT)
+        {
+            return;
+        }
+        PDFPage page = cache.getPage(key);
+        if (page != null && page.getPriority() > Scheduler.PRIORITY_ADJACENT)
+        {
+            return;
         }
         
-        // now assemble them all into one object
-        byte[] stream = new byte[len];
-        len = 0;
-        for (int i = 0; i < c; i++)
+        if (parser != null && !parser.isFinished())
+        {
+            parser.stop();
+            cache.removePage(key);
+        }
+        else if (page != null)
+        {
+            // the page is parsed, so keep it and only drop its images
+            page.stopRenderers();
+            cache.removePage(key);
+            cache.addPage(key, page);
+        }
+    }
+    
+    /**
+     * Stop the rendering of a particular image on this page
+     */
+    public void stop(int pageNum)
+    {
+        PDFParser parser = cache.getPageParser(new Integer(pageNum));
+        if (parser != null)
+        {
+            // stop it
+            parser.stop();
+        }
+    }
+    
+    /**
+     * get the stream representing the content of a particular page.
+     *
+     * @param pageObj the page object to get the contents of
+     * @return a stream reading any content streams for the requested
+     * page one after another.  Each content stream is only decoded
+     * as the parser reaches it.
+     */
+    private InputStream getContents(PDFObject pageObj) throws IOException
+    {
+        PDFObject contentsObj = pageObj.getDictRef("Contents");
+        if (contentsObj == null)
         {
-            System.arraycopy(streams[i], 0, stream, len, streams[i].length);
-            len += streams[i].length;
+            throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_NO_CONTENTS));
         }
         
-        return stream;
+        return new ContentsInputStream(contentsObj.getArray());
     }
 
     /**
      * Create a PDF Page object by finding the relevant inherited
      * properties
      *
-     * @param pageObj the PDF object for the page to be created
+     * @param pageNode the page tree node for the page to be created
      */
-    private PDFPage createPage(int pagenum, PDFObject pageObj) throws IOException
+    private PDFPage createPage(int pagenum, PDFPageIndex.Node pageNode) throws IOException
     {
         int rotation = 0;
         XYRectFloat mediabox = null; // second choice, if no crop
         XYRectFloat cropbox = null;  // first choice
         
-        PDFObject mediaboxObj = getInheritedValue(pageObj, "MediaBox");
+        PDFObject mediaboxObj = pageNode.getMediaBox();
         if (mediaboxObj != null)
         {
             mediabox = parseNormalisedRectangle(mediaboxObj);
         }
         
-        PDFObject cropboxObj = getInheritedValue(pageObj, "CropBox");
+        PDFObject cropboxObj = pageNode.getCropBox();
         if (cropboxObj != null)
         {
             cropbox = parseNormalisedRectangle(cropboxObj);
         }
         
-        PDFObject rotateObj = getInheritedValue(pageObj, "Rotate");
+        PDFObject rotateObj = pageNode.getRotate();
         if (rotateObj != null)
         {
             rotation = rotateObj.getIntValue();
@@ -2033,91 +2316,6 @@ public class PDFFile
         return new PDFPage(pagenum, bbox, rotation, cache);
     }
     
-    /**
-     * Get the PDFObject representing the content of a particular page. Note
-     * that the number of the page need not have anything to do with the
-     * label on that page.  If there are two blank pages, and then roman
-     * numerals for the page number, then passing in 6 will get page (iv).
-     *
-     * @param pagedict the top of the pages tree
-     * @param start the page number of the first page in this dictionary
-     * @param getPage the number of the page to find; NOT the page's label.
-     * @param resources a HashMap that will be filled with any resource
-     *                  definitions encountered on the search for the page
-     */
-    private PDFObject findPage(PDFObject pagedict, int start, int getPage, Hashtable resources) throws IOException
-    {
-        PDFObject rsrcObj = pagedict.getDictRef("Resources");
-        if (rsrcObj != null)
-        {
-        	PDFUtil.Hashtable_putAll(resources, rsrcObj.getDictionary());
-        }
-        
-        PDFObject typeObj = pagedict.getDictRef("Type");
-        if (typeObj != null && typeObj.getStringValue().equals("Page"))
-        {
-            // we found our page!
-            return pagedict;
-        }
-        
-        // find the first child for which (start + count) > getPage
-        PDFObject kidsObj = pagedict.getDictRef("Kids");
-        if (kidsObj != null)
-        {
-            PDFObject[] kids = kidsObj.getArray();
-            int len = kids.length;
-            for (int i = 0; i < len; i++)
-            {
-                int count = 1;
-                // BUG: some PDFs (T1Format.pdf) don't have the Type tag.
-                // use the Count tag to indicate a Pages dictionary instead.
-                PDFObject countItem = kids[i].getDictRef("Count");
-                //                if (kids[i].getDictRef("Type").getStringValue().equals("Pages")) {
-                if (countItem != null)
-                {
-                    count = countItem.getIntValue();
-                }
-                
-                if (start + count >= getPage)
-                {
-                    return findPage(kids[i], start, getPage, resources);
-                }
-                
-                start += count;
-            }
-        }
-        
-        return null;
-    }
-    
-    /**
-     * Find a property value in a page that may be inherited.  If the value
-     * is not defined in the page itself, follow the page's "parent" links
-     * until the value is found or the top of the tree is reached.
-     *
-     * @param pageObj the object representing the page
-     * @param propName the name of the property we are looking for
-     */
-    private PDFObject getInheritedValue(PDFObject pageObj, String propName) throws IOException
-    {
-        // see if we have the property
-        PDFObject propObj = pageObj.getDictRef(propName);
-        if (propObj != null)
-        {
-            return propObj;
-        }
-        
-        // recursively see if any of our parent have it
-        PDFObject parentObj = pageObj.getDictRef("Parent");
-        if (parentObj != null)
-        {
-            return getInheritedValue(parentObj, propName);
-        }
-        
-        // no luck
-        return null;
-    }
-    
     public static XYRectFloat parseNormalisedRectangle(PDFObject obj) throws IOException
     {
     	if (obj != null)
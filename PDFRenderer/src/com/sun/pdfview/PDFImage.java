@@ -51,6 +51,7 @@
 package com.sun.pdfview;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Enumeration;
 import java.util.Hashtable;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
@@ -164,6 +165,27 @@ public class PDFImage
         return argbVals;
     }
     
+    /**
+     * A decoded piece of an image, possibly at a reduced size
+     */
+    static final class Decoded
+    {
+        /** the decoded pixels */
+        Bitmap image;
+        /** the part of the image that was decoded, in image pixels */
+        int x0, y0, x1, y1;
+        /** how many image pixels, in each direction, a decoded pixel covers */
+        int step;
+        
+        /**
+         * Determine if a part of the image, in image pixels, was decoded
+         */
+        boolean contains(int x0, int y0, int x1, int y1)
+        {
+            return x0 >= this.x0 && y0 >= this.y0 && x1 <= this.x1 && y1 <= this.y1;
+        }
+    }
+    
     /** color key mask. Array of start/end pairs of ranges of color components to
      *  mask out. If a component falls within any of the ranges it is clear. */
     private int[] colorKeyMask = null;
@@ -341,66 +363,410 @@ public class PDFImage
      *
      * @return a buffered image containing the decoded image data
      */
-    public Bitmap getImage()
+    public synchronized Bitmap getImage()
+    {
+        Decoded decoded = getDecoded(1, 0, 0, width, height);
+        return decoded == null ? null : decoded.image;
+    }
+    
+    /**
+     * Get the image that this PDFImage generates, at a reduced size if it
+     * will be drawn smaller then its full size.  The image returned is at
+     * least as big as the given size, unless the image itself is smaller.
+     *
+     * @param width the width the image will be drawn at, in pixels
+     * @param height the height the image will be drawn at, in pixels
+     * @return a buffered image containing the decoded image data
+     */
+    public synchronized Bitmap getImage(int width, int height)
+    {
+        float scale = Math.max((float)width / this.width, (float)height / this.height);
+        Decoded decoded = getDecoded(getStep(scale), 0, 0, this.width, this.height);
+        return decoded == null ? null : decoded.image;
+    }
+    
+    /**
+     * Get how many image pixels each decoded pixel should cover, in each
+     * direction, for an image drawn at the given scale.  Steps are powers of
+     * two so drawing the image at about the same size finds the same decoded
+     * image.
+     *
+     * @param scale the number of pixels each image pixel is drawn as
+     */
+    static int getStep(float scale)
+    {
+        int step = 1;
+        while (step < 1 << 16 && step * 2 * scale <= 1)
+        {
+            step *= 2;
+        }
+        return step;
+    }
+    
+    /**
+     * Get part of the image, decoded at a reduced size.  Decoded images are
+     * cached by step, in the document's {@link ImageCache} so every page that
+     * draws the image shares them, and the whole image is decoded unless that
+     * would take too much memory, in which case only the part asked for is.
+     *
+     * @param step how many image pixels, in each direction, a decoded pixel
+     * should cover
+     * @param x0 the left of the part of the image needed, in image pixels
+     * @param y0 the top of the part of the image needed
+     * @param x1 the right of the part of the image needed
+     * @param y1 the bottom of the part of the image needed
+     * @return the decoded part of the image, which may be bigger then the
+     * part asked for, or null if the image can't be decoded
+     */
+    synchronized Decoded getDecoded(int step, int x0, int y0, int x1, int y1)
     {
         try
         {
-        	Bitmap bi = (Bitmap)imageObj.getCache();
-        	
+            Decoded decoded = findDecoded(step);
+            if (decoded == null || !decoded.contains(x0, y0, x1, y1))
+            {
+                decoded = decode(step, x0, y0, x1, y1);
+                if (decoded == null)
+                {
+                    return null;
+                }
+                keepDecoded(step, decoded);
+            }
+            return decoded;
+        }
+        catch (IOException ioe)
+        {
+            System.out.println("Error reading image");
+            ioe.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Get the document's cache of decoded images, or null if this image
+     * isn't a numbered object of a document, such as an inline image
+     */
+    private ImageCache getImageCache() throws IOException
+    {
+        PDFObject obj = imageObj.dereference();
+        PDFFile owner = obj.getOwner();
+        if (owner == null || owner.getCache() == null || obj.getObjNum() < 0)
+        {
+            return null;
+        }
+        return owner.getCache().getImageCache();
+    }
+    
+    /**
+     * Find the image decoded at a step
+     *
+     * @return the decoded image, or null if it isn't cached
+     */
+    private Decoded findDecoded(int step) throws IOException
+    {
+        ImageCache imageCache = getImageCache();
+        if (imageCache != null)
+        {
+            PDFObject obj = imageObj.dereference();
+            return imageCache.get(obj.getObjNum(), obj.getObjGen(), step);
+        }
+        
+        // images that aren't in the document are cached on themselves
+        Hashtable decodedImages = (Hashtable)imageObj.getCache();
+        return decodedImages == null ? null : (Decoded)decodedImages.get(new Integer(step));
+    }
+    
+    /**
+     * Cache an image decoded at a step
+     */
+    private void keepDecoded(int step, Decoded decoded) throws IOException
+    {
+        ImageCache imageCache = getImageCache();
+        if (imageCache != null)
+        {
+            PDFObject obj = imageObj.dereference();
+            imageCache.put(obj.getObjNum(), obj.getObjGen(), step, decoded);
+            return;
+        }
+        
+        Hashtable decodedImages = (Hashtable)imageObj.getCache();
+        if (decodedImages == null)
+        {
+            decodedImages = new Hashtable();
+            imageObj.setCache(decodedImages);
+        }
+        decodedImages.put(new Integer(step), decoded);
+    }
+    
+    /**
+     * Decode part of the image at a reduced size
+     *
+     * @see #getDecoded(int, int, int, int, int)
+     */
+    private Decoded decode(int step, int x0, int y0, int x1, int y1) throws IOException
+    {
+        Decoded decoded = new Decoded();
+        decoded.step = step;
+        
+        // the most pixels decoded for a reduced size image before it is
+        // cropped to the part that will be drawn, so it fits in the cache
+        ImageCache imageCache = getImageCache();
+        int maxPixels = imageCache == null ? ImageCache.DEFAULT_MAX_PIXELS : imageCache.getMaxPixels();
+        
+        int w = (width + step - 1) / step;
+        int h = (height + step - 1) / step;
+        if (w * h <= maxPixels)
+        {
+            // the whole image is small enough to keep
+            x0 = 0;
+            y0 = 0;
+            x1 = width;
+            y1 = height;
+        }
+        else
+        {
+            // only decode the part that will be drawn, lined up with the
+            // steps so it doesn't move as different parts are asked for
+            x0 = Math.max(x0 - x0 % step, 0);
+            y0 = Math.max(y0 - y0 % step, 0);
+            x1 = Math.min(x1, width);
+            y1 = Math.min(y1, height);
+            if (x1 <= x0 || y1 <= y0)
+            {
+                return null;
+            }
+        }
+        decoded.x0 = x0;
+        decoded.y0 = y0;
+        decoded.x1 = x1;
+        decoded.y1 = y1;
+        
+        if (step == 1 && x0 == 0 && y0 == 0 && x1 == width && y1 == height)
+        {
+            decoded.image = readImage();
+        }
+        else
+        {
+            w = (x1 - x0 + step - 1) / step;
+            h = (y1 - y0 + step - 1) / step;
+            int[] argb = new int[w * h];
+            boolean alpha = sampleArgb(argb, width, height, x0, y0, step, w, h);
+            
+            // add in the alpha data supplied by the SMask, if any
+            PDFImage sMaskImage = getSMask();
+            if (sMaskImage != null)
+            {
+                int[] maskArray = new int[w * h];
+                sMaskImage.sampleArgb(maskArray, width, height, x0, y0, step, w, h);
+                int len = argb.length;
+                for (int i = 0; i < len; i++)
+                {
+                    argb[i] = ((maskArray[i] & 0xff) << 24) | (argb[i] & 0xFFFFFF);
+                }
+                alpha = true;
+            }
+            
+            decoded.image = createBitmap(argb, w, h, alpha);
+        }
+        return decoded.image == null ? null : decoded;
+    }
+    
+    /**
+     * Read and decode the whole image at full size
+     */
+    private Bitmap readImage() throws IOException
+    {
+        byte[] data = null;
+        ByteBuffer jpegBytes = null;
+        final boolean jpegDecode = PDFDecoder.isLastFilter(imageObj, PDFDecoder.DCT_FILTERS);
+        if (jpegDecode)
+        {
+            // if we're lucky, the stream will have just the DCT
+            // filter applied to it, and we'll have a reference to
+            // an underlying mapped file, so we'll manage to avoid
+            // a copy of the encoded JPEG bytes
+            jpegBytes = imageObj.getStreamBuffer(PDFDecoder.DCT_FILTERS);
+        }
+        else
+        {
+            data = imageObj.getStream();
+        }
+        // parse the stream data into an actual image
+        Bitmap bi = parseData(data, jpegBytes);
+        /* //XX X Disable when done
+        if(bi != null)
+        {
+        	EncodedImage ei = net.rim.device.api.system.PNGEncodedImage.encode(bi);
+        	try
+        	{
+        		javax.microedition.io.file.FileConnection file = (javax.microedition.io.file.FileConnection)javax.microedition.io.Connector.open("file:///SDCard/BlackBerry/pictures/" + ei.hashCode() + ".png", javax.microedition.io.Connector.READ_WRITE);
+        		if(file.exists())
+        		{
+        			file.truncate(0);
+        		}
+        		else
+        		{
+        			file.create();
+        		}
+        		java.io.OutputStream out = file.openOutputStream();
+        		out.write(ei.getData());
+        		out.close();
+        		file.close();
+        	}
+        	catch(Exception e)
+        	{
+        	}
+        }
+        //*/
+        return bi;
+    }
+    
+    /**
+     * Decode a grid of pixels from the image without converting more of it
+     * then is needed.  Pixel (i, j) of the grid is taken from the middle of
+     * the step by step block at (x0 + i * step, y0 + j * step) of an image
+     * refWidth by refHeight pixels, which is either this image or the image
+     * this one is the mask of.  Where possible only one row of the image is
+     * held at a time.
+     *
+     * @param argb the array to put the pixels in
+     * @param ow the width of the grid
+     * @param oh the height of the grid
+     * @return if the pixels have alpha
+     */
+    private boolean sampleArgb(int[] argb, int refWidth, int refHeight, int x0, int y0, int step, int ow, int oh) throws IOException
+    {
+        int[] cols = new int[ow];
+        for (int i = 0; i < ow; i++)
+        {
+            cols[i] = Math.min((x0 + i * step + step / 2) * width / refWidth, width - 1);
+        }
+        
+        int bpc = getBitsPerComponent();
+        InputStream in = null;
+        if ((bpc == 1 || bpc == 2 || bpc == 4 || bpc == 8) && !PDFDecoder.isLastFilter(imageObj, PDFDecoder.DCT_FILTERS))
+        {
+            in = imageObj.openStream();
+        }
+        
+        if (in == null)
+        {
+            // decode the image, as small as it can be, and sample that
+            Bitmap bi;
+            if (PDFDecoder.isLastFilter(imageObj, PDFDecoder.DCT_FILTERS))
+            {
+                int tw = Math.min((refWidth + step - 1) / step, width);
+                int th = Math.min((refHeight + step - 1) / step, height);
+                bi = loadImage(null, imageObj.getStreamBuffer(PDFDecoder.DCT_FILTERS), tw, th);
+            }
+            else
+            {
+                bi = loadImage(imageObj.getStream(), null, width, height);
+            }
             if (bi == null)
             {
-            	byte[] data = null;
-                ByteBuffer jpegBytes = null;
-                final boolean jpegDecode = PDFDecoder.isLastFilter(imageObj, PDFDecoder.DCT_FILTERS);
-                if (jpegDecode)
+                return false;
+            }
+            
+            int bw = bi.getWidth();
+            int bh = bi.getHeight();
+            int[] row = new int[bw];
+            for (int j = 0, o = 0; j < oh; j++)
+            {
+                int y = Math.min((y0 + j * step + step / 2) * height / refHeight, height - 1);
+                bi.getARGB(row, 0, bw, 0, y * bh / height, bw, 1);
+                for (int i = 0; i < ow; i++)
                 {
-                    // if we're lucky, the stream will have just the DCT
-                    // filter applied to it, and we'll have a reference to
-                    // an underlying mapped file, so we'll manage to avoid
-                    // a copy of the encoded JPEG bytes
-                    jpegBytes = imageObj.getStreamBuffer(PDFDecoder.DCT_FILTERS);
+                    argb[o++] = row[cols[i] * bw / width];
                 }
-                else
+            }
+            return bi.hasAlpha();
+        }
+        
+        try
+        {
+            int comps = getColorSpace().getNumComponents();
+            int rowBytes = (width * comps * bpc + 7) / 8;
+            byte[] row = new byte[rowBytes];
+            byte[] samples = new byte[ow * oh * comps];
+            int mask = (1 << bpc) - 1;
+            int rowY = -1;
+            for (int j = 0, s = 0; j < oh; j++)
+            {
+                // skip to the row this one is sampled from
+                int y = Math.min((y0 + j * step + step / 2) * height / refHeight, height - 1);
+                while (rowY < y)
                 {
-                    data = imageObj.getStream();
+                    if (readFully(in, row) < rowBytes)
+                    {
+                        // a short stream repeats the last of its data
+                        rowY = height;
+                        break;
+                    }
+                    rowY++;
+                }
+                
+                // unpack the samples of the pixels that are used
+                for (int i = 0; i < ow; i++)
+                {
+                    int bit = cols[i] * comps * bpc;
+                    for (int c = 0; c < comps; c++, bit += bpc)
+                    {
+                        samples[s++] = bpc == 8 ? row[bit >> 3] : (byte)((row[bit >> 3] >> (8 - bpc - (bit & 7))) & mask);
+                    }
                 }
-                // parse the stream data into an actual image
-                bi = parseData(data, jpegBytes);
-                imageObj.setCache(bi);
             }
-            /* //XX X Disable when done
-            if(bi != null)
+            return convertData(samples, samples.length, argb, ow, oh, false);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+    
+    /**
+     * Read from a stream until a buffer is full
+     *
+     * @return the number of bytes read, less then the length of the buffer
+     * only at the end of the stream
+     */
+    private static int readFully(InputStream in, byte[] b) throws IOException
+    {
+        int total = 0;
+        while (total < b.length)
+        {
+            int read = in.read(b, total, b.length - total);
+            if (read < 0)
             {
-            	EncodedImage ei = net.rim.device.api.system.PNGEncodedImage.encode(bi);
-            	try
-            	{
-            		javax.microedition.io.file.FileConnection file = (javax.microedition.io.file.FileConnection)javax.microedition.io.Connector.open("file:///SDCard/BlackBerry/pictures/" + ei.hashCode() + ".png", javax.microedition.io.Connector.READ_WRITE);
-            		if(file.exists())
-            		{
-            			file.truncate(0);
-            		}
-            		else
-            		{
-            			file.create();
-            		}
-            		java.io.OutputStream out = file.openOutputStream();
-            		out.write(ei.getData());
-            		out.close();
-            		file.close();
-            	}
-            	catch(Exception e)
-            	{
-            	}
+                break;
             }
-            //*/
-            return bi;
+            total += read;
         }
-        catch (IOException ioe)
+        return total;
+    }
+    
+    /**
+     * Create a Bitmap from ARGB data
+     */
+    private static Bitmap createBitmap(int[] argb, int width, int height, boolean alpha)
+    {
+//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
+        Bitmap bi = new Bitmap(Bitmap.ROWWISE_16BIT_COLOR, width, height);
+//#else
+        Bitmap bi = new Bitmap(Bitmap.ROWWISE_32BIT_XRGB8888, width, height);
+//#endif
+        if (alpha)
         {
-            System.out.println("Error reading image");
-            ioe.printStackTrace();
-            return null;
+//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
+            bi.createAlpha(Bitmap.ALPHA_BITDEPTH_8BPP);
+//#else
+            bi.createAlpha();
+//#endif
         }
+        
+        //Set the data
+        bi.setARGB(argb, 0, width, 0, 0, width, height);
+        return bi;
     }
     
     /**
@@ -409,8 +775,9 @@ public class PDFImage
      * called.</p>
      *
      * <p>NOTE: the color convolving is extremely slow on large images.
-     * It would be good to see if it could be moved out into the rendering
-     * phases, where we might be able to scale the image down first.</p>
+     * Images that are drawn smaller then their full size are decoded by
+     * {@link #getDecoded(int, int, int, int, int)} instead, which only
+     * converts the pixels that will be drawn.</p>
      * 
      * @param data the data when already completely filtered and uncompressed
      * @param jpegData a byte buffer if data still requiring the DCDTecode filter
@@ -441,7 +808,7 @@ public class PDFImage
 //    		System.out.flush();
 //    	}
         
-        Bitmap bi = loadImage(data, jpegData);
+        Bitmap bi = loadImage(data, jpegData, getWidth(), getHeight());
         
         // add in the alpha data supplied by the SMask, if any
         PDFImage sMaskImage = getSMask();
@@ -564,6 +931,29 @@ public class PDFImage
         this.bpc = bpc;
     }
     
+    /**
+     * Determine if the image has already been decoded, so getImage() will
+     * return quickly
+     */
+    public boolean isDecoded()
+    {
+        try
+        {
+            ImageCache imageCache = getImageCache();
+            if (imageCache != null)
+            {
+                PDFObject obj = imageObj.dereference();
+                return imageCache.contains(obj.getObjNum(), obj.getObjGen());
+            }
+            Hashtable decodedImages = (Hashtable)imageObj.getCache();
+            return decodedImages != null && !decodedImages.isEmpty();
+        }
+        catch (IOException ioe)
+        {
+            return false;
+        }
+    }
+    
     /**
      * Return whether or not this is an image mask
      */
@@ -623,8 +1013,9 @@ public class PDFImage
     
     /**
      * Refactor part of parseData and consolidate some functions.
+     * JPEGs are decoded at the given size, other images at their full size.
      */
-    private Bitmap loadImage(byte[] data, ByteBuffer jpegData)
+    private Bitmap loadImage(byte[] data, ByteBuffer jpegData, int width, int height)
     {
     	Bitmap bi = null;
     	
@@ -650,7 +1041,7 @@ public class PDFImage
     		{
 	    		in = new ByteBufferInputStream(jpegData);
 	    		EncodedImage ei = EncodedImage.createEncodedImage(IOUtilities.streamToBytes(in), 0, -1, "image/jpeg");
-	    		if(ei.getWidth() == this.width && ei.getHeight() == this.height)
+	    		if(ei.getWidth() == width && ei.getHeight() == height)
 	    		{
 	    			//Image is correct size, return it
 	    			bi = ei.getBitmap();
@@ -658,8 +1049,8 @@ public class PDFImage
 	    		else
 	    		{
 	    			//Image is not the correct size, resize it
-	    			int xScale = Fixed32.div(Fixed32.toFP(ei.getWidth()), Fixed32.toFP(this.width));
-	    			int yScale = Fixed32.div(Fixed32.toFP(ei.getHeight()), Fixed32.toFP(this.height));
+	    			int xScale = Fixed32.div(Fixed32.toFP(ei.getWidth()), Fixed32.toFP(width));
+	    			int yScale = Fixed32.div(Fixed32.toFP(ei.getHeight()), Fixed32.toFP(height));
 	    			ei = ei.scaleImage32(xScale, yScale);
 	    			ei.setDecodeMode(EncodedImage.DECODE_READONLY);
 	    			bi = ei.getBitmap();
@@ -686,23 +1077,8 @@ public class PDFImage
     	else
     	{
     		int[] pixData = new int[getWidth() * getHeight()];
-    		
-//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
-    		bi = new Bitmap(Bitmap.ROWWISE_16BIT_COLOR, getWidth(), getHeight());
-//#else
-    		bi = new Bitmap(Bitmap.ROWWISE_32BIT_XRGB8888, getWidth(), getHeight());
-//#endif
-    		if(readData(data, pixData))
-    		{
-//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
-    			bi.createAlpha(Bitmap.ALPHA_BITDEPTH_8BPP);
-//#else
-    			bi.createAlpha();
-//#endif
-    		}
-    		
-    		//Set the data
-    		bi.setARGB(pixData, 0, getWidth(), 0, 0, getWidth(), getHeight());
+    		boolean alpha = readData(data, pixData);
+    		bi = createBitmap(pixData, getWidth(), getHeight(), alpha);
     	}
     	
     	/*
@@ -848,13 +1224,26 @@ public class PDFImage
      * @return If alpha exists or not.
      */
     private boolean readData(byte[] data, int[] argbData)
+    {
+    	byte[] pdata = preprocessData(data, getColorSpace());
+    	return convertData(pdata, pdata.length, argbData, getWidth(), getHeight(), getBitsPerComponent() == 1);
+    }
+    
+    /**
+     * Convert preprocessed data to A/RGB data.
+     * @param pdata The data to convert, one byte per component.
+     * @param dataLen The number of bytes to convert.
+     * @param argbData The converted data.
+     * @param width The width of the data, in pixels.
+     * @param height The height of the data, in pixels.
+     * @param packed If 1 bit greyscale data is still packed 8 pixels to a byte.
+     * @return If alpha exists or not.
+     */
+    private boolean convertData(byte[] pdata, int dataLen, int[] argbData, int width, int height, boolean packed)
     {
     	PDFColorSpace cs = getColorSpace();
     	boolean alpha = false;
     	
-    	byte[] pdata = preprocessData(data, cs);
-    	int dataLen = pdata.length;
-    	
     	if (cs instanceof IndexedColor)
         {
 			//IndexedColorModel
@@ -959,7 +1348,7 @@ public class PDFImage
                 if (isGreyscale(jcs) && bpc <= 8)
                 {
                 	//Speed up processing
-                	convertGreyscaleToArgb(pdata, argbData);
+                	convertGreyscaleToArgb(pdata, argbData, width, height, packed);
                 }
 //#ifdef FORCE_IMG_DECODE
                 else
@@ -992,7 +1381,7 @@ public class PDFImage
         return aCs.getType() == ColorSpace.TYPE_GRAY;
     }
     
-    private void convertGreyscaleToArgb(byte[] data, int[] argb)
+    private void convertGreyscaleToArgb(byte[] data, int[] argb, final int width, final int height, boolean packed)
     {
     	// we use an optimised greyscale colour conversion, as with scanned
         // greyscale/mono documents consisting of nothing but page-size
@@ -1006,9 +1395,7 @@ public class PDFImage
         // BufferedImages as that takes about 3 times as long.
     	int i = 0;
         final int[] greyToArgbMap = getGreyToArgbMap(bpc, getColorSpace().getColorSpace());
-        final int width = getWidth();
-        final int height = getHeight();
-        if (bpc == 1)
+        if (packed)
         {
             int calculatedLineBytes = (width + 7) / 8;
             int rowStartByteIndex;
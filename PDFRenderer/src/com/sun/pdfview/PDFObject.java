@@ -25,6 +25,7 @@
 package com.sun.pdfview;
 
 import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
@@ -120,6 +121,13 @@ public class PDFObject
     private Object value;
     /** the encoded stream, if this is a STREAM object */
     private ByteBuffer stream;
+    /**
+     * the offset of the encoded stream in the owner's file, if the stream
+     * is read from the file only when needed; -1 otherwise
+     */
+    private int streamOffset = -1;
+    /** the length of the encoded stream in the owner's file */
+    private int streamLength;
     /** a cached version of the decoded stream */
     private SoftReference decodedStream;
     /** The filter limits used to generate the cached decoded stream */
@@ -176,8 +184,7 @@ public class PDFObject
     /**
      * create a new PDFObject that is the closest match to a
      * given Java object.  Possibilities include Double, String,
-     * PDFObject[], HashMap, Boolean, or PDFParser.Tok,
-     * which should be "true" or "false" to turn into a BOOLEAN.
+     * PDFObject[], HashMap, or Boolean.
      *
      * @param obj the sample Java object to convert to a PDFObject.
      * @throws PDFParseException if the object isn't one of the
@@ -218,25 +225,6 @@ public class PDFObject
         {
             this.type = BOOLEAN;
         }
-        else if (obj instanceof PDFParser.Tok)
-        {
-            PDFParser.Tok tok = (PDFParser.Tok)obj;
-            if (tok.name.equals("true"))
-            {
-                this.value = Boolean.TRUE;
-                this.type = BOOLEAN;
-            }
-            else if (tok.name.equals("false"))
-            {
-                this.value = Boolean.FALSE;
-                this.type = BOOLEAN;
-            }
-            else
-            {
-                this.value = tok.name;
-                this.type = NAME;
-            }
-        }
         else
         {
             throw new PDFParseException(com.sun.pdfview.ResourceManager.getResource(com.sun.pdfview.ResourceManager.LOCALIZATION).getFormattedString(com.sun.pdfview.i18n.ResourcesResource.OBJECT_BAD_RAW_TYPE, new Object[]{obj.toString()}));
@@ -279,6 +267,32 @@ public class PDFObject
     {
         this.type = STREAM;
         this.stream = data;
+        this.streamOffset = -1;
+    }
+    
+    /**
+     * set the location of the stream of this object in the owner's file.
+     * The data is read from the file each time it needs to be decoded,
+     * so that it doesn't use memory until it is used. It should have been
+     * a DICTIONARY before the call.
+     * @param offset the offset of the encoded data in the file.
+     * @param length the length of the encoded data.
+     */
+    void setStream(int offset, int length)
+    {
+        this.type = STREAM;
+        this.stream = null;
+        this.streamOffset = offset;
+        this.streamLength = length;
+    }
+    
+    /**
+     * Determine if this object has stream data, either in memory or in
+     * the owner's file.
+     */
+    private boolean hasStreamData()
+    {
+    	return stream != null || (streamOffset >= 0 && owner != null);
     }
 
     /**
@@ -326,11 +340,11 @@ public class PDFObject
         {
             return dereference().getStream(filterLimits);
         }
-        else if (type == STREAM && stream != null)
+        else if (type == STREAM && hasStreamData())
         {
             byte[] data = null;
             
-            synchronized(stream)
+            synchronized(this)
             {
                 // decode
                 ByteBuffer streamBuf = decodeStream(filterLimits);
@@ -401,9 +415,9 @@ public class PDFObject
         {
             return dereference().getStreamBuffer(filterLimits);
         }
-        else if (type == STREAM && stream != null)
+        else if (type == STREAM && hasStreamData())
         {
-            synchronized(stream)
+            synchronized(this)
             {
                 ByteBuffer streamBuf = decodeStream(filterLimits);
                 // ByteBuffer streamBuf = stream;
@@ -449,6 +463,50 @@ public class PDFObject
         return null;
     }
 
+    /**
+     * get the stream from this object as an InputStream, which decodes
+     * the data as it is read instead of all at once.  The decoded data is
+     * not cached, but a cached copy will be used if there is one.  Will
+     * return null if this object isn't a STREAM.
+     * @return the stream, or null, if this isn't a STREAM.
+     */
+    public InputStream openStream() throws IOException
+    {
+        if (type == INDIRECT)
+        {
+            return dereference().openStream();
+        }
+        else if (type == STREAM && hasStreamData())
+        {
+            synchronized(this)
+            {
+                Vector filterLimits = new Vector();
+                if (decodedStream == null || !PDFUtil.Vector_equals(filterLimits, decodedStreamFilterLimits) || decodedStream.get() == null)
+                {
+                    ByteBuffer rawStream;
+                    if (stream == null)
+                    {
+                        rawStream = owner.readRawStream(streamOffset, streamLength);
+                    }
+                    else
+                    {
+                        // read a slice, which starts wherever the data is in
+                        // the underlying buffer, so the shared buffer isn't
+                        // moved while it's read
+                        int pos = stream.position();
+                        stream.rewind();
+                        rawStream = stream.slice();
+                        rawStream.limit(stream.limit());
+                        stream.position(pos);
+                    }
+                    return PDFDecoder.decodeStreamInput(this, rawStream, filterLimits);
+                }
+            }
+        }
+        ByteBuffer buf = getStreamBuffer();
+        return buf == null ? null : new ByteBufferInputStream(buf);
+    }
+
     /**
      * Get the decoded stream value
      */
@@ -465,8 +523,9 @@ public class PDFObject
         // no luck in the cache, do the actual decoding
         if (outStream == null)
         {
-            stream.rewind();
-            outStream = PDFDecoder.decodeStream(this, stream, filterLimits);
+            ByteBuffer rawStream = stream != null ? stream : owner.readRawStream(streamOffset, streamLength);
+            rawStream.rewind();
+            outStream = PDFDecoder.decodeStream(this, rawStream, filterLimits);
             decodedStreamFilterLimits = CloneableVector.clone(filterLimits);
             decodedStream = new SoftReference(outStream);
         }
@@ -474,6 +533,20 @@ public class PDFObject
         return outStream;
     }
     
+    /**
+     * Drop the cached decoded stream, for streams whose data has been
+     * fully consumed and won't be needed again.
+     */
+    synchronized void clearDecodedStream()
+    {
+        if (decodedStream != null)
+        {
+            decodedStream.clear();
+            decodedStream = null;
+            decodedStreamFilterLimits = null;
+        }
+    }
+    
     /**
      * get the value as an int.  Will return 0 if this object
      * isn't a NUMBER.
@@ -744,6 +817,14 @@ public class PDFObject
         this.objGen = objGen;
     }
     
+    /**
+     * Get the PDFFile this object came from, or null if it isn't from one
+     */
+    PDFFile getOwner()
+    {
+        return owner;
+    }
+    
     /**
      * Get the object number of this object; a negative value indicates that
      * the object is not numbered, as it's not a top-level object: if the value
@@ -31,6 +31,7 @@ import java.util.Vector;
 
 import net.rim.device.api.system.Bitmap;
 import net.rim.device.api.ui.Color;
+import net.rim.device.api.ui.Graphics;
 import net.rim.device.api.ui.XYDimension;
 
 import com.sun.pdfview.helper.AffineTransform;
@@ -56,9 +57,13 @@ import com.sun.pdfview.i18n.ResourcesResource;
  */
 public class PDFPage
 {
-	/** the array of commands.  The length of this array will always
-     * be greater than or equal to the actual number of commands. */
-    private Vector commands;
+    /** the width and height of a tile, in pixels */
+    public static final int TILE_SIZE = 256;
+    /** how many times smaller a progressive render's draft is */
+    public static final int DRAFT_SCALE = 4;
+    
+	/** the commands, packed so renderers can read them without locking */
+    private PDFDisplayList commands;
     /** whether this page has been finished.  If true, there will be no
      * more commands added to the cmds list. */
     private boolean finished = false;
@@ -79,6 +84,8 @@ public class PDFPage
     private Cache cache;
     /** a map from image info to weak references to parsers that are active */
     private Hashtable renderers;
+    /** the priority the renderers of this page run with */
+    private int priority = Scheduler.PRIORITY_VISIBLE;
 
     /**
      * create a PDFPage with dimensions in bbox and rotation.
@@ -126,7 +133,7 @@ public class PDFPage
         renderers = PDFUtil.synchronizedTable(new Hashtable());
         
         // initialize the list of commands
-        commands = PDFUtil.synchronizedVector(new Vector(250));
+        commands = new PDFDisplayList();
     }
     
     /**
@@ -209,11 +216,299 @@ public class PDFPage
      * @return an Image that contains the PDF data
      */
     public Bitmap getImage(int width, int height, XYRectFloat clip, boolean drawbg, boolean wait)
+    {
+        return getImage(new ImageInfo(width, height, clip, 0), drawbg, wait);
+    }
+    
+    /**
+     * Get an image of this page in two passes.  A quick, low resolution
+     * draft is rendered first, with small text drawn as boxes, shadings and
+     * patterns drawn as solid colors and images that haven't been decoded
+     * left out.  Then the full image is rendered.  The listener is told as
+     * each pass is ready.  If the full image is already cached, the draft
+     * is skipped.
+     *
+     * This returns straight away; the rendering is done on the scheduler,
+     * at the priority of this page.
+     *
+     * @param width the width of the image to be produced
+     * @param height the height of the image to be produced
+     * @param clip the region in <b>page space</b> of the entire page to
+     *             display
+     * @param drawbg if true, put a white background on the image.  If not,
+     *        draw no color (alpha 0) for the background.
+     * @param listener told when each pass is ready
+     */
+    public void getImageProgressive(final int width, final int height, final XYRectFloat clip, final boolean drawbg, final PageImageListener listener)
+    {
+        Scheduler.getDefault().schedule(new Runnable()
+        {
+            public void run()
+            {
+                ImageInfo info = new ImageInfo(width, height, clip, 0);
+                if (cache == null || cache.getImage(PDFPage.this, info) == null || !isRendered(info))
+                {
+                    Bitmap image = getDraftImage(width, height, clip, drawbg, true);
+                    if (image != null)
+                    {
+                        listener.imageReady(PDFPage.this, image, true);
+                    }
+                }
+                Bitmap image = getImage(info, drawbg, true);
+                if (isRendered(info))
+                {
+                    listener.imageReady(PDFPage.this, image, false);
+                }
+            }
+        }, priority);
+    }
+    
+    /**
+     * Get a quick, low resolution draft of an image of this page.  The
+     * draft is {@link #DRAFT_SCALE} times smaller then the size given, small
+     * text is drawn as boxes, shadings and patterns are drawn as solid
+     * colors and images that haven't been decoded are left out.
+     *
+     * @param width the width of the full image
+     * @param height the height of the full image
+     * @param clip the region in <b>page space</b> of the entire page to
+     *             display
+     * @param drawbg if true, put a white background on the image.  If not,
+     *        draw no color (alpha 0) for the background.
+     * @param wait if true, do not return until the draft is fully rendered.
+     * @return an Image that contains the draft, or null if wait was true
+     *         and the draft was stopped before it finished
+     */
+    public Bitmap getDraftImage(int width, int height, XYRectFloat clip, boolean drawbg, boolean wait)
+    {
+        ImageInfo info = new ImageInfo(Math.max(width / DRAFT_SCALE, 1), Math.max(height / DRAFT_SCALE, 1), clip, 0);
+        info.draft = true;
+        Bitmap image = getImage(info, drawbg, wait);
+        if (wait && !isRendered(info))
+        {
+            return null;
+        }
+        return image;
+    }
+    
+    /**
+     * Determine if an image of this page has finished rendering, rather
+     * then having been stopped
+     */
+    private boolean isRendered(ImageInfo info)
+    {
+        PDFRenderer renderer = getRenderer(info);
+        return renderer == null || renderer.getStatus() == Watchable.COMPLETED;
+    }
+    
+    /**
+     * Get a tile of the image of this page.  The page image is split into
+     * {@link #TILE_SIZE} square tiles, the last row and column of which may
+     * be smaller.  Tiles are cached separately, so when the page is panned
+     * only the tiles that weren't visible before have to be rendered.
+     *
+     * @param width the width of the whole page image
+     * @param height the height of the whole page image
+     * @param tileX the column of the tile
+     * @param tileY the row of the tile
+     * @param drawbg if true, put a white background on the tile.  If not,
+     *        draw no color (alpha 0) for the background.
+     * @param wait if true, do not return until this tile is fully rendered.
+     * @return an Image that contains the tile, or null if there is no such
+     *         tile
+     */
+    public Bitmap getTile(int width, int height, int tileX, int tileY, boolean drawbg, boolean wait)
+    {
+        TileInfo info = createTileInfo(width, height, tileX, tileY);
+        if (info == null)
+        {
+            return null;
+        }
+        return getImage(info, drawbg, wait);
+    }
+    
+    /**
+     * Get a tile of the image of this page, only if it has already been
+     * rendered.  Unlike {@link #getTile(int, int, int, int, boolean, boolean)}
+     * this never starts rendering.
+     *
+     * @return an Image that contains the tile, or null if it isn't cached or
+     *         is still being rendered
+     */
+    public Bitmap getCachedTile(int width, int height, int tileX, int tileY)
+    {
+        if (cache == null)
+        {
+            return null;
+        }
+        TileInfo info = new TileInfo(width, height, tileX, tileY, 0, 0, null);
+        PDFRenderer renderer = cache.getImageRenderer(this, info);
+        if (renderer != null && !renderer.isFinished())
+        {
+            return null;
+        }
+        return cache.getImage(this, info);
+    }
+    
+    /**
+     * Get the number of tiles needed to cover a page image dimension.
+     */
+    public static int getTileCount(int size)
+    {
+        return (size + TILE_SIZE - 1) / TILE_SIZE;
+    }
+    
+    /**
+     * Start rendering the tiles that cover part of the page image.  Each
+     * tile has its own renderer, with its own graphics state and clip, so
+     * the tiles are rendered at the same time by the scheduler's workers.
+     *
+     * @param width the width of the whole page image
+     * @param height the height of the whole page image
+     * @param x the left of the region to render, in pixels
+     * @param y the top of the region to render, in pixels
+     * @param w the width of the region to render, in pixels
+     * @param h the height of the region to render, in pixels
+     * @param drawbg if true, put a white background on the tiles.  If not,
+     *        draw no color (alpha 0) for the background.
+     * @param wait if true, do not return until all the tiles are rendered.
+     */
+    public void renderTiles(int width, int height, int x, int y, int w, int h, boolean drawbg, boolean wait)
+    {
+        int minTileX = Math.max(x, 0) / TILE_SIZE;
+        int minTileY = Math.max(y, 0) / TILE_SIZE;
+        int maxTileX = Math.min(getTileCount(Math.min(x + w, width)), getTileCount(width));
+        int maxTileY = Math.min(getTileCount(Math.min(y + h, height)), getTileCount(height));
+        
+        // start all the tiles before waiting on any of them
+        Vector started = new Vector();
+        for (int tileY = minTileY; tileY < maxTileY; tileY++)
+        {
+            for (int tileX = minTileX; tileX < maxTileX; tileX++)
+            {
+                TileInfo info = createTileInfo(width, height, tileX, tileY);
+                if (info == null)
+                {
+                    continue;
+                }
+                getImage(info, drawbg, false);
+                PDFRenderer renderer = getRenderer(info);
+                if (renderer != null && !renderer.isFinished())
+                {
+                    started.addElement(renderer);
+                }
+            }
+        }
+        
+        if (wait)
+        {
+            for (int i = started.size() - 1; i >= 0; i--)
+            {
+                ((PDFRenderer)started.elementAt(i)).waitForFinish();
+            }
+        }
+    }
+    
+    /**
+     * Get an image of this page, rendered as tiles at the same time and then
+     * put together.  This returns once the image is fully rendered.
+     *
+     * @param width the width of the image to be produced
+     * @param height the height of the image to be produced
+     * @param drawbg if true, put a white background on the image.  If not,
+     *        draw no color (alpha 0) for the background.
+     * @return an Image that contains the PDF data
+     */
+    public Bitmap getTiledImage(int width, int height, boolean drawbg)
+    {
+        renderTiles(width, height, 0, 0, width, height, drawbg, true);
+        
+        Bitmap image = createBitmap(width, height);
+//#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1
+        Graphics g = Graphics.create(image);
+//#else
+        Graphics g = new Graphics(image);
+//#endif
+        int rows = getTileCount(height);
+        int cols = getTileCount(width);
+        for (int tileY = 0; tileY < rows; tileY++)
+        {
+            for (int tileX = 0; tileX < cols; tileX++)
+            {
+                // the tile is normally cached by now, but it may have been evicted
+                Bitmap tile = getTile(width, height, tileX, tileY, drawbg, true);
+                if (tile != null)
+                {
+                    g.drawBitmap(tileX * TILE_SIZE, tileY * TILE_SIZE, tile.getWidth(), tile.getHeight(), tile, 0, 0);
+                }
+            }
+        }
+        return image;
+    }
+    
+    /**
+     * Work out the size and clip of a tile.
+     *
+     * @return the tile information, or null if the tile is outside the page
+     */
+    private TileInfo createTileInfo(int width, int height, int tileX, int tileY)
+    {
+        int x = tileX * TILE_SIZE;
+        int y = tileY * TILE_SIZE;
+        if (tileX < 0 || tileY < 0 || x >= width || y >= height)
+        {
+            return null;
+        }
+        int tileWidth = Math.min(TILE_SIZE, width - x);
+        int tileHeight = Math.min(TILE_SIZE, height - y);
+        
+        // map the corners of the tile back into page space
+        AffineTransform inverse = new AffineTransform();
+        if (!getInitialTransform(width, height, null).invert(inverse))
+        {
+            return null;
+        }
+        float[] pts = new float[] { x, y, x + tileWidth, y, x, y + tileHeight, x + tileWidth, y + tileHeight };
+        inverse.transform(pts, 0, pts, 0, 4);
+        
+        float minX = pts[0];
+        float minY = pts[1];
+        float maxX = minX;
+        float maxY = minY;
+        for (int i = 2; i < pts.length; i += 2)
+        {
+            minX = Math.min(minX, pts[i]);
+            maxX = Math.max(maxX, pts[i]);
+            minY = Math.min(minY, pts[i + 1]);
+            maxY = Math.max(maxY, pts[i + 1]);
+        }
+        
+        return new TileInfo(width, height, tileX, tileY, tileWidth, tileHeight, new XYRectFloat(minX, minY, maxX - minX, maxY - minY));
+    }
+    
+    /**
+     * Create an empty image to render into.
+     */
+    private static Bitmap createBitmap(int width, int height)
+    {
+//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
+        Bitmap image = new Bitmap(Bitmap.ROWWISE_16BIT_COLOR, width, height);
+        image.createAlpha(Bitmap.ALPHA_BITDEPTH_8BPP);
+//#else
+        Bitmap image = new Bitmap(Bitmap.ROWWISE_32BIT_ARGB8888, width, height);
+//#endif
+        return image;
+    }
+    
+    /**
+     * Get the image for the given image information, rendering it if it
+     * isn't in the cache.
+     */
+    private Bitmap getImage(ImageInfo info, boolean drawbg, boolean wait)
     {
         // see if we already have this image
     	Bitmap image = null;
         PDFRenderer renderer = null;
-        ImageInfo info = new ImageInfo(width, height, clip, 0);
         
         if (cache != null)
         {
@@ -229,13 +524,9 @@ public class PDFPage
                 info.bgColor = Color.WHITE;
             }
             
-//#ifdef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1 | BlackBerrySDK5.0.0 | BlackBerrySDK6.0.0
-            image = new Bitmap(Bitmap.ROWWISE_16BIT_COLOR, info.width, info.height);
-            image.createAlpha(Bitmap.ALPHA_BITDEPTH_8BPP);
-//#else
-            image = new Bitmap(Bitmap.ROWWISE_32BIT_ARGB8888, info.width, info.height);
-//#endif
+            image = createBitmap(info.width, info.height);
             renderer = new PDFRenderer(this, info, image);
+            renderer.setPriority(priority);
             
             if (cache != null)
             {
@@ -310,6 +601,7 @@ public class PDFPage
     		if(g != null)
     		{
 	    		renderer = new PDFRenderer(this, g, info);
+	    		renderer.setPriority(priority);
 	    		
 	    		renderers.put(info, new WeakReference(renderer));
     		}
@@ -445,21 +737,31 @@ public class PDFPage
     }
     
     /**
-     * get the command at a given index
+     * get the command at a given index.  Most commands are stored packed,
+     * so this may create a new PDFCmd each time it is called.
      */
     public PDFCmd getCommand(int index)
     {
-        return (PDFCmd)commands.elementAt(index);
+        return commands.getCommand(index);
     }
     
     /**
-     * get all the commands in the current page
+     * get the packed commands of this page, which renderers execute
+     * directly
      */
-    public Vector getCommands()
+    PDFDisplayList getDisplayList()
     {
         return commands;
     }
     
+    /**
+     * get a copy of all the commands in the current page
+     */
+    public Vector getCommands()
+    {
+        return getCommands(0, getCommandCount());
+    }
+    
     /**
      * get all the commands in the current page starting at the given index
      */
@@ -473,13 +775,12 @@ public class PDFPage
      */
     public Vector getCommands(int startIndex, int endIndex)
     {
-    	//No such thing as sublist in J2ME, if this method is very wrong then it should be changed, until then this should be good enough
-    	Vector v = new Vector(endIndex - startIndex - 1);
+    	Vector v = new Vector(Math.max(endIndex - startIndex, 1));
     	for(int i = startIndex; i < endIndex; i++)
     	{
-    		v.addElement(commands.elementAt(i));
+    		v.addElement(commands.getCommand(i));
     	}
-    	return PDFUtil.synchronizedVector(v);
+    	return v;
     }
 
     /**
@@ -487,10 +788,7 @@ public class PDFPage
      */
     public void addCommand(PDFCmd cmd)
     {
-        synchronized(commands)
-        {
-            commands.addElement(cmd);
-        }
+        commands.addCommand(cmd);
         
         // notify any outstanding images
         updateImages();
@@ -524,11 +822,7 @@ public class PDFPage
                 addXform(extra);
             }
             //addXform(page.getTransform());
-            //No addAll function, do this manually unless later a helper function or native function gets added for this.
-            for(Enumeration en = page.getCommands().elements(); en.hasMoreElements();)
-            {
-            	commands.addElement(en.nextElement());
-            }
+            commands.addAll(page.commands);
             addPop();
         }
         
@@ -541,10 +835,7 @@ public class PDFPage
      */
     public void clearCommands()
     {
-        synchronized(commands)
-        {
-            commands.removeAllElements();
-        }
+        commands.clear();
         
         // notify any outstanding images
         updateImages();
@@ -570,29 +861,117 @@ public class PDFPage
         }
     }
     
+    /**
+     * Get the priority the renderers of this page run with
+     *
+     * @return one of the Scheduler priorities
+     */
+    public int getPriority()
+    {
+        return priority;
+    }
+    
+    /**
+     * Set the priority the renderers of this page run with, including any
+     * that are already rendering.
+     *
+     * @param priority one of the Scheduler priorities
+     */
+    public void setPriority(int priority)
+    {
+        this.priority = priority;
+        
+        synchronized(renderers)
+        {
+            for (Enumeration i = renderers.elements(); i.hasMoreElements();)
+            {
+                PDFRenderer renderer = (PDFRenderer)((WeakReference)i.nextElement()).get();
+                if (renderer != null)
+                {
+                    renderer.setPriority(priority);
+                }
+            }
+        }
+    }
+    
     /**
      * Stop the rendering of a particular image on this page
      */
     public void stop(int width, int height, XYRectFloat clip)
     {
-        ImageInfo info = new ImageInfo(width, height, clip);
-        
+        // find our renderer
+        PDFRenderer renderer = getRenderer(new ImageInfo(width, height, clip));
+        if (renderer != null)
+        {
+            // stop it
+            renderer.stop();
+        }
+    }
+    
+    /**
+     * Stop the rendering of every tile of this page at a particular size,
+     * such as when the page is no longer shown at that zoom
+     *
+     * @param width the width of the whole page image the tiles are from
+     * @param height the height of the whole page image the tiles are from
+     */
+    public void stopTiles(int width, int height)
+    {
         synchronized(renderers)
         {
-            // find our renderer
-            WeakReference rendererRef = (WeakReference)renderers.get(info);
-            if (rendererRef != null)
+            for (Enumeration i = renderers.keys(); i.hasMoreElements();)
+            {
+                Object key = i.nextElement();
+                if (key instanceof TileInfo)
+                {
+                    TileInfo info = (TileInfo)key;
+                    if (info.pageWidth == width && info.pageHeight == height)
+                    {
+                        PDFRenderer renderer = (PDFRenderer)((WeakReference)renderers.get(info)).get();
+                        if (renderer != null)
+                        {
+                            renderer.stop();
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * Stop all the renderers of this page
+     */
+    void stopRenderers()
+    {
+        synchronized(renderers)
+        {
+            for (Enumeration i = renderers.elements(); i.hasMoreElements();)
             {
-                PDFRenderer renderer = (PDFRenderer)rendererRef.get();
+                PDFRenderer renderer = (PDFRenderer)((WeakReference)i.nextElement()).get();
                 if (renderer != null)
                 {
-                    // stop it
                     renderer.stop();
                 }
             }
         }
     }
     
+    /**
+     * Get the renderer for an image of this page, if it is still around
+     */
+    private PDFRenderer getRenderer(ImageInfo info)
+    {
+        synchronized(renderers)
+        {
+            WeakReference rendererRef = (WeakReference)renderers.get(info);
+            if (rendererRef != null)
+            {
+                return (PDFRenderer)rendererRef.get();
+            }
+        }
+        return null;
+    }
+    
     /**
      * The entire page is done.  This must only be invoked once.  All
      * observers will be notified.
@@ -610,13 +989,15 @@ public class PDFPage
     /** push the graphics state */
     public void addPush()
     {
-        addCommand(new PDFPushCmd());
+        commands.addPush();
+        updateImages();
     }
     
     /** pop the graphics state */
     public void addPop()
     {
-        addCommand(new PDFPopCmd());
+        commands.addPop();
+        updateImages();
     }
     
     /** concatenate a transform to the graphics state */
@@ -624,7 +1005,8 @@ public class PDFPage
     {
         //PDFXformCmd xc = lastXformCmd();
     	//xc.at.concatenate(at);
-        addCommand(new PDFXformCmd(new AffineTransform(at)));
+        commands.addXform(at);
+        updateImages();
     }
     
     /**
@@ -639,7 +1021,8 @@ public class PDFPage
 //        	w = 0.1f;
 //        }
         sc.setWidth(w);
-        addCommand(sc);
+        commands.addStroke(sc);
+        updateImages();
     }
     
     /**
@@ -665,7 +1048,8 @@ public class PDFPage
         }
         sc.setEndCap(cap);
         
-        addCommand(sc);
+        commands.addStroke(sc);
+        updateImages();
     }
     
     /**
@@ -691,7 +1075,8 @@ public class PDFPage
         }
         sc.setLineJoin(join);
         
-        addCommand(sc);
+        commands.addStroke(sc);
+        updateImages();
     }
     
     /**
@@ -703,7 +1088,8 @@ public class PDFPage
         
         sc.setMiterLimit(limit);
         
-        addCommand(sc);
+        commands.addStroke(sc);
+        updateImages();
     }
 
     /**
@@ -717,7 +1103,8 @@ public class PDFPage
         
         sc.setDash(dashary, phase);
         
-        addCommand(sc);
+        commands.addStroke(sc);
+        updateImages();
     }
     
     /**
@@ -728,7 +1115,22 @@ public class PDFPage
      */
     public void addPath(Geometry path, int style)
     {
-        addCommand(new PDFShapeCmd(path, style));
+        commands.addShape(new PDFShapeCmd(path, style));
+        updateImages();
+    }
+    
+    /**
+     * add a filled glyph.  The glyph's outline is shared, not copied, and
+     * is drawn with the given transform.
+     *
+     * @param outline the outline of the glyph, which must not be changed
+     * @param bounds the bounds of the outline
+     * @param at the transform from the outline's space to user space
+     */
+    public void addGlyph(Geometry outline, XYRectFloat bounds, AffineTransform at)
+    {
+        commands.addGlyph(outline, bounds, at);
+        updateImages();
     }
     
     /**
@@ -736,13 +1138,15 @@ public class PDFPage
      */
     public void addFillPaint(PDFPaint p)
     {
-        addCommand(new PDFFillPaintCmd(p));
+        commands.addFillPaint(p);
+        updateImages();
     }
     
     /** set the stroke paint */
     public void addStrokePaint(PDFPaint p)
     {
-        addCommand(new PDFStrokePaintCmd(p));
+        commands.addStrokePaint(p);
+        updateImages();
     }
     
     /**
@@ -750,13 +1154,15 @@ public class PDFPage
      */
     public void addFillAlpha(float a)
     {
-        addCommand(new PDFFillAlphaCmd(a));
+        commands.addFillAlpha(a);
+        updateImages();
     }
     
     /** set the stroke alpha */
     public void addStrokeAlpha(float a)
     {
-        addCommand(new PDFStrokeAlphaCmd(a));
+        commands.addStrokeAlpha(a);
+        updateImages();
     }
     
     /**
@@ -765,7 +1171,8 @@ public class PDFPage
      */
     public void addImage(PDFImage image)
     {
-        addCommand(new PDFImageCmd(image));
+        commands.addImage(image);
+        updateImages();
     }
     
     /**
@@ -1018,6 +1425,52 @@ class PDFChangeStrokeCmd extends PDFCmd
         return null;
     }
     
+    /**
+     * Identical stroke changes are equal, so a page only needs to keep
+     * one of them.
+     */
+    public boolean equals(Object obj)
+    {
+        if (!(obj instanceof PDFChangeStrokeCmd))
+        {
+            return false;
+        }
+        PDFChangeStrokeCmd sc = (PDFChangeStrokeCmd)obj;
+        if (sc.w != w || sc.cap != cap || sc.join != join || sc.limit != limit || sc.phase != phase)
+        {
+            return false;
+        }
+        if (sc.ary == ary)
+        {
+            return true;
+        }
+        if (sc.ary == null || ary == null || sc.ary.length != ary.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < ary.length; i++)
+        {
+            if (sc.ary[i] != ary[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public int hashCode()
+    {
+        int hash = Float.floatToIntBits(w) ^ (cap << 8) ^ (join << 16) ^ Float.floatToIntBits(limit) ^ Float.floatToIntBits(phase);
+        if (ary != null)
+        {
+            for (int i = 0; i < ary.length; i++)
+            {
+                hash = hash * 31 + Float.floatToIntBits(ary[i]);
+            }
+        }
+        return hash;
+    }
+    
     public String toString(PDFRenderer state)
     {
         return "STROKE: w=" + w + " cap=" + cap + " join=" + join + " limit=" + limit + " ary=" + ary + " phase=" + phase;
@@ -0,0 +1,374 @@
+/*
+ * File: PDFPageIndex.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 1:48:53 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.sun.pdfview.helper.PDFUtil;
+import com.sun.pdfview.helper.SoftReference;
+
+/**
+ * An index of the page tree of a PDFFile. The tree is read lazily, one Pages node at a time, as lookups go through it. Each node remembers the
+ * page number of its first page and its children's first page numbers so finding a page is a binary search per level of the tree, and each
+ * Pages node keeps the attributes (Resources, MediaBox, CropBox, Rotate) it passes on so they don't need to be searched for again. Nodes
+ * only hold references to their dictionaries, the dictionaries themselves are read through the PDFFile when needed.
+ * @author Vincent Simonetti
+ */
+final class PDFPageIndex
+{
+	/**
+	 * A node of the page tree, either a Pages node or a Page.
+	 */
+	static final class Node
+	{
+		/** An indirect reference to the Pages or Page dictionary, which only holds on to the dictionary through a soft reference. */
+		private PDFObject ref;
+		public Node parent;
+		/** The 0-based page number of the first page under this node. */
+		public int start;
+		/** The number of pages under this node. */
+		public int count;
+		public boolean isPage;
+		/** The children of a Pages node, null until the node has been expanded. */
+		public Node[] kids;
+		/** The start of each child, so they can be binary searched. */
+		public int[] kidStarts;
+
+		/** The MediaBox, CropBox, and Rotate a Pages node passes on to its children. */
+		private PDFObject[] inherited;
+		/** The resources of a Pages node merged with those of its ancestors. */
+		private SoftReference resources;
+
+		public Node(PDFObject ref, Node parent, int start, int count, boolean isPage)
+		{
+			this.ref = ref;
+			this.parent = parent;
+			this.start = start;
+			this.count = count;
+			this.isPage = isPage;
+		}
+
+		/**
+		 * Get the Pages or Page dictionary of this node.
+		 */
+		public PDFObject getDict() throws IOException
+		{
+			return this.ref.dereference();
+		}
+
+		/**
+		 * Get the inheritable attributes, applying any set by this node on top of those of the parent. Only Pages nodes keep them, a Page
+		 * reads its own every time.
+		 */
+		private PDFObject[] getInherited() throws IOException
+		{
+			if(this.inherited != null)
+			{
+				return this.inherited;
+			}
+			PDFObject[] inherited = new PDFObject[INHERITED_KEYS.length];
+			if(this.parent != null)
+			{
+				System.arraycopy(this.parent.getInherited(), 0, inherited, 0, inherited.length);
+			}
+			PDFObject dict = getDict();
+			for(int i = 0; i < inherited.length; i++)
+			{
+				PDFObject obj = dict.getDictRef(INHERITED_KEYS[i]);
+				if(obj != null)
+				{
+					inherited[i] = obj;
+				}
+			}
+			if(!this.isPage)
+			{
+				this.inherited = inherited;
+			}
+			return inherited;
+		}
+
+		/**
+		 * Get the MediaBox of this node, which may be inherited.
+		 */
+		public PDFObject getMediaBox() throws IOException
+		{
+			return getInherited()[MEDIA_BOX];
+		}
+
+		/**
+		 * Get the CropBox of this node, which may be inherited.
+		 */
+		public PDFObject getCropBox() throws IOException
+		{
+			return getInherited()[CROP_BOX];
+		}
+
+		/**
+		 * Get the Rotate value of this node, which may be inherited.
+		 */
+		public PDFObject getRotate() throws IOException
+		{
+			return getInherited()[ROTATE];
+		}
+
+		/**
+		 * Get the resources of this node merged with those of its ancestors. Only Pages nodes keep their merged resources, a Page gets a new
+		 * table every time so it can't affect any other page. The merged resources are held softly and merged again if they have been dropped.
+		 */
+		public Hashtable getResources() throws IOException
+		{
+			Hashtable resources;
+			if(this.resources != null && (resources = (Hashtable)this.resources.get()) != null)
+			{
+				return resources;
+			}
+			resources = new Hashtable();
+			if(this.parent != null)
+			{
+				PDFUtil.Hashtable_putAll(resources, this.parent.getResources());
+			}
+			PDFObject rsrcObj = getDict().getDictRef("Resources");
+			if(rsrcObj != null)
+			{
+				PDFUtil.Hashtable_putAll(resources, rsrcObj.getDictionary());
+			}
+			if(!this.isPage)
+			{
+				this.resources = new SoftReference(resources);
+			}
+			return resources;
+		}
+	}
+
+	private static final String[] INHERITED_KEYS = {"MediaBox", "CropBox", "Rotate"};
+	private static final int MEDIA_BOX = 0;
+	private static final int CROP_BOX = 1;
+	private static final int ROTATE = 2;
+
+	private Node root;
+	/** Maps the object number of a Page to it's 1-based page number. */
+	private Hashtable pageNumbers;
+
+	/**
+	 * Create a new index.
+	 * @param pages The root of the page tree, the Pages entry of the document catalog.
+	 */
+	public PDFPageIndex(PDFObject pages) throws IOException
+	{
+		this.root = createNode(pages, null, 0);
+		this.pageNumbers = new Hashtable();
+	}
+
+	private static Node createNode(PDFObject ref, Node parent, int start) throws IOException
+	{
+		PDFObject dict = ref.dereference();
+		if(ref == dict && dict.getObjNum() >= 0)
+		{
+			// don't hold a numbered object directly, hold a reference that can read it again
+			ref = new PDFObject(dict.getOwner(), new PDFXref(dict.getObjNum(), dict.getObjGen()));
+		}
+		PDFObject typeObj = dict.getDictRef("Type");
+		if(typeObj != null && typeObj.getStringValue().equals("Page"))
+		{
+			return new Node(ref, parent, start, 1, true);
+		}
+		// BUG: some PDFs (T1Format.pdf) don't have the Type tag.
+		// use the Count tag to indicate a Pages dictionary instead.
+		PDFObject countObj = dict.getDictRef("Count");
+		if(countObj == null)
+		{
+			return new Node(ref, parent, start, 1, true);
+		}
+		return new Node(ref, parent, start, Math.max(countObj.getIntValue(), 0), false);
+	}
+
+	/**
+	 * Read the children of a Pages node.
+	 */
+	private static void expand(Node node) throws IOException
+	{
+		if(node.kids != null)
+		{
+			return;
+		}
+		PDFObject kidsObj = node.getDict().getDictRef("Kids");
+		PDFObject[] kidDicts = kidsObj == null ? new PDFObject[0] : kidsObj.getArray();
+		int len = kidDicts.length;
+		Node[] kids = new Node[len];
+		int[] starts = new int[len];
+		int start = node.start;
+		for(int i = 0; i < len; i++)
+		{
+			kids[i] = createNode(kidDicts[i], node, start);
+			starts[i] = start;
+			start += kids[i].count;
+		}
+		node.kidStarts = starts;
+		node.kids = kids;
+	}
+
+	/**
+	 * Get the number of pages in the document.
+	 */
+	public int getPageCount()
+	{
+		return this.root.count;
+	}
+
+	/**
+	 * Find a page.
+	 * @param pagenum The 1-based number of the page.
+	 * @return The page, or <code>null</code> if there is no such page.
+	 */
+	public synchronized Node getPage(int pagenum) throws IOException
+	{
+		int target = pagenum - 1;
+		Node node = this.root;
+		if(node.isPage)
+		{
+			return target == 0 ? node : null;
+		}
+		while(!node.isPage)
+		{
+			if(target < node.start || target >= node.start + node.count)
+			{
+				return null;
+			}
+			expand(node);
+			int[] starts = node.kidStarts;
+
+			// find the last child that starts at or before the target
+			int low = 0;
+			int high = starts.length - 1;
+			int found = -1;
+			while(low <= high)
+			{
+				int mid = (low + high) >>> 1;
+				if(starts[mid] <= target)
+				{
+					found = mid;
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid - 1;
+				}
+			}
+			if(found < 0)
+			{
+				return null;
+			}
+			node = node.kids[found];
+		}
+		if(target != node.start)
+		{
+			// a Pages node reported more pages then it has
+			return null;
+		}
+		int objNum = node.getDict().getObjNum();
+		if(objNum >= 0)
+		{
+			this.pageNumbers.put(new Integer(objNum), new Integer(pagenum));
+		}
+		return node;
+	}
+
+	/**
+	 * Get the page number of a page dictionary.
+	 * @param page The Page dictionary.
+	 * @return The 1-based page number, or 0 if the page is not in the page tree.
+	 */
+	public synchronized int getPageNumber(PDFObject page) throws IOException
+	{
+		page = page.dereference();
+		Integer key = null;
+		int objNum = page.getObjNum();
+		if(objNum >= 0)
+		{
+			key = new Integer(objNum);
+			Integer pagenum = (Integer)this.pageNumbers.get(key);
+			if(pagenum != null)
+			{
+				return pagenum.intValue();
+			}
+		}
+
+		// the chain of nodes from the root's child down to the page
+		Vector path = new Vector();
+		PDFObject scan = page;
+		while(scan != null)
+		{
+			path.insertElementAt(scan, 0);
+			scan = scan.getDictRef("Parent");
+		}
+
+		// walk down the index, following the path
+		Node node = this.root;
+		int len = path.size();
+		for(int i = 1; i < len && !node.isPage; i++)
+		{
+			expand(node);
+			PDFObject next = (PDFObject)path.elementAt(i);
+			Node[] kids = node.kids;
+			Node match = null;
+			for(int k = 0; k < kids.length; k++)
+			{
+				if(sameObject(kids[k].ref, next))
+				{
+					match = kids[k];
+					break;
+				}
+			}
+			if(match == null)
+			{
+				return 0;
+			}
+			node = match;
+		}
+		if(!node.isPage || !sameObject(node.ref, page))
+		{
+			return 0;
+		}
+		int pagenum = node.start + 1;
+		if(key != null)
+		{
+			this.pageNumbers.put(key, new Integer(pagenum));
+		}
+		return pagenum;
+	}
+
+	private static boolean sameObject(PDFObject a, PDFObject b) throws IOException
+	{
+		if(a == b || a.equals(b))
+		{
+			return true;
+		}
+		a = a.dereference();
+		b = b.dereference();
+		if(a == b)
+		{
+			return true;
+		}
+		int objNum = a.getObjNum();
+		return objNum >= 0 && objNum == b.getObjNum() && a.getObjGen() == b.getObjGen();
+	}
+}
@@ -25,6 +25,7 @@
 package com.sun.pdfview;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
@@ -34,6 +35,7 @@ import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 import java.util.Vector;
 import java.util.Hashtable;
+import java.util.EmptyStackException;
 import java.util.Stack;
 
 import javax.microedition.io.Connector;
@@ -43,6 +45,7 @@ import com.sun.pdfview.colorspace.PDFColorSpace;
 import com.sun.pdfview.colorspace.PatternSpace;
 import com.sun.pdfview.font.PDFFont;
 import com.sun.pdfview.helper.AffineTransform;
+import com.sun.pdfview.helper.DebugLog;
 import com.sun.pdfview.helper.PDFUtil;
 import com.sun.pdfview.helper.XYPointFloat;
 import com.sun.pdfview.helper.XYRectFloat;
@@ -65,15 +68,29 @@ public class PDFParser extends BaseWatchable
     
     // ---- parsing variables
     
-    private Stack stack;          // stack of Object
     private Stack parserStates;    // stack of RenderState
+    // the operand stack. Numbers and names are kept as primitives (a name
+    // is its location in the stream) so they don't need to be allocated,
+    // anything else is kept as an Object
+    private int[] operandTypes;
+    private float[] operandValues;
+    private int[] operandStarts;
+    private int[] operandLengths;
+    private Object[] operandObjects;
+    private int operandCount;
     // the current render state
     private ParserState state;
     private Geometry path;
     private int clip;
     private int loc;
+    // the number of valid bytes in the stream buffer
+    private int end;
+    // the start of the data that must stay in the buffer when it is refilled
+    private int mark;
+    // where the rest of the stream comes from, or null if it has all been read
+    private InputStream input;
     private boolean resend = false;
-    private Tok tok;
+    private Tok tok = new Tok();
     private boolean catchexceptions;   // Indicates state of BX...EX
     /** a weak reference to the page we render into.  For the page
      * to remain available, some other code must retain a strong reference to it.
@@ -87,35 +104,88 @@ public class PDFParser extends BaseWatchable
     // ---- result variables
     byte[] stream;
     Hashtable resources;
-    public static int debuglevel = 4000;
     
+    /**
+     * print a debug message, if its level is above the debug level.
+     * Callers in hot paths should check
+     * {@link DebugLog#isLoggable(int)} before building the message.
+     */
     public static void debug(String msg, int level) 
     {
-        if (level > debuglevel) 
+        DebugLog.log(msg, level);
+    }
+    
+    public static String escape(String msg)
+    {
+        return DebugLog.escape(msg);
+    }
+    
+    public static void setDebugLevel(int level)
+    {
+        DebugLog.setLevel(level);
+    }
+    
+    /** if true, count how many times each operator is executed */
+    private static boolean countOperators = false;
+    /** the number of times each operator has been executed, by code */
+    private static int[] operatorCounts;
+    
+    /**
+     * Turn counting of executed operators on or off.  The counts are
+     * shared by all parsers, so reset them before parsing the pages of
+     * interest.
+     */
+    public static void setOperatorCounting(boolean count)
+    {
+        if (count && operatorCounts == null)
         {
-            System.out.println(escape(msg));
+            operatorCounts = new int[OP_NAMES.length];
         }
+        countOperators = count;
     }
     
-    public static String escape(String msg)
+    /**
+     * Reset the operator counts to zero.
+     */
+    public static void resetOperatorCounts()
     {
-        StringBuffer sb = new StringBuffer();
-        int len = msg.length();
-        for (int i = 0; i < len; i++)
+        if (operatorCounts != null)
         {
-            char c = msg.charAt(i);
-            if (c != '\n' && (c < 32 || c >= 127))
-            {
-                c = '?';
-            }
-            sb.append(c);
+            operatorCounts = new int[OP_NAMES.length];
         }
-        return sb.toString();
     }
     
-    public static void setDebugLevel(int level)
+    /**
+     * Get the number of times each operator has been executed since
+     * counting was turned on or last reset.  The index is the operator
+     * code, see {@link #getOperatorName(int)}; index 0 counts operators
+     * that aren't known.
+     * @return a copy of the counts, or <code>null</code> if counting has
+     * never been turned on
+     */
+    public static int[] getOperatorCounts()
     {
-        debuglevel = level;
+        int[] counts = operatorCounts;
+        if (counts == null)
+        {
+            return null;
+        }
+        int[] copy = new int[counts.length];
+        System.arraycopy(counts, 0, copy, 0, counts.length);
+        return copy;
+    }
+    
+    /**
+     * Get the name of an operator from its code.
+     * @return the operator, or <code>null</code> for unknown operators
+     */
+    public static String getOperatorName(int op)
+    {
+        if (op < 0 || op >= OP_NAMES.length)
+        {
+            return null;
+        }
+        return OP_NAMES[op];
     }
     
     /**
@@ -136,13 +206,271 @@ public class PDFParser extends BaseWatchable
         }
         
         this.stream = stream;
+        this.end = stream.length;
+    }
+    
+    /**
+     * Create a parser that reads its commands from a stream instead of
+     * a byte array.  Only a window of the stream is kept in memory,
+     * it is read in as it is parsed.
+     */
+    PDFParser(PDFPage cmds, InputStream input, Hashtable resources)
+    {
+        this(cmds, new byte[STREAM_BUFFER_SIZE], resources);
+        
+        this.input = input;
+        this.end = 0;
     }
     
 /////////////////////////////////////////////////////////////////
     //  B E G I N   R E A D E R   S E C T I O N
+    
+    /** the initial size of the buffer used when reading from a stream */
+    private static final int STREAM_BUFFER_SIZE = 4096;
+    
+    /**
+     * make sure there are at least n bytes that haven't been read in
+     * the buffer.
+     * @return false if the end of the stream is less then n bytes away
+     */
+    private boolean ensure(int n) throws IOException
+    {
+        return end - loc >= n || fill(n);
+    }
+    
+    /**
+     * read more of the input into the buffer.  Everything before the
+     * mark, and before any names still on the operand stack, is
+     * discarded to make room.
+     */
+    private boolean fill(int n) throws IOException
+    {
+        if (input == null)
+        {
+            return false;
+        }
+        int keep = mark;
+        for (int i = 0; i < operandCount; i++)
+        {
+            if (operandTypes[i] == Tok.NAME && operandStarts[i] < keep)
+            {
+                keep = operandStarts[i];
+            }
+        }
+        if (keep > 0)
+        {
+            System.arraycopy(stream, keep, stream, 0, end - keep);
+            end -= keep;
+            loc -= keep;
+            mark -= keep;
+            for (int i = 0; i < operandCount; i++)
+            {
+                operandStarts[i] -= keep;
+            }
+        }
+        while (end - loc < n)
+        {
+            if (end == stream.length)
+            {
+                byte[] buf = new byte[Math.max(stream.length * 2, loc + n)];
+                System.arraycopy(stream, 0, buf, 0, end);
+                stream = buf;
+            }
+            int read = input.read(stream, end, stream.length - end);
+            if (read < 0)
+            {
+                input.close();
+                input = null;
+                break;
+            }
+            end += read;
+        }
+        return end - loc >= n;
+    }
     /////////////////////////////////////////////////////////////////
+    
+    // operator codes, each is the index of the operator in OP_NAMES
+    /** an operator that isn't known */
+    static final int OP_UNKNOWN = 0;
+    static final int OP_q = 1;
+    static final int OP_Q = 2;
+    static final int OP_cm = 3;
+    static final int OP_w = 4;
+    static final int OP_J = 5;
+    static final int OP_j = 6;
+    static final int OP_M = 7;
+    static final int OP_d = 8;
+    static final int OP_ri = 9;
+    static final int OP_i = 10;
+    static final int OP_gs = 11;
+    static final int OP_m = 12;
+    static final int OP_l = 13;
+    static final int OP_c = 14;
+    static final int OP_v = 15;
+    static final int OP_y = 16;
+    static final int OP_h = 17;
+    static final int OP_re = 18;
+    static final int OP_S = 19;
+    static final int OP_s = 20;
+    static final int OP_f = 21;
+    static final int OP_F = 22;
+    static final int OP_fSTAR = 23;
+    static final int OP_B = 24;
+    static final int OP_BSTAR = 25;
+    static final int OP_b = 26;
+    static final int OP_bSTAR = 27;
+    static final int OP_n = 28;
+    static final int OP_W = 29;
+    static final int OP_WSTAR = 30;
+    static final int OP_sh = 31;
+    static final int OP_CS = 32;
+    static final int OP_cs = 33;
+    static final int OP_SC = 34;
+    static final int OP_SCN = 35;
+    static final int OP_sc = 36;
+    static final int OP_scn = 37;
+    static final int OP_G = 38;
+    static final int OP_g = 39;
+    static final int OP_RG = 40;
+    static final int OP_rg = 41;
+    static final int OP_K = 42;
+    static final int OP_k = 43;
+    static final int OP_Do = 44;
+    static final int OP_BT = 45;
+    static final int OP_ET = 46;
+    static final int OP_Tc = 47;
+    static final int OP_Tw = 48;
+    static final int OP_Tz = 49;
+    static final int OP_TL = 50;
+    static final int OP_Tf = 51;
+    static final int OP_Tr = 52;
+    static final int OP_Ts = 53;
+    static final int OP_Td = 54;
+    static final int OP_TD = 55;
+    static final int OP_Tm = 56;
+    static final int OP_TSTAR = 57;
+    static final int OP_Tj = 58;
+    static final int OP_QUOTE = 59;
+    static final int OP_DQUOTE = 60;
+    static final int OP_TJ = 61;
+    static final int OP_BI = 62;
+    static final int OP_ID = 63;
+    static final int OP_EI = 64;
+    static final int OP_BX = 65;
+    static final int OP_EX = 66;
+    static final int OP_MP = 67;
+    static final int OP_DP = 68;
+    static final int OP_BMC = 69;
+    static final int OP_BDC = 70;
+    static final int OP_EMC = 71;
+    static final int OP_d0 = 72;
+    static final int OP_d1 = 73;
+    static final int OP_QBT = 74;
+    
+    /** the name of each operator, indexed by operator code */
+    private static final String[] OP_NAMES = {
+        null,
+        "q", "Q", "cm", "w", "J", "j", "M", "d", "ri", "i", "gs", "m",
+        "l", "c", "v", "y", "h", "re", "S", "s", "f", "F", "f*", "B",
+        "B*", "b", "b*", "n", "W", "W*", "sh", "CS", "cs", "SC", "SCN", "sc",
+        "scn", "G", "g", "RG", "rg", "K", "k", "Do", "BT", "ET", "Tc", "Tw",
+        "Tz", "TL", "Tf", "Tr", "Ts", "Td", "TD", "Tm", "T*", "Tj", "'", "\"",
+        "TJ", "BI", "ID", "EI", "BX", "EX", "MP", "DP", "BMC", "BDC", "EMC", "d0",
+        "d1", "QBT"
+    };
+    
+    /** the packed bytes of each operator's name, sorted */
+    private static final int[] OP_KEYS;
+    /** the operator code for each entry in OP_KEYS */
+    private static final int[] OP_KEY_CODES;
+    
+    static
+    {
+        int len = OP_NAMES.length - 1;
+        int[] keys = new int[len];
+        int[] codes = new int[len];
+        for (int i = 0; i < len; i++)
+        {
+            String name = OP_NAMES[i + 1];
+            int key = 0;
+            int nlen = name.length();
+            for (int k = 0; k < nlen; k++)
+            {
+                key = (key << 8) | name.charAt(k);
+            }
+            
+            // insertion sort, it's only done once
+            int pos = i;
+            while (pos > 0 && keys[pos - 1] > key)
+            {
+                keys[pos] = keys[pos - 1];
+                codes[pos] = codes[pos - 1];
+                pos--;
+            }
+            keys[pos] = key;
+            codes[pos] = i + 1;
+        }
+        OP_KEYS = keys;
+        OP_KEY_CODES = codes;
+    }
+    
+    /**
+     * look up the operator code of the operator at a location in the
+     * stream, without creating a String for it.
+     * @return the operator code, or OP_UNKNOWN
+     */
+    private int lookupOperator(int start, int length)
+    {
+        // all the operators are 3 characters or less, which lets them be
+        // packed into an int
+        if (length < 1 || length > 3)
+        {
+            return OP_UNKNOWN;
+        }
+        int key = 0;
+        for (int i = 0; i < length; i++)
+        {
+            key = (key << 8) | (stream[start + i] & 0xFF);
+        }
+        int low = 0;
+        int high = OP_KEYS.length - 1;
+        while (low <= high)
+        {
+            int mid = (low + high) >>> 1;
+            int midKey = OP_KEYS[mid];
+            if (midKey < key)
+            {
+                low = mid + 1;
+            }
+            else if (midKey > key)
+            {
+                high = mid - 1;
+            }
+            else
+            {
+                return OP_KEY_CODES[mid];
+            }
+        }
+        return OP_UNKNOWN;
+    }
+    
+    /**
+     * get the name of an operator.  Only unknown operators need a new
+     * String.
+     */
+    private String operatorName(int op, int start, int length)
+    {
+        if (op != OP_UNKNOWN)
+        {
+            return OP_NAMES[op];
+        }
+        return new String(stream, start, length);
+    }
+    
     /**
-     * a token from a PDF Stream
+     * a token from a PDF Stream.  A single token is reused for the whole
+     * stream; NAME and CMD tokens only record where they are in the stream
+     * and a String is only made for them if it's asked for.
      */
     class Tok
     {
@@ -170,13 +498,31 @@ public class PDFParser extends BaseWatchable
         public static final int UNK = 0;
         /** end of stream */
         public static final int EOF = -1;
-        /** the string value of a STR, NAME, or CMD token */
+        /** the string value of a STR token */
         public String name;
         /** the value of a NUM token */
-        public double value;
+        public float value;
+        /** the operator code of a CMD token */
+        public int op;
+        /** where a NAME or CMD token starts in the stream */
+        public int start;
+        /** the length of a NAME or CMD token */
+        public int length;
         /** the type of the token */
         public int type;
         
+        /**
+         * get the name of a NAME or CMD token, or the value of a STR token.
+         */
+        public String getName()
+        {
+            if (type == NAME || type == CMD)
+            {
+                return new String(stream, start, length);
+            }
+            return name;
+        }
+        
         /** a printable representation of the token */
         public String toString()
         {
@@ -186,7 +532,7 @@ public class PDFParser extends BaseWatchable
             }
             else if (type == CMD)
             {
-                return "CMD: " + name;
+                return "CMD: " + getName();
             } 
             else if (type == UNK)
             {
@@ -198,7 +544,7 @@ public class PDFParser extends BaseWatchable
             }
             else if (type == NAME)
             {
-                return "NAME: " + name;
+                return "NAME: " + getName();
             }
             else if (type == CMD)
             {
@@ -233,48 +579,53 @@ public class PDFParser extends BaseWatchable
     }
     
     /**
-     * get the next token.
-     * TODO: this creates a new token each time. Is this strictly necessary?
+     * get the next token.  The same Tok is returned every time, so its
+     * values must be used before the next call.
      */
-    private Tok nextToken()
+    private Tok nextToken() throws IOException
     {
         if (resend)
         {
             resend = false;
             return tok;
         }
-        tok = new Tok();
+        Tok tok = this.tok;
+        tok.name = null;
         // skip whitespace
-        while (loc < stream.length && PDFFile.isWhiteSpace(stream[loc]))
+        while (ensure(1) && PDFFile.isWhiteSpace(stream[loc]))
         {
             loc++;
         }
-        if (loc >= stream.length)
+        mark = loc;
+        if (!ensure(1))
         {
             tok.type = Tok.EOF;
             return tok;
         }
         int c = stream[loc++];
-        int len = stream.length;
         // examine the character:
         while (c == '%')
         {
             // skip comments
-            StringBuffer comment = new StringBuffer();
-            while (loc < len && c != '\n')
+            mark = loc - 1;
+            while (c != '\n' && ensure(1))
             {
-                comment.append((char)c);
                 c = stream[loc++];
             }
-            if (loc < stream.length)
+            if (DebugLog.ENABLED && DebugLog.isLoggable(-1))
+            {
+                DebugLog.log(ResourcesResource.PARSER_READ_COMMENT, new Object[]{new String(stream, mark, loc - mark - 1)}, -1);
+            }
+            mark = loc;
+            if (ensure(1))
             {
                 c = stream[loc++];      // eat the newline
-                if (c == '\r')
+                if (c == '\r' && ensure(1))
                 {
+                    mark = loc;
                     c = stream[loc++];  // eat a following return
                 }
             }
-            debug(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_READ_COMMENT, new Object[]{comment.toString()}), -1);
         }
         
         if (c == '[')
@@ -299,24 +650,25 @@ public class PDFParser extends BaseWatchable
         {
             tok.type = Tok.BRCE;
         }
-        else if (c == '<' && stream[loc++] == '<')
+        else if (c == '<' && ensure(1) && stream[loc] == '<')
         {
+            loc++;
             tok.type = Tok.BRKB;
         }
-        else if (c == '>' && stream[loc++] == '>')
+        else if (c == '>' && ensure(1) && stream[loc] == '>')
         {
+            loc++;
             tok.type = Tok.BRKE;
         }
         else if (c == '<')
         {
-            loc--;
             tok.type = Tok.STR;
             tok.name = readByteArray();
         }
         else if (c == '/')
         {
             tok.type = Tok.NAME;
-            tok.name = readName();
+            readName(tok);
         }
         else if (c == '.' || c == '-' || (c >= '0' && c <= '9'))
         {
@@ -328,79 +680,112 @@ public class PDFParser extends BaseWatchable
         {
             loc--;
             tok.type = Tok.CMD;
-            tok.name = readName();
+            readName(tok);
+            tok.op = lookupOperator(tok.start, tok.length);
         }
         else
         {
-            System.out.println("Encountered character: " + c + " (" + (char) c + ")");
+            if (DebugLog.ENABLED && DebugLog.isLoggable(DebugLog.WARNING))
+            {
+                DebugLog.log("Encountered character: " + c + " (" + (char) c + ")", DebugLog.WARNING);
+            }
             tok.type = Tok.UNK;
         }
-        debug(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_READ_TOKEN, new Object[]{tok.toString()}), -1);
+        if (DebugLog.ENABLED && DebugLog.isLoggable(-1))
+        {
+            DebugLog.log(ResourcesResource.PARSER_READ_TOKEN, new Object[]{tok.toString()}, -1);
+        }
         return tok;
     }
     
     /**
      * read a name (sequence of non-PDF-delimiting characters) from the
-     * stream.
+     * stream, recording where it is in the token.
      */
-    private String readName()
+    private void readName(Tok tok) throws IOException
     {
-        int start = loc;
-        int len = stream.length;
-        while (loc < len && PDFFile.isRegularCharacter(stream[loc]))
+        // the buffer may be refilled, so remember the start relative to
+        // the mark, which moves with it
+        int offset = loc - mark;
+        int length = 0;
+        while (ensure(1) && PDFFile.isRegularCharacter(stream[loc]))
         {
             loc++;
+            length++;
         }
-        return new String(stream, start, loc - start);
+        tok.start = mark + offset;
+        tok.length = length;
     }
     
+    /** the largest mantissa readNum will add another digit to */
+    private static final long MAX_MANTISSA = 100000000000000000L;
+    /** powers of ten, for scaling the mantissa read by readNum */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+        1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+    
     /**
-     * read a floating point number from the stream
+     * read a floating point number from the stream.  The digits are read
+     * into an integer and scaled once at the end.
      */
-    private double readNum()
+    private float readNum() throws IOException
     {
         int c = stream[loc++];
         boolean neg = c == '-';
         boolean sawdot = c == '.';
-        double dotmult = sawdot ? 0.1 : 1;
-        double value = (c >= '0' && c <= '9') ? c - '0' : 0;
-        while (true)
+        long mantissa = (c >= '0' && c <= '9') ? c - '0' : 0;
+        int fraction = 0;   // digits after the dot
+        int overflow = 0;   // digits before the dot that didn't fit
+        while (ensure(1))
         {
-            c = stream[loc++];
+            c = stream[loc];
             if (c == '.')
             {
                 if (sawdot)
                 {
-                    loc--;
                     break;
                 }
                 sawdot = true;
-                dotmult = 0.1;
             }
             else if (c >= '0' && c <= '9')
             {
-                int val = c - '0';
-                if (sawdot)
+                if (mantissa < MAX_MANTISSA)
                 {
-                    value += val * dotmult;
-                    dotmult *= 0.1;
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (sawdot)
+                    {
+                        fraction++;
+                    }
                 }
-                else
+                else if (!sawdot)
                 {
-                    value = value * 10 + val;
+                    overflow++;
                 }
             }
             else
             {
-                loc--;
                 break;
             }
+            loc++;
         }
-        if (neg)
+        double value = mantissa;
+        if (fraction > 0)
         {
-            value = -value;
+            // leading zeros after the dot don't fill the mantissa, so a
+            // fraction can have more digits than there are powers of ten
+            while (fraction > 0 && value != 0)
+            {
+                int scale = Math.min(fraction, POWERS_OF_TEN.length - 1);
+                value /= POWERS_OF_TEN[scale];
+                fraction -= scale;
+            }
         }
-        return value;
+        else if (overflow > 0)
+        {
+            value *= POWERS_OF_TEN[Math.min(overflow, POWERS_OF_TEN.length - 1)];
+        }
+        return (float)(neg ? -value : value);
     }
     
     /**
@@ -415,12 +800,11 @@ public class PDFParser extends BaseWatchable
      * @return the string with escape sequences replaced with their
      * values
      */
-    private String readString()
+    private String readString() throws IOException
     {
         int parenLevel = 0;
         StringBuffer sb = new StringBuffer();
-        int len = stream.length;
-        while (loc < len)
+        while (ensure(1))
         {
             int c = stream[loc++];
             if (c == ')')
@@ -437,17 +821,21 @@ public class PDFParser extends BaseWatchable
             else if (c == '\\')
             {
                 // escape sequences
+                if (!ensure(1))
+                {
+                    break;
+                }
                 c = stream[loc++];
                 if (c >= '0' && c < '8') {
                     int count = 0;
                     int val = 0;
-                    while (c >= '0' && c < '8' && count < 3)
+                    loc--;
+                    while (count < 3 && ensure(1) && (c = stream[loc]) >= '0' && c < '8')
                     {
                         val = val * 8 + c - '0';
-                        c = stream[loc++];
+                        loc++;
                         count++;
                     }
-                    loc--;
                     c = val;
                 }
                 else if (c == 'n')
@@ -488,7 +876,7 @@ public class PDFParser extends BaseWatchable
      *
      * @return the byte array
      */
-    private String readByteArray()
+    private String readByteArray() throws IOException
     {
         StringBuffer buf = new StringBuffer();
         
@@ -496,8 +884,7 @@ public class PDFParser extends BaseWatchable
         char w = (char)0;
         
         // read individual bytes and format into a character arra
-        int len = stream.length;
-        while ((loc < len) && (stream[loc] != '>'))
+        while (ensure(1) && (stream[loc] != '>'))
         {
             char c = (char)stream[loc];
             byte b = (byte)0;
@@ -549,7 +936,12 @@ public class PDFParser extends BaseWatchable
      */
     public void setup()
     {
-        stack = new Stack();
+        operandTypes = new int[16];
+        operandValues = new float[16];
+        operandStarts = new int[16];
+        operandLengths = new int[16];
+        operandObjects = new Object[16];
+        operandCount = 0;
         parserStates = new Stack();
         state = new ParserState();
         path = new Geometry();
@@ -586,489 +978,587 @@ public class PDFParser extends BaseWatchable
         cmds = (PDFPage)pageRef.get();
         if (cmds == null)
         {
-            System.out.println("Page gone.  Stopping");
+            DebugLog.log("Page gone.  Stopping", DebugLog.WARNING);
             return Watchable.STOPPED;
         }
         
-        Object obj = parseObject();
-        
-        // if there's nothing left to parse, we're done
-        if (obj == null)
+        Tok t = nextToken();
+        if (t.type == Tok.NUM)
         {
-            return Watchable.COMPLETED;
+            pushNumber(t.value);
         }
-        
-        if (obj instanceof Tok)
+        else if (t.type == Tok.NAME)
+        {
+            pushName(t.start, t.length);
+        }
+        else if (t.type == Tok.CMD)
         {
             // it's a command.  figure out what to do.
             // (if not, the token will be "pushed" onto the stack)
-            String cmd = ((Tok)obj).name;
-            debug(com.sun.pdfview.ResourceManager.getResource(com.sun.pdfview.ResourceManager.LOCALIZATION).getFormattedString(com.sun.pdfview.i18n.ResourcesResource.PARSER_CMD_STACK_SIZE, new Object[]{cmd, new Integer(stack.size())}), 0);
-            if (cmd.equals("q"))
-            {
-                // push the parser state
-                parserStates.push((ParserState)state.clone());
-                
-                // push graphics state
-                cmds.addPush();
-            }
-            else if (cmd.equals("Q"))
-            {
-                processQCmd();
-            }
-            else if (cmd.equals("cm"))
-            {
-                // set transform to array of values
-                float[] elts = popFloat(6);
-                AffineTransform xform = new AffineTransform(elts);
-                cmds.addXform(xform);
-            }
-            else if (cmd.equals("w"))
-            {
-                // set stroke width
-                cmds.addStrokeWidth(popFloat());
-            }
-            else if (cmd.equals("J"))
-            {
-                // set end cap style
-                cmds.addEndCap(popInt());
-            }
-            else if (cmd.equals("j"))
-            {
-                // set line join style
-                cmds.addLineJoin(popInt());
-            }
-            else if (cmd.equals("M"))
-            {
-                // set miter limit
-                cmds.addMiterLimit(popInt());
-            }
-            else if (cmd.equals("d"))
-            {
-                // set dash style and phase
-                float phase = popFloat();
-                float[] dashary = popFloatArray();
-                cmds.addDash(dashary, phase);
-            }
-            else if (cmd.equals("ri"))
-            {
-                // TODO: do something with rendering intent (page 197)
-            }
-            else if (cmd.equals("i"))
-            {
-                popFloat();
-                // TODO: do something with flatness tolerance
-            }
-            else if (cmd.equals("gs"))
-            {
-                // set graphics state to values in a named dictionary
-                setGSState(popString());
-            }
-            else if (cmd.equals("m"))
-            {
-                // path move to
-                float y = popFloat();
-                float x = popFloat();
-                path.moveTo(x, y);
-            }
-            else if (cmd.equals("l"))
-            {
-                // path line to
-                float y = popFloat();
-                float x = popFloat();
-                path.lineTo(x, y);
-            }
-            else if (cmd.equals("c"))
-            {
-                // path curve to
-                float[] a = popFloat(6);
-                path.curveTo(a[0], a[1], a[2], a[3], a[4], a[5]);
-            }
-            else if (cmd.equals("v"))
-            {
-                // path curve; first control point= start
-                float[] a = popFloat(4);
-                XYPointFloat cp = path.getCurrentPoint();
-                path.curveTo(cp.x, cp.y, a[0], a[1], a[2], a[3]);
-            }
-            else if (cmd.equals("y"))
-            {
-                // path curve; last control point= end
-                float[] a = popFloat(4);
-                path.curveTo(a[0], a[1], a[2], a[3], a[2], a[3]);
-            }
-            else if (cmd.equals("h"))
-            {
-                // path close
-                path.closePath();
-            }
-            else if (cmd.equals("re"))
-            {
-                // path add rectangle
-                float[] a = popFloat(4);
-                path.moveTo(a[0], a[1]);
-                path.lineTo(a[0] + a[2], a[1]);
-                path.lineTo(a[0] + a[2], a[1] + a[3]);
-                path.lineTo(a[0], a[1] + a[3]);
-                path.closePath();
-            }
-            else if (cmd.equals("S"))
+            int op = t.op;
+            if (countOperators)
             {
-                // stroke the path
-                cmds.addPath(path, PDFShapeCmd.STROKE | clip);
-                clip = 0;
-                path = new Geometry();
+                operatorCounts[op]++;
             }
-            else if (cmd.equals("s"))
+            String cmd = operatorName(op, t.start, t.length);
+            if (DebugLog.ENABLED && DebugLog.isLoggable(0))
             {
-                // close and stroke the path
-                path.closePath();
-                cmds.addPath(path, PDFShapeCmd.STROKE | clip);
-                clip = 0;
-                path = new Geometry();
+                DebugLog.log(ResourcesResource.PARSER_CMD_STACK_SIZE, new Object[]{cmd, new Integer(operandCount)}, 0);
             }
-            else if (cmd.equals("f") || cmd.equals("F"))
+            switch (op)
             {
-                // fill the path (close/not close identical)
-                cmds.addPath(path, PDFShapeCmd.FILL | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("f*"))
-            {
-                // fill the path using even/odd rule
-                path.setWindingRule(Geometry.WIND_EVEN_ODD);
-                cmds.addPath(path, PDFShapeCmd.FILL | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("B"))
-            {
-                // fill and stroke the path
-                cmds.addPath(path, PDFShapeCmd.BOTH | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("B*"))
-            {
-                // fill path using even/odd rule and stroke it
-                path.setWindingRule(Geometry.WIND_EVEN_ODD);
-                cmds.addPath(path, PDFShapeCmd.BOTH | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("b"))
-            {
-                // close the path, then fill and stroke it
-                path.closePath();
-                cmds.addPath(path, PDFShapeCmd.BOTH | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("b*"))
-            {
-                // close path, fill using even/odd rule, then stroke it
-                path.closePath();
-                path.setWindingRule(Geometry.WIND_EVEN_ODD);
-                cmds.addPath(path, PDFShapeCmd.BOTH | clip);
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("n"))
-            {
-                // clip with the path and discard it
-                if (clip != 0)
+                case OP_q:
+                {
+                    // push the parser state
+                    parserStates.push((ParserState)state.clone());
+                
+                    // push graphics state
+                    cmds.addPush();
+                    break;
+                }
+                case OP_Q:
+                {
+                    processQCmd();
+                    break;
+                }
+                case OP_cm:
+                {
+                    // set transform to array of values
+                    float[] elts = popFloat(6);
+                    AffineTransform xform = new AffineTransform(elts);
+                    cmds.addXform(xform);
+                    break;
+                }
+                case OP_w:
+                {
+                    // set stroke width
+                    cmds.addStrokeWidth(popFloat());
+                    break;
+                }
+                case OP_J:
+                {
+                    // set end cap style
+                    cmds.addEndCap(popInt());
+                    break;
+                }
+                case OP_j:
+                {
+                    // set line join style
+                    cmds.addLineJoin(popInt());
+                    break;
+                }
+                case OP_M:
+                {
+                    // set miter limit
+                    cmds.addMiterLimit(popInt());
+                    break;
+                }
+                case OP_d:
+                {
+                    // set dash style and phase
+                    float phase = popFloat();
+                    float[] dashary = popFloatArray();
+                    cmds.addDash(dashary, phase);
+                    break;
+                }
+                case OP_ri:
+                {
+                    // TODO: do something with rendering intent (page 197)
+                    break;
+                }
+                case OP_i:
+                {
+                    popFloat();
+                    // TODO: do something with flatness tolerance
+                    break;
+                }
+                case OP_gs:
+                {
+                    // set graphics state to values in a named dictionary
+                    setGSState(popString());
+                    break;
+                }
+                case OP_m:
+                {
+                    // path move to
+                    float y = popFloat();
+                    float x = popFloat();
+                    path.moveTo(x, y);
+                    break;
+                }
+                case OP_l:
+                {
+                    // path line to
+                    float y = popFloat();
+                    float x = popFloat();
+                    path.lineTo(x, y);
+                    break;
+                }
+                case OP_c:
+                {
+                    // path curve to
+                    float[] a = popFloat(6);
+                    path.curveTo(a[0], a[1], a[2], a[3], a[4], a[5]);
+                    break;
+                }
+                case OP_v:
+                {
+                    // path curve; first control point= start
+                    float[] a = popFloat(4);
+                    XYPointFloat cp = path.getCurrentPoint();
+                    path.curveTo(cp.x, cp.y, a[0], a[1], a[2], a[3]);
+                    break;
+                }
+                case OP_y:
+                {
+                    // path curve; last control point= end
+                    float[] a = popFloat(4);
+                    path.curveTo(a[0], a[1], a[2], a[3], a[2], a[3]);
+                    break;
+                }
+                case OP_h:
+                {
+                    // path close
+                    path.closePath();
+                    break;
+                }
+                case OP_re:
+                {
+                    // path add rectangle
+                    float[] a = popFloat(4);
+                    path.moveTo(a[0], a[1]);
+                    path.lineTo(a[0] + a[2], a[1]);
+                    path.lineTo(a[0] + a[2], a[1] + a[3]);
+                    path.lineTo(a[0], a[1] + a[3]);
+                    path.closePath();
+                    break;
+                }
+                case OP_S:
+                {
+                    // stroke the path
+                    cmds.addPath(path, PDFShapeCmd.STROKE | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_s:
+                {
+                    // close and stroke the path
+                    path.closePath();
+                    cmds.addPath(path, PDFShapeCmd.STROKE | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_f:
+                case OP_F:
+                {
+                    // fill the path (close/not close identical)
+                    cmds.addPath(path, PDFShapeCmd.FILL | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_fSTAR:
+                {
+                    // fill the path using even/odd rule
+                    path.setWindingRule(Geometry.WIND_EVEN_ODD);
+                    cmds.addPath(path, PDFShapeCmd.FILL | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_B:
+                {
+                    // fill and stroke the path
+                    cmds.addPath(path, PDFShapeCmd.BOTH | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_BSTAR:
+                {
+                    // fill path using even/odd rule and stroke it
+                    path.setWindingRule(Geometry.WIND_EVEN_ODD);
+                    cmds.addPath(path, PDFShapeCmd.BOTH | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_b:
+                {
+                    // close the path, then fill and stroke it
+                    path.closePath();
+                    cmds.addPath(path, PDFShapeCmd.BOTH | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_bSTAR:
+                {
+                    // close path, fill using even/odd rule, then stroke it
+                    path.closePath();
+                    path.setWindingRule(Geometry.WIND_EVEN_ODD);
+                    cmds.addPath(path, PDFShapeCmd.BOTH | clip);
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_n:
+                {
+                    // clip with the path and discard it
+                    if (clip != 0)
+                    {
+                        cmds.addPath(path, clip);
+                    }
+                    clip = 0;
+                    path = new Geometry();
+                    break;
+                }
+                case OP_W:
+                {
+                    // mark this path for clipping!
+                    clip = PDFShapeCmd.CLIP;
+                    break;
+                }
+                case OP_WSTAR:
+                {
+                    // mark this path using even/odd rule for clipping
+                    path.setWindingRule(Geometry.WIND_EVEN_ODD);
+                    clip = PDFShapeCmd.CLIP;
+                    break;
+                }
+                case OP_sh:
+                {
+                    // shade a region that is defined by the shader itself.
+                    // shading the current space from a dictionary
+                    // should only be used for limited-dimension shadings
+                    String gdictname = popString();
+                    // set up the pen to do a gradient fill according
+                    // to the dictionary
+                    PDFObject shobj = findResource(gdictname, "Shading");
+                    doShader(shobj);
+                    break;
+                }
+                case OP_CS:
+                {
+                    // set the stroke color space
+                    state.strokeCS = parseColorSpace(new PDFObject(popOperand()));
+                    break;
+                }
+                case OP_cs:
+                {
+                    // set the fill color space
+                    state.fillCS = parseColorSpace(new PDFObject(popOperand()));
+                    break;
+                }
+                case OP_SC:
+                {
+                    // set the stroke color
+                    int n = state.strokeCS.getNumComponents();
+                    cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(n)));
+                    break;
+                }
+                case OP_SCN:
+                {
+                    if (state.strokeCS instanceof PatternSpace)
+                    {
+                        cmds.addFillPaint(doPattern((PatternSpace) state.strokeCS));
+                    } 
+                    else
+                    {
+                        int n = state.strokeCS.getNumComponents();
+                        cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(n)));
+                    }
+                    break;
+                }
+                case OP_sc:
+                {
+                    // set the fill color
+                    int n = state.fillCS.getNumComponents();
+                    cmds.addFillPaint(state.fillCS.getPaint(popFloat(n)));
+                    break;
+                }
+                case OP_scn:
+                {
+                    if (state.fillCS instanceof PatternSpace)
+                    {
+                        cmds.addFillPaint(doPattern((PatternSpace) state.fillCS));
+                    }
+                    else
+                    {
+                        int n = state.fillCS.getNumComponents();
+                        cmds.addFillPaint(state.fillCS.getPaint(popFloat(n)));
+                    }
+                    break;
+                }
+                case OP_G:
+                {
+                    // set the stroke color to a Gray value
+                    state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_GRAY);
+                    cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(1)));
+                    break;
+                }
+                case OP_g:
+                {
+                    // set the fill color to a Gray value
+                    state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_GRAY);
+                    cmds.addFillPaint(state.fillCS.getPaint(popFloat(1)));
+                    break;
+                }
+                case OP_RG:
+                {
+                    // set the stroke color to an RGB value
+                    state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_RGB);
+                    cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(3)));
+                    break;
+                }
+                case OP_rg:
+                {
+                    // set the fill color to an RGB value
+                    state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_RGB);
+                    cmds.addFillPaint(state.fillCS.getPaint(popFloat(3)));
+                    break;
+                }
+                case OP_K:
+                {
+                    // set the stroke color to a CMYK value
+                    state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_CMYK);
+                    cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(4)));
+                    break;
+                }
+                case OP_k:
                 {
-                    cmds.addPath(path, clip);
+                    // set the fill color to a CMYK value
+                    state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_CMYK);
+                    cmds.addFillPaint(state.fillCS.getPaint(popFloat(4)));
+                    break;
                 }
-                clip = 0;
-                path = new Geometry();
-            }
-            else if (cmd.equals("W"))
-            {
-                // mark this path for clipping!
-                clip = PDFShapeCmd.CLIP;
-            }
-            else if (cmd.equals("W*"))
-            {
-                // mark this path using even/odd rule for clipping
-                path.setWindingRule(Geometry.WIND_EVEN_ODD);
-                clip = PDFShapeCmd.CLIP;
-            }
-            else if (cmd.equals("sh"))
-            {
-                // shade a region that is defined by the shader itself.
-                // shading the current space from a dictionary
-                // should only be used for limited-dimension shadings
-                String gdictname = popString();
-                // set up the pen to do a gradient fill according
-                // to the dictionary
-                PDFObject shobj = findResource(gdictname, "Shading");
-                doShader(shobj);
-            }
-            else if (cmd.equals("CS"))
-            {
-                // set the stroke color space
-                state.strokeCS = parseColorSpace(new PDFObject(stack.pop()));
-            }
-            else if (cmd.equals("cs"))
-            {
-                // set the fill color space
-                state.fillCS = parseColorSpace(new PDFObject(stack.pop()));
-            }
-            else if (cmd.equals("SC"))
-            {
-                // set the stroke color
-                int n = state.strokeCS.getNumComponents();
-                cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(n)));
-            }
-            else if (cmd.equals("SCN"))
-            {
-                if (state.strokeCS instanceof PatternSpace)
+                case OP_Do:
                 {
-                    cmds.addFillPaint(doPattern((PatternSpace) state.strokeCS));
-                } 
-                else
+                    // make a do call on the referenced object
+                    PDFObject xobj = findResource(popString(), "XObject");
+                    doXObject(xobj);
+                    break;
+                }
+                case OP_BT:
                 {
-                    int n = state.strokeCS.getNumComponents();
-                    cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(n)));
+                    processBTCmd();
+                    break;
                 }
-            }
-            else if (cmd.equals("sc"))
-            {
-                // set the fill color
-                int n = state.fillCS.getNumComponents();
-                cmds.addFillPaint(state.fillCS.getPaint(popFloat(n)));
-            }
-            else if (cmd.equals("scn"))
-            {
-                if (state.fillCS instanceof PatternSpace)
+                case OP_ET:
                 {
-                    cmds.addFillPaint(doPattern((PatternSpace) state.fillCS));
+                    // end of text.  noop
+                    state.textFormat.end();
+                    break;
                 }
-                else
+                case OP_Tc:
                 {
-                    int n = state.fillCS.getNumComponents();
-                    cmds.addFillPaint(state.fillCS.getPaint(popFloat(n)));
+                    // set character spacing
+                    state.textFormat.setCharSpacing(popFloat());
+                    break;
                 }
-            }
-            else if (cmd.equals("G"))
-            {
-                // set the stroke color to a Gray value
-                state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_GRAY);
-                cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(1)));
-            }
-            else if (cmd.equals("g"))
-            {
-                // set the fill color to a Gray value
-                state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_GRAY);
-                cmds.addFillPaint(state.fillCS.getPaint(popFloat(1)));
-            }
-            else if (cmd.equals("RG"))
-            {
-                // set the stroke color to an RGB value
-                state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_RGB);
-                cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(3)));
-            }
-            else if (cmd.equals("rg"))
-            {
-                // set the fill color to an RGB value
-                state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_RGB);
-                cmds.addFillPaint(state.fillCS.getPaint(popFloat(3)));
-            }
-            else if (cmd.equals("K"))
-            {
-                // set the stroke color to a CMYK value
-                state.strokeCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_CMYK);
-                cmds.addStrokePaint(state.strokeCS.getPaint(popFloat(4)));
-            }
-            else if (cmd.equals("k"))
-            {
-                // set the fill color to a CMYK value
-                state.fillCS = PDFColorSpace.getColorSpace(PDFColorSpace.COLORSPACE_CMYK);
-                cmds.addFillPaint(state.fillCS.getPaint(popFloat(4)));
-            }
-            else if (cmd.equals("Do"))
-            {
-                // make a do call on the referenced object
-                PDFObject xobj = findResource(popString(), "XObject");
-                doXObject(xobj);
-            }
-            else if (cmd.equals("BT"))
-            {
-                processBTCmd();
-            }
-            else if (cmd.equals("ET"))
-            {
-                // end of text.  noop
-                state.textFormat.end();
-            }
-            else if (cmd.equals("Tc"))
-            {
-                // set character spacing
-                state.textFormat.setCharSpacing(popFloat());
-            }
-            else if (cmd.equals("Tw"))
-            {
-                // set word spacing
-                state.textFormat.setWordSpacing(popFloat());
-            }
-            else if (cmd.equals("Tz"))
-            {
-                // set horizontal scaling
-                state.textFormat.setHorizontalScale(popFloat());
-            }
-            else if (cmd.equals("TL"))
-            {
-                // set leading
-                state.textFormat.setLeading(popFloat());
-            }
-            else if (cmd.equals("Tf"))
-            {
-                // set text font
-                float sz = popFloat();
-                String fontref = popString();
-                state.textFormat.setFont(getFontFrom(fontref), sz);
-            }
-            else if (cmd.equals("Tr"))
-            {
-                // set text rendering mode
-                state.textFormat.setMode(popInt());
-            }
-            else if (cmd.equals("Ts"))
-            {
-                // set text rise
-                state.textFormat.setRise(popFloat());
-            }
-            else if (cmd.equals("Td"))
-            {
-                // set text matrix location
-                float y = popFloat();
-                float x = popFloat();
-                state.textFormat.carriageReturn(x, y);
-            }
-            else if (cmd.equals("TD"))
-            {
-                // set leading and matrix:  -y TL x y Td
-                float y = popFloat();
-                float x = popFloat();
-                state.textFormat.setLeading(-y);
-                state.textFormat.carriageReturn(x, y);
-            }
-            else if (cmd.equals("Tm"))
-            {
-                // set text matrix
-                state.textFormat.setMatrix(popFloat(6));
-            }
-            else if (cmd.equals("T*"))
-            {
-                // go to next line
-                state.textFormat.carriageReturn();
-            }
-            else if (cmd.equals("Tj"))
-            {
-                // show text
-                state.textFormat.doText(cmds, popString());
-            }
-            else if (cmd.equals("\'"))
-            {
-                // next line and show text:  T* string Tj
-                state.textFormat.carriageReturn();
-                state.textFormat.doText(cmds, popString());
-            }
-            else if (cmd.equals("\""))
-            {
-                // draw string on new line with char & word spacing:
-                // aw Tw ac Tc string '
-                String string = popString();
-                float ac = popFloat();
-                float aw = popFloat();
-                state.textFormat.setWordSpacing(aw);
-                state.textFormat.setCharSpacing(ac);
-                state.textFormat.doText(cmds, string);
-            }
-            else if (cmd.equals("TJ"))
-            {
-                // show kerned string
-                state.textFormat.doText(cmds, popArray());
-            }
-            else if (cmd.equals("BI"))
-            {
-                // parse inline image
-                parseInlineImage();
-            }
-            else if (cmd.equals("BX"))
-            {
-                catchexceptions = true;     // ignore errors
-            }
-            else if (cmd.equals("EX"))
-            {
-                catchexceptions = false;    // stop ignoring errors
-            }
-            else if (cmd.equals("MP"))
-            {
-                // mark point (role= mark role name)
-                popString();
-            }
-            else if (cmd.equals("DP"))
-            {
-                // mark point with dictionary (role, ref)
-                // ref is either inline dict or name in "Properties" rsrc
-                Object ref = stack.pop();
-                popString();
-            }
-            else if (cmd.equals("BMC"))
-            {
-                // begin marked content (role)
-                popString();
-            }
-            else if (cmd.equals("BDC"))
-            {
-                // begin marked content with dict (role, ref)
-                // ref is either inline dict or name in "Properties" rsrc
-                Object ref = stack.pop();
-                popString();
-            }
-            else if (cmd.equals("EMC"))
-            {
-                // end marked content
-            }
-            else if (cmd.equals("d0"))
-            {
-                // character width in type3 fonts
-                popFloat(2);
-            }
-            else if (cmd.equals("d1"))
-            {
-                // character width in type3 fonts
-                popFloat(6);
-            }
-            else if (cmd.equals("QBT")) // 'Q' & 'BT' mushed together!
-            {
-                processQCmd();
-                processBTCmd();
-            }
-            else
-            {
-            	Object[] args = new Object[]{cmd};
-                if (catchexceptions)
+                case OP_Tw:
                 {
-                    debug(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_ITERATE_UNK_CMD_DBG, args), 10);
+                    // set word spacing
+                    state.textFormat.setWordSpacing(popFloat());
+                    break;
                 }
-                else
+                case OP_Tz:
+                {
+                    // set horizontal scaling
+                    state.textFormat.setHorizontalScale(popFloat());
+                    break;
+                }
+                case OP_TL:
+                {
+                    // set leading
+                    state.textFormat.setLeading(popFloat());
+                    break;
+                }
+                case OP_Tf:
+                {
+                    // set text font
+                    float sz = popFloat();
+                    String fontref = popString();
+                    state.textFormat.setFont(getFontFrom(fontref), sz);
+                    break;
+                }
+                case OP_Tr:
+                {
+                    // set text rendering mode
+                    state.textFormat.setMode(popInt());
+                    break;
+                }
+                case OP_Ts:
+                {
+                    // set text rise
+                    state.textFormat.setRise(popFloat());
+                    break;
+                }
+                case OP_Td:
+                {
+                    // set text matrix location
+                    float y = popFloat();
+                    float x = popFloat();
+                    state.textFormat.carriageReturn(x, y);
+                    break;
+                }
+                case OP_TD:
+                {
+                    // set leading and matrix:  -y TL x y Td
+                    float y = popFloat();
+                    float x = popFloat();
+                    state.textFormat.setLeading(-y);
+                    state.textFormat.carriageReturn(x, y);
+                    break;
+                }
+                case OP_Tm:
+                {
+                    // set text matrix
+                    state.textFormat.setMatrix(popFloat(6));
+                    break;
+                }
+                case OP_TSTAR:
+                {
+                    // go to next line
+                    state.textFormat.carriageReturn();
+                    break;
+                }
+                case OP_Tj:
+                {
+                    // show text
+                    state.textFormat.doText(cmds, popString());
+                    break;
+                }
+                case OP_QUOTE:
+                {
+                    // next line and show text:  T* string Tj
+                    state.textFormat.carriageReturn();
+                    state.textFormat.doText(cmds, popString());
+                    break;
+                }
+                case OP_DQUOTE:
+                {
+                    // draw string on new line with char & word spacing:
+                    // aw Tw ac Tc string '
+                    String string = popString();
+                    float ac = popFloat();
+                    float aw = popFloat();
+                    state.textFormat.setWordSpacing(aw);
+                    state.textFormat.setCharSpacing(ac);
+                    state.textFormat.doText(cmds, string);
+                    break;
+                }
+                case OP_TJ:
+                {
+                    // show kerned string
+                    state.textFormat.doText(cmds, popArray());
+                    break;
+                }
+                case OP_BI:
+                {
+                    // parse inline image
+                    parseInlineImage();
+                    break;
+                }
+                case OP_BX:
+                {
+                    catchexceptions = true;     // ignore errors
+                    break;
+                }
+                case OP_EX:
+                {
+                    catchexceptions = false;    // stop ignoring errors
+                    break;
+                }
+                case OP_MP:
+                {
+                    // mark point (role= mark role name)
+                    popString();
+                    break;
+                }
+                case OP_DP:
+                {
+                    // mark point with dictionary (role, ref)
+                    // ref is either inline dict or name in "Properties" rsrc
+                    Object ref = popOperand();
+                    popString();
+                    break;
+                }
+                case OP_BMC:
+                {
+                    // begin marked content (role)
+                    popString();
+                    break;
+                }
+                case OP_BDC:
+                {
+                    // begin marked content with dict (role, ref)
+                    // ref is either inline dict or name in "Properties" rsrc
+                    Object ref = popOperand();
+                    popString();
+                    break;
+                }
+                case OP_EMC:
+                {
+                    // end marked content
+                    break;
+                }
+                case OP_d0:
+                {
+                    // character width in type3 fonts
+                    popFloat(2);
+                    break;
+                }
+                case OP_d1:
+                {
+                    // character width in type3 fonts
+                    popFloat(6);
+                    break;
+                }
+                case OP_QBT: // 'Q' & 'BT' mushed together!
+                {
+                    processQCmd();
+                    processBTCmd();
+                    break;
+                }
+                default:
                 {
-                    throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_ITERATE_UNK_CMD, args));
+                    if (catchexceptions)
+                    {
+                        if (DebugLog.ENABLED && DebugLog.isLoggable(10))
+                        {
+                            DebugLog.log(ResourcesResource.PARSER_ITERATE_UNK_CMD_DBG, new Object[]{cmd}, 10);
+                        }
+                    }
+                    else
+                    {
+                        throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_ITERATE_UNK_CMD, new Object[]{cmd}));
+                    }
+                    break;
                 }
             }
-            if (stack.size() != 0)
+            if (operandCount != 0)
             {
-                debug(com.sun.pdfview.ResourceManager.getResource(com.sun.pdfview.ResourceManager.LOCALIZATION).getFormattedString(com.sun.pdfview.i18n.ResourcesResource.PARSER_CMD_STACK_NOT_EMPTY, new Object[]{cmd, new Integer(stack.size())}), 4);
-                stack.setSize(0);
+                if (DebugLog.ENABLED && DebugLog.isLoggable(4))
+                {
+                    DebugLog.log(ResourcesResource.PARSER_CMD_STACK_NOT_EMPTY, new Object[]{cmd, new Integer(operandCount)}, 4);
+                }
+                clearOperands();
             }
         }
         else
         {
-            stack.push(obj);
+            throwback();
+            Object obj = parseObject();
+            
+            // if there's nothing left to parse, we're done
+            if (obj == null)
+            {
+                return Watchable.COMPLETED;
+            }
+            pushObject(obj);
         }
         
         // release or reference to the page object, so that it can be
@@ -1114,11 +1604,26 @@ public class PDFParser extends BaseWatchable
     		cmds.finish();
     	}
         
-        stack = null;
+        operandTypes = null;
+        operandValues = null;
+        operandStarts = null;
+        operandLengths = null;
+        operandObjects = null;
+        operandCount = 0;
         parserStates = null;
         state = null;
         path = null;
         cmds = null;
+        if (input != null)
+        {
+            try
+            {
+                input.close();
+            }
+            catch (IOException ioe)
+            { /* Do nothing */ }
+            input = null;
+        }
     }
     
     boolean errorwritten = false;
@@ -1140,7 +1645,7 @@ public class PDFParser extends BaseWatchable
         		oops.create();
         	}
         	OutputStream fos = oops.openOutputStream();
-            fos.write(stream);
+            fos.write(stream, 0, end);
             fos.close();
             oops.close();
         }
@@ -1150,7 +1655,7 @@ public class PDFParser extends BaseWatchable
 
     public String dumpStream()
     {
-        return escape(new String(stream).replace('\r', '\n'));
+        return escape(new String(stream, 0, end).replace('\r', '\n'));
     }
     
     /**
@@ -1316,9 +1821,9 @@ public class PDFParser extends BaseWatchable
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_UNK_PATTERN, new Object[]{patternName}));
         }
         
-        if (stack.size() > 0)
+        if (operandCount > 0)
         {
-            components = popFloat(stack.size());
+            components = popFloat(operandCount);
         }
         
         return patternSpace.getPaint(pattern, components, resources);
@@ -1327,22 +1832,22 @@ public class PDFParser extends BaseWatchable
     /**
      * Parse the next object out of the PDF stream.  This could be a
      * Double, a String, a HashMap (dictionary), Object[] array, or
-     * a Tok containing a PDF command.
+     * a Boolean or String for a keyword.
      */
-    private Object parseObject() throws PDFParseException
+    private Object parseObject() throws IOException
     {
         Tok t = nextToken();
         if (t.type == Tok.NUM)
         {
-            return new Double(tok.value);
+            return new Double(t.value);
         }
         else if (t.type == Tok.STR)
         {
-            return tok.name;
+            return t.name;
         }
         else if (t.type == Tok.NAME)
         {
-            return tok.name;
+            return t.getName();
         }
         else if (t.type == Tok.BRKB)
         {
@@ -1386,9 +1891,22 @@ public class PDFParser extends BaseWatchable
         }
         else if (t.type == Tok.CMD)
         {
-            return t;
+            // a keyword within an array or dictionary
+            String name = t.getName();
+            if (name.equals("true"))
+            {
+                return Boolean.TRUE;
+            }
+            else if (name.equals("false"))
+            {
+                return Boolean.FALSE;
+            }
+            return name;
+        }
+        if (DebugLog.ENABLED && DebugLog.isLoggable(4))
+        {
+            DebugLog.log(ResourcesResource.PARSER_PARSEOBJ_UNK_TOKEN, new Object[]{new Integer(t.type)}, 4);
         }
-        debug(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_PARSEOBJ_UNK_TOKEN, new Object[]{new Integer(t.type)}), 4);
         return null;
     }
     
@@ -1404,13 +1922,16 @@ public class PDFParser extends BaseWatchable
         while (true)
         {
             Tok t = nextToken();
-            if (t.type == Tok.CMD && t.name.equals("ID"))
+            if (t.type == Tok.CMD && t.op == OP_ID)
             {
                 break;
             }
             // it should be a name;
-            String name = t.name;
-            debug(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_IMAGE_TOKEN, new Object[]{name}), 1000);
+            String name = t.getName();
+            if (DebugLog.ENABLED && DebugLog.isLoggable(1000))
+            {
+                DebugLog.log(ResourcesResource.PARSER_IMAGE_TOKEN, new Object[]{name}, 1000);
+            }
             if (name.equals("BPC"))
             {
                 name = "BitsPerComponent";
@@ -1450,11 +1971,11 @@ public class PDFParser extends BaseWatchable
             Object vobj = parseObject();
             hm.put(name, new PDFObject(vobj));
         }
-        if (stream[loc] == '\r')
+        if (ensure(1) && stream[loc] == '\r')
         {
             loc++;
         }
-        if (stream[loc] == '\n' || stream[loc] == ' ')
+        if (ensure(1) && (stream[loc] == '\n' || stream[loc] == ' '))
         {
             loc++;
         }
@@ -1477,19 +1998,26 @@ public class PDFParser extends BaseWatchable
         }
         
         PDFObject obj = new PDFObject(null, PDFObject.DICTIONARY, hm);
-        int dstart = loc;
+        // the mark keeps the data in the buffer while it is scanned
+        mark = loc;
         
         // now skip data until a whitespace followed by EI
-        while (!PDFFile.isWhiteSpace(stream[loc]) || stream[loc + 1] != 'E' || stream[loc + 2] != 'I') 
+        boolean found;
+        while ((found = ensure(3)) && (!PDFFile.isWhiteSpace(stream[loc]) || stream[loc + 1] != 'E' || stream[loc + 2] != 'I')) 
         {
             loc++;
         }
+        if (!found)
+        {
+            loc = end;
+        }
+        int dstart = mark;
         
         // data runs from dstart to loc
         byte[] data = new byte[loc - dstart];
         System.arraycopy(stream, dstart, data, 0, loc - dstart);
         obj.setStream(ByteBuffer.wrap(data));
-        loc += 3;
+        loc = Math.min(loc + 3, end);
         doImage(obj);
     }
     
@@ -1593,6 +2121,119 @@ public class PDFParser extends BaseWatchable
         return PDFColorSpace.getColorSpace(csobj, resources);
     }
     
+    /**
+     * push a number onto the stack.
+     */
+    private void pushNumber(float value)
+    {
+        int i = pushIndex(Tok.NUM);
+        operandValues[i] = value;
+    }
+    
+    /**
+     * push a name onto the stack, by its location in the stream.
+     */
+    private void pushName(int start, int length)
+    {
+        int i = pushIndex(Tok.NAME);
+        operandStarts[i] = start;
+        operandLengths[i] = length;
+    }
+    
+    /**
+     * push any other object onto the stack.
+     */
+    private void pushObject(Object obj)
+    {
+        int i = pushIndex(Tok.UNK);
+        operandObjects[i] = obj;
+    }
+    
+    /**
+     * make room for another operand.
+     * @return the index of the new operand
+     */
+    private int pushIndex(int type)
+    {
+        int i = operandCount;
+        if (i == operandTypes.length)
+        {
+            int size = i * 2;
+            int[] types = new int[size];
+            float[] values = new float[size];
+            int[] starts = new int[size];
+            int[] lengths = new int[size];
+            Object[] objects = new Object[size];
+            System.arraycopy(operandTypes, 0, types, 0, i);
+            System.arraycopy(operandValues, 0, values, 0, i);
+            System.arraycopy(operandStarts, 0, starts, 0, i);
+            System.arraycopy(operandLengths, 0, lengths, 0, i);
+            System.arraycopy(operandObjects, 0, objects, 0, i);
+            operandTypes = types;
+            operandValues = values;
+            operandStarts = starts;
+            operandLengths = lengths;
+            operandObjects = objects;
+        }
+        operandTypes[i] = type;
+        operandCount = i + 1;
+        return i;
+    }
+    
+    /**
+     * remove the top operand.
+     * @return the index the operand was at
+     */
+    private int popIndex()
+    {
+        if (operandCount == 0)
+        {
+            throw new EmptyStackException();
+        }
+        return --operandCount;
+    }
+    
+    /**
+     * get the object operand at an index, releasing the stack's reference
+     * to it.
+     */
+    private Object takeObject(int i)
+    {
+        if (operandTypes[i] == Tok.NAME)
+        {
+            return new String(stream, operandStarts[i], operandLengths[i]);
+        }
+        Object obj = operandObjects[i];
+        operandObjects[i] = null;
+        return obj;
+    }
+    
+    /**
+     * pop the top operand as an Object: a Double for a number, a String for
+     * a name, or whatever object was pushed.
+     */
+    private Object popOperand()
+    {
+        int i = popIndex();
+        if (operandTypes[i] == Tok.NUM)
+        {
+            return new Double(operandValues[i]);
+        }
+        return takeObject(i);
+    }
+    
+    /**
+     * remove all the operands from the stack.
+     */
+    private void clearOperands()
+    {
+        for (int i = 0; i < operandCount; i++)
+        {
+            operandObjects[i] = null;
+        }
+        operandCount = 0;
+    }
+    
     /**
      * pop a single float value off the stack.
      * @return the float value of the top of the stack
@@ -1601,7 +2242,12 @@ public class PDFParser extends BaseWatchable
      */
     private float popFloat() throws PDFParseException
     {
-        Object obj = stack.pop();
+        int i = popIndex();
+        if (operandTypes[i] == Tok.NUM)
+        {
+            return operandValues[i];
+        }
+        Object obj = takeObject(i);
         if (obj instanceof Double)
         {
             return ((Double)obj).floatValue();
@@ -1638,7 +2284,12 @@ public class PDFParser extends BaseWatchable
      */
     private int popInt() throws PDFParseException
     {
-        Object obj = stack.pop();
+        int i = popIndex();
+        if (operandTypes[i] == Tok.NUM)
+        {
+            return (int)operandValues[i];
+        }
+        Object obj = takeObject(i);
         if (obj instanceof Double)
         {
             return ((Double)obj).intValue();
@@ -1660,7 +2311,7 @@ public class PDFParser extends BaseWatchable
      */
     private float[] popFloatArray() throws PDFParseException
     {
-        Object obj = stack.pop();
+        Object obj = popOperand();
         if (!(obj instanceof Object[]))
         {
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.PARSER_EXPECTED_ARRAY));
@@ -1690,7 +2341,7 @@ public class PDFParser extends BaseWatchable
      */
     private String popString() throws PDFParseException
     {
-        Object obj = stack.pop();
+        Object obj = popOperand();
         if (!(obj instanceof String))
         {
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_EXPECTED_STRING, new Object[]{obj.toString()}));
@@ -1709,7 +2360,7 @@ public class PDFParser extends BaseWatchable
      */
     private PDFObject popObject() throws PDFParseException
     {
-        Object obj = stack.pop();
+        Object obj = popOperand();
         if (!(obj instanceof PDFObject))
         {
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_EXPECTED_REFERENCE, new Object[]{obj.toString()}));
@@ -1725,7 +2376,7 @@ public class PDFParser extends BaseWatchable
      */
     private Object[] popArray() throws PDFParseException
     {
-        Object obj = stack.pop();
+        Object obj = popOperand();
         if (!(obj instanceof Object[]))
         {
             throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.PARSER_EXPECTED_ARRAY_FMT, new Object[]{obj.toString()}));
@@ -42,8 +42,6 @@ import com.sun.pdfview.helper.graphics.Geometry;
 import com.sun.pdfview.helper.graphics.GfxUtil;
 import com.sun.pdfview.helper.graphics.Paint;
 
-import com.sun.pdfview.i18n.ResourcesResource;
-
 /**
  * This class turns a set of PDF Commands from a PDF page into an image.  It
  * encapsulates the state of drawing in terms of stroke, fill, transform,
@@ -72,6 +70,18 @@ public class PDFRenderer extends BaseWatchable implements Runnable
     private GraphicsState state;
     /** the stack of push()ed graphics states */
     private Stack stack;
+    /** a transform to load packed transforms into */
+    private AffineTransform scratchTransform;
+    /** the transform saved while a shared outline is drawn */
+    private AffineTransform instanceTransform;
+    /** the region of the page being drawn, in page space, or null if it
+     * is the whole page.  Commands that draw entirely outside it are
+     * skipped. */
+    private XYRectFloat cullRegion;
+    /** if true, this is a quick draft of the page: small shapes are drawn
+     * as boxes, patterns and shadings as solid colors, and images that
+     * haven't been decoded yet as grey boxes */
+    private boolean draft;
     /** the total region of this image that has been written to */
     private XYRectFloat globalDirtyRegion;
     /** the last shape we drew (to check for overlaps) */
@@ -84,6 +94,12 @@ public class PDFRenderer extends BaseWatchable implements Runnable
     private XYRectFloat unupdatedRegion;
     /** how long (in milliseconds) to wait between image updates */
     public static final long UPDATE_DURATION = 200;
+    /** how far, in pixels, outside the clip to draw commands */
+    private static final float CULL_MARGIN = 2;
+    /** shapes smaller then this, in pixels, are drawn as boxes in a draft */
+    private static final float GREEK_SIZE = 4;
+    /** the color of images that are left out of a draft */
+    private static final int DRAFT_IMAGE_COLOR = 0xFFC0C0C0;
     public static final float NOPHASE = -1000;
     public static final float NOWIDTH = -1000;
     public static final float NOLIMIT = -1000;
@@ -180,6 +196,19 @@ public class PDFRenderer extends BaseWatchable implements Runnable
         
         // initialize the current command
         currentCommand = 0;
+        
+        draft = imageinfo.draft;
+        
+        // only draw what can be seen when drawing part of a page.  Allow a
+        // few pixels around the clip for anti-aliasing and thin lines.
+        cullRegion = null;
+        XYRectFloat clip = imageinfo.clip;
+        if (clip != null && imageinfo.width > 0 && imageinfo.height > 0)
+        {
+            double margin = CULL_MARGIN * Math.max(Math.abs(clip.width), Math.abs(clip.height)) / Math.min(imageinfo.width, imageinfo.height);
+            cullRegion = new XYRectFloat(Math.min(clip.x, clip.x + clip.width) - margin, Math.min(clip.y, clip.y + clip.height) - margin,
+            		Math.abs(clip.width) + margin * 2, Math.abs(clip.height) + margin * 2);
+        }
     }
     
     /**
@@ -218,6 +247,10 @@ public class PDFRenderer extends BaseWatchable implements Runnable
     {
         g.setComposite(state.strokeAlpha);
         s = new Geometry(autoAdjustStrokeWidth(g, state.stroke).createStrokedGeometry(s));
+        if (draft)
+        {
+            return getDraftPaint(state.strokePaint).fill(this, g, s);
+        }
         return state.strokePaint.fill(this, g, s);
     }
     
@@ -280,10 +313,89 @@ public class PDFRenderer extends BaseWatchable implements Runnable
      */
     public XYRectFloat fill(Geometry s)
     {
+        if (draft)
+        {
+            return fillDraft(s);
+        }
         g.setComposite(state.fillAlpha);
         return state.fillPaint.fill(this, g, s);
     }
     
+    /**
+     * fill a shared outline, such as a glyph, with its own transform from
+     * the outline's space to user space.  The current transform is put back
+     * afterwards.
+     * @param s the outline
+     * @param matrix the transform, as 6 floats (m00, m10, m01, m11, m02, m12)
+     * @param offset the index of the first float of the transform
+     */
+    XYRectFloat fillInstance(Geometry s, float[] matrix, int offset)
+    {
+        if (instanceTransform == null)
+        {
+            instanceTransform = new AffineTransform();
+        }
+        instanceTransform.set(state.xform);
+        transform(matrix, offset);
+        XYRectFloat rect = null;
+        if (!draft && state.fillPaint.getClass() == PDFPaint.class && GfxUtil.isPaintInternal(state.fillPaint.getPaint()) &&
+        		GfxUtil.isCompositeInternal(state.fillAlpha))
+        {
+            // small glyphs in a solid color are drawn from bitmaps
+            rect = GlyphCache.getDefault().draw(g, s, state.xform, state.fillPaint.getPaint().getColor(), GfxUtil.compositeSrcAlpha(state.fillAlpha));
+        }
+        if (rect == null)
+        {
+            rect = fill(s);
+        }
+        state.xform.set(instanceTransform);
+        g.setTransform(state.xform);
+        
+        // the outline isn't in user space, so the next shape can't be
+        // checked against it for overlap
+        lastShape = null;
+        return rect;
+    }
+    
+    /**
+     * fill an outline for a draft.  Shapes only a few pixels across, which
+     * is mostly text, are filled as a faint box instead.
+     */
+    private XYRectFloat fillDraft(Geometry s)
+    {
+        PDFPaint paint = getDraftPaint(state.fillPaint);
+        XYRectFloat bounds = s.getBounds2D();
+        float[] pts = new float[] {
+            (float)bounds.x, (float)bounds.y,
+            (float)(bounds.x + bounds.width), (float)bounds.y,
+            (float)bounds.x, (float)(bounds.y + bounds.height),
+            (float)(bounds.x + bounds.width), (float)(bounds.y + bounds.height)
+        };
+        g.getTransform().transform(pts, 0, pts, 0, 4);
+        float width = Math.max(Math.abs(pts[6] - pts[0]), Math.abs(pts[4] - pts[2]));
+        float height = Math.max(Math.abs(pts[7] - pts[1]), Math.abs(pts[5] - pts[3]));
+        if (Math.max(width, height) < GREEK_SIZE)
+        {
+            g.setComposite(Composite.getInstance(Composite.SRC_OVER, 0.5f));
+            return paint.fill(this, g, new Geometry(bounds));
+        }
+        g.setComposite(state.fillAlpha);
+        return paint.fill(this, g, s);
+    }
+    
+    /**
+     * get the paint to use in a draft.  Patterns and shadings are replaced
+     * by a solid color, since they are slow to draw.
+     */
+    private static PDFPaint getDraftPaint(PDFPaint paint)
+    {
+        if (paint.getClass() == PDFPaint.class && GfxUtil.isPaintInternal(paint.getPaint()))
+        {
+            return paint;
+        }
+        return PDFPaint.getColorPaint(paint.getPaint().getColor());
+    }
+    
     /**
      * draw an image.
      * @param image the image to draw
@@ -295,13 +407,31 @@ public class PDFRenderer extends BaseWatchable implements Runnable
                 0, -1f / image.getHeight(),
                 0, 1);
 
-        Bitmap bi = image.getImage();
-        if (bi == null)
+        if (draft && !image.isDecoded())
+        {
+            // decoding is the slow part of drawing an image, so a draft
+            // only draws a box where it will be
+            g.setComposite(Composite.getInstance(Composite.SRC_OVER));
+            Geometry box = new Geometry(new XYRectFloat(0, 0, 1, 1));
+            return PDFPaint.getColorPaint(DRAFT_IMAGE_COLOR).fill(this, g, box);
+        }
+        
+        // only decode the part of the image that will be seen, at about
+        // the size it will be drawn
+        AffineTransform it = new AffineTransform(g.getTransform());
+        it.concatenate(at);
+        PDFImage.Decoded decoded = getDecodedImage(image, it);
+        if (decoded == null)
         {
             // maybe it was an unsupported format, or something.
             // Nothing to draw, anyway!
             return new XYRectFloat();
         }
+        Bitmap bi = decoded.image;
+        
+        // map the decoded pixels onto the part of the image they came from
+        at.translate(decoded.x0, decoded.y0);
+        at.scale((float)(decoded.x1 - decoded.x0) / bi.getWidth(), (float)(decoded.y1 - decoded.y0) / bi.getHeight());
         if (image.isImageMask())
         {
             bi = getMaskedImage(bi);
@@ -348,6 +478,57 @@ public class PDFRenderer extends BaseWatchable implements Runnable
 
     }
     
+    /**
+     * Get the part of an image that is inside the image being rendered,
+     * decoded at about the size it will be drawn at.
+     * @param image the image to draw
+     * @param it the transform from image pixels to device pixels
+     * @return the decoded image, or null if none of it can be seen or it
+     * can't be decoded
+     */
+    private PDFImage.Decoded getDecodedImage(PDFImage image, AffineTransform it)
+    {
+        int x0 = 0;
+        int y0 = 0;
+        int x1 = image.getWidth();
+        int y1 = image.getHeight();
+        
+        AffineTransform inverse = new AffineTransform();
+        if (imageinfo.width > 0 && imageinfo.height > 0 && it.invert(inverse))
+        {
+            float[] points = new float[]{
+                0, 0, imageinfo.width, 0, 0, imageinfo.height, imageinfo.width, imageinfo.height
+            };
+            inverse.transform(points, 0, points, 0, 4);
+            float minX = points[0];
+            float minY = points[1];
+            float maxX = minX;
+            float maxY = minY;
+            for (int i = 2; i < 8; i += 2)
+            {
+                minX = Math.min(minX, points[i]);
+                minY = Math.min(minY, points[i + 1]);
+                maxX = Math.max(maxX, points[i]);
+                maxY = Math.max(maxY, points[i + 1]);
+            }
+            x0 = Math.max(x0, (int)Math.floor(minX));
+            y0 = Math.max(y0, (int)Math.floor(minY));
+            x1 = Math.min(x1, (int)Math.ceil(maxX));
+            y1 = Math.min(y1, (int)Math.ceil(maxY));
+            if (x1 <= x0 || y1 <= y0)
+            {
+                return null;
+            }
+        }
+        
+        // the number of device pixels each image pixel covers
+        XYPointFloat xs = it.transformNormal(new XYPointFloat(1, 0), null);
+        XYPointFloat ys = it.transformNormal(new XYPointFloat(0, 1), null);
+        float scale = (float)Math.max(Math.sqrt(xs.x * xs.x + xs.y * xs.y), Math.sqrt(ys.x * ys.x + ys.y * ys.y));
+        
+        return image.getDecoded(PDFImage.getStep(scale), x0, y0, x1, y1);
+    }
+    
     /**
      * add the path to the current clip.  The new clip will be the intersection
      * of the old clip and given path.
@@ -385,6 +566,20 @@ public class PDFRenderer extends BaseWatchable implements Runnable
         g.setTransform(state.xform);
     }
 
+    /**
+     * concatenate a transform, given as 6 floats (m00, m10, m01, m11, m02,
+     * m12), with the current transform
+     */
+    void transform(float[] matrix, int offset)
+    {
+        if (scratchTransform == null)
+        {
+            scratchTransform = new AffineTransform();
+        }
+        scratchTransform.setTransform(matrix[offset], matrix[offset + 1], matrix[offset + 2], matrix[offset + 3], matrix[offset + 4], matrix[offset + 5]);
+        transform(scratchTransform);
+    }
+    
     /**
      * replace the current transform with the given one.
      */
@@ -515,35 +710,51 @@ public class PDFRenderer extends BaseWatchable implements Runnable
     }
     
     /**
-     * Setup rendering.  Called before iteration begins
+     * Get the graphics to draw with, if this batch doesn't have them yet.
+     * 
+     * @return false if the image being rendered into has gone away
      */
-    public void setup()
+    private boolean acquireGraphics()
     {
-        PDFGraphics graphics = null;
-        
-        if (imageRef != null)
+        if (imageRef != null && g == null)
         {
-        	Bitmap bi = (Bitmap)imageRef.get();
-            if (bi != null)
+            Bitmap bi = (Bitmap)imageRef.get();
+            if (bi == null)
             {
-                graphics = PDFGraphics.createGraphics(bi);
+                return false;
             }
+            
+            g = PDFGraphics.createGraphics(bi);
         }
-        else
+        return true;
+    }
+    
+    /**
+     * Let go of the graphics of the image being rendered into, so the
+     * image can be collected.
+     */
+    private void releaseGraphics()
+    {
+        if (imageRef != null)
         {
-            graphics = g;
+            g = null;
         }
-        
-        if (graphics != null)
+    }
+    
+    /**
+     * Setup rendering.  Called before iteration begins
+     */
+    public void setup()
+    {
+        if (acquireGraphics() && g != null)
         {
-            setupRendering(graphics);
+            setupRendering(g);
         }
+        releaseGraphics();
     }
     
     /**
      * Draws the next command in the PDFPage to the buffered image.
-     * The image will be notified about changes no less than every
-     * UPDATE_DURATION milliseconds.
      *
      * @return <ul><li>Watchable.RUNNING when there are commands to be processed
      *             <li>Watchable.NEEDS_DATA when there are no commands to be
@@ -564,22 +775,20 @@ public class PDFRenderer extends BaseWatchable implements Runnable
         
         // check if this renderer is based on a weak reference to a graphics
         // object.  If it is, and the graphics is no longer valid, then just quit
-        Bitmap bi = null;
-        if (imageRef != null)
+        if (!acquireGraphics())
         {
-            bi = (Bitmap)imageRef.get();
-            if (bi == null)
-            {
-                System.out.println("Image went away.  Stopping");
-                return Watchable.STOPPED;
-            }
-            
-            g = PDFGraphics.createGraphics(bi);
+            System.out.println("Image went away.  Stopping");
+            return Watchable.STOPPED;
         }
         
         // check if there are any commands to parse.  If there aren't,
         // just return, but check if we'return really finished or not
-        if (currentCommand >= page.getCommandCount())
+        PDFDisplayList commands = page.getDisplayList();
+        int count = commands.size();
+        
+        // skip anything outside the region being drawn
+        currentCommand = commands.nextVisible(currentCommand, count, cullRegion, this);
+        if (currentCommand >= count)
         {
             if (page.isFinished())
             {
@@ -591,16 +800,9 @@ public class PDFRenderer extends BaseWatchable implements Runnable
             }
         }
         
-        // find the current command
-        PDFCmd cmd = page.getCommand(currentCommand++);
-        if (cmd == null)
-        {
-            // uh oh.  Synchronization problem!
-            throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.RENDERER_CMD_NOT_FOUND));
-        }
-        
-        // execute the command
-        XYRectFloat dirtyRegion = cmd.execute(this);
+        // execute the current command.  Commands below the count can be
+        // read without locking, even while the parser is adding more.
+        XYRectFloat dirtyRegion = commands.execute(currentCommand++, this);
         
         // append to the global dirty region
         globalDirtyRegion = addDirtyRegion(dirtyRegion, globalDirtyRegion);
@@ -617,16 +819,24 @@ public class PDFRenderer extends BaseWatchable implements Runnable
         }
         */
         
+        // if we need to stop, it will be caught at the start of the next
+        // iteration.
+        return Watchable.RUNNING;
+    }
+    
+    /**
+     * Called after each batch of commands.  The graphics are looked up
+     * again, if needed, by the first command of the next batch.  Once
+     * rendering has finished they are kept so cleanup() can finish them.
+     */
+    protected void endBatch()
+    {
         // if we are based on a reference to a graphics, don't hold on to it
         // since that will prevent the image from being collected.
-        if (imageRef != null)
+        if (!isFinished())
         {
-            g = null;
+            releaseGraphics();
         }
-        
-        // if we need to stop, it will be caught at the start of the next
-        // iteration.
-        return Watchable.RUNNING;
     }
     
     /**
@@ -647,6 +857,7 @@ public class PDFRenderer extends BaseWatchable implements Runnable
         	if(g != null)
         	{
         		PDFGraphics.finishGraphics(g); //This can be called because the PDFGraphics was created from the imageRef and if we are getting rid of the imageRef, we can get rid of the PDFGraphics object too.
+        		g = null;
         	}
 	        imageRef.clear();
 	        imageRef = null;
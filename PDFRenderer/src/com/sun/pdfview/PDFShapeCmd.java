@@ -69,6 +69,22 @@ public class PDFShapeCmd extends PDFCmd
         bounds = gp.getBounds2D();
     }
     
+    /**
+     * get the bounding box of the path, in the space it is drawn in
+     */
+    XYRectFloat getBounds()
+    {
+        return bounds;
+    }
+    
+    /**
+     * get the style: an OR of STROKE, FILL, or CLIP
+     */
+    int getStyle()
+    {
+        return style;
+    }
+    
     /**
      * perform the stroke and record the dirty region
      */
@@ -334,6 +334,18 @@ public class PDFTextFormat
     public void doText(PDFPage cmds, Object[] ary) throws PDFParseException
     {
     	int len = ary.length;
+    	
+        // create any missing glyphs of the whole array at once
+        StringBuffer all = new StringBuffer();
+        for (int i = 0; i < len; i++)
+        {
+            if (ary[i] instanceof String)
+            {
+                all.append((String)ary[i]);
+            }
+        }
+        font.prepareGlyphs(all.toString());
+        
         for (int i = 0; i < len; i++)
         {
             if (ary[i] instanceof String)
@@ -0,0 +1,702 @@
+//#preprocessor
+
+/*
+ * File: PDFXrefTable.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 11:02:37 AM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.io.IOException;
+//#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
+import java.nio.ByteBuffer;
+//#else
+import com.sun.pdfview.helper.nio.ByteBuffer;
+//#endif
+import java.util.Hashtable;
+import java.util.Vector;
+
+import com.sun.pdfview.helper.RandomAccessSource;
+import com.sun.pdfview.helper.SoftReference;
+
+import com.sun.pdfview.i18n.ResourcesResource;
+
+/**
+ * The cross reference table of a PDFFile. When a file is opened only the location of each xref table and xref stream section is recorded; the
+ * entry for an object number is read from its section the first time it is asked for. Entries are stored in parallel primitive arrays indexed by
+ * object number, rather then one object per entry.
+ * <p>
+ * Sections must be added newest first (the order the trailers are read in), the first section that contains an object number is the one
+ * that is used for it, just like incremental updates. The sections are indexed by range of object numbers so finding an entry's section is a
+ * binary search, and entries are read from the file without holding the table's lock so lookups of entries that have already been read
+ * aren't held up.
+ * @author Vincent Simonetti
+ */
+final class PDFXrefTable
+{
+	/**
+	 * Identifies a deleted object. A Type 0 reference in an xref stream, or an 'f' entry in an xref table.
+	 */
+	static final int TYPE_FREE = 0;
+	/**
+	 * Identifies a reference to an (uncompressed) object that isn't part of a (compressed) stream. A Type 1 reference in an xref stream or an 'n'
+	 * entry in an xref table.
+	 */
+	static final int TYPE_OBJ_IN_BODY = TYPE_FREE + 1;
+	/**
+	 * Identifies a reference to an object that's in a (probably compressed) stream. A Type 2 reference in an xref stream.
+	 */
+	static final int TYPE_OBJ_IN_STREAM = TYPE_OBJ_IN_BODY + 1;
+
+	/** The entry hasn't been read from its section yet. */
+	private static final byte TYPE_UNRESOLVED = -1;
+
+	/** Each entry in an xref table is exactly 20 bytes long. */
+	private static final int TABLE_ENTRY_LENGTH = 20;
+
+	/**
+	 * A section of an xref table or xref stream, covering a consecutive range of object numbers.
+	 */
+	private static final class Section
+	{
+		public int start, length;
+		/** The file offset of the first entry for tables, or the offset within the decoded stream for streams. */
+		public int offset;
+		/** The xref stream, or null for a table. */
+		public PDFObject stream;
+		/** The field lengths of an xref stream. */
+		public int[] widths;
+
+		public Section(int start, int length, int offset, PDFObject stream, int[] widths)
+		{
+			this.start = start;
+			this.length = length;
+			this.offset = offset;
+			this.stream = stream;
+			this.widths = widths;
+		}
+	}
+
+	/**
+	 * A range of object numbers whose entries are read from one section.
+	 */
+	private static final class Range
+	{
+		public int start, end;
+		public Section section;
+
+		public Range(int start, int end, Section section)
+		{
+			this.start = start;
+			this.end = end;
+			this.section = section;
+		}
+	}
+
+	private RandomAccessSource source;
+	private Vector sections;
+	private int size;
+
+	/** The start of each range of object numbers in the section index, in order. Null until the index is built. */
+	private int[] rangeStarts;
+	/** The end (exclusive) of each range. */
+	private int[] rangeEnds;
+	/** The newest section that contains each range. */
+	private Section[] rangeSections;
+
+	/** The type of each entry, or TYPE_UNRESOLVED. */
+	private byte[] types;
+	/** The file offset for in-body entries, or the object number of the object stream for in-stream entries. */
+	private int[] offsets;
+	/** The generation for in-body entries, or the index within the object stream for in-stream entries. */
+	private int[] generations;
+	/** A SoftReference to the object each entry resolves to once it has been read, or the Thread that is reading it. */
+	private Object[] objects;
+	/** The object number each thread waiting in {@link #claimObject(int)} is waiting for, by thread. */
+	private Hashtable waiting;
+
+	/**
+	 * Create a new, empty, table.
+	 * @param source The source xref table entries are read from.
+	 */
+	public PDFXrefTable(RandomAccessSource source)
+	{
+		this.source = source;
+		this.sections = new Vector();
+		this.waiting = new Hashtable();
+	}
+
+	/**
+	 * Record a subsection of an xref table.
+	 * @param start The first object number in the subsection.
+	 * @param length The number of entries in the subsection.
+	 * @param offset The offset of the first entry in the file.
+	 */
+	public synchronized void addTableSection(int start, int length, int offset)
+	{
+		addSection(new Section(start, length, offset, null, null));
+	}
+
+	/**
+	 * Record a subsection of an xref stream.
+	 * @param start The first object number in the subsection.
+	 * @param length The number of entries in the subsection.
+	 * @param stream The xref stream.
+	 * @param offset The offset of the first entry within the decoded stream.
+	 * @param widths The length of each of the three fields of an entry.
+	 */
+	public synchronized void addStreamSection(int start, int length, PDFObject stream, int offset, int[] widths)
+	{
+		addSection(new Section(start, length, offset, stream, widths));
+	}
+
+	private void addSection(Section section)
+	{
+		this.sections.addElement(section);
+		this.rangeStarts = null;
+		ensureSize(section.start + section.length);
+	}
+
+	/**
+	 * Build the index of sections by object number. Each section, newest first, only takes the object numbers that no newer section has taken.
+	 */
+	private void buildIndex()
+	{
+		Vector ranges = new Vector();
+		int len = this.sections.size();
+		for(int i = 0; i < len; i++)
+		{
+			Section section = (Section)this.sections.elementAt(i);
+			int pos = section.start;
+			int end = section.start + section.length;
+
+			// find the first range that ends after the start of the section
+			int low = 0;
+			int high = ranges.size();
+			while(low < high)
+			{
+				int mid = (low + high) >>> 1;
+				if(((Range)ranges.elementAt(mid)).end <= pos)
+				{
+					low = mid + 1;
+				}
+				else
+				{
+					high = mid;
+				}
+			}
+
+			// fill in the gaps between the ranges already taken
+			int r = low;
+			while(pos < end)
+			{
+				if(r < ranges.size())
+				{
+					Range range = (Range)ranges.elementAt(r);
+					if(range.start <= pos)
+					{
+						pos = range.end;
+						r++;
+						continue;
+					}
+					int gapEnd = Math.min(end, range.start);
+					ranges.insertElementAt(new Range(pos, gapEnd, section), r++);
+					pos = gapEnd;
+				}
+				else
+				{
+					ranges.addElement(new Range(pos, end, section));
+					pos = end;
+				}
+			}
+		}
+
+		len = ranges.size();
+		int[] starts = new int[len];
+		int[] ends = new int[len];
+		Section[] owners = new Section[len];
+		for(int i = 0; i < len; i++)
+		{
+			Range range = (Range)ranges.elementAt(i);
+			starts[i] = range.start;
+			ends[i] = range.end;
+			owners[i] = range.section;
+		}
+		this.rangeEnds = ends;
+		this.rangeSections = owners;
+		this.rangeStarts = starts;
+	}
+
+	/**
+	 * Find the section the entry for an object number is read from.
+	 * @return The section, or <code>null</code> if no section contains the object number.
+	 */
+	private Section findSection(int objNum)
+	{
+		if(this.rangeStarts == null)
+		{
+			buildIndex();
+		}
+		int[] starts = this.rangeStarts;
+		int low = 0;
+		int high = starts.length - 1;
+		while(low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if(starts[mid] > objNum)
+			{
+				high = mid - 1;
+			}
+			else if(this.rangeEnds[mid] <= objNum)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				return this.rangeSections[mid];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Ensure that the table supports object numbers from 0 to <code>size - 1</code>.
+	 * @param size The number of objects.
+	 */
+	public synchronized void ensureSize(int size)
+	{
+		if(size > this.size)
+		{
+			if(this.types != null)
+			{
+				int oldSize = this.types.length;
+				byte[] types = new byte[size];
+				int[] offsets = new int[size];
+				int[] generations = new int[size];
+				Object[] objects = new Object[size];
+				System.arraycopy(this.types, 0, types, 0, oldSize);
+				System.arraycopy(this.offsets, 0, offsets, 0, oldSize);
+				System.arraycopy(this.generations, 0, generations, 0, oldSize);
+				System.arraycopy(this.objects, 0, objects, 0, oldSize);
+				for(int i = oldSize; i < size; i++)
+				{
+					types[i] = TYPE_UNRESOLVED;
+				}
+				this.types = types;
+				this.offsets = offsets;
+				this.generations = generations;
+				this.objects = objects;
+			}
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Get the number of object numbers the table covers.
+	 */
+	public int size()
+	{
+		return this.size;
+	}
+
+	/**
+	 * Get the number of sections that have been recorded.
+	 */
+	public int getSectionCount()
+	{
+		return this.sections.size();
+	}
+
+	/**
+	 * Make sure the entry for an object number has been read from its section. The entry is read without holding the lock, and only stored
+	 * once it has been read.
+	 * @param objNum The object number.
+	 * @return <code>false</code> if the object number is outside the table.
+	 */
+	private boolean resolve(int objNum) throws IOException
+	{
+		Section section;
+		synchronized(this)
+		{
+			if(objNum < 0 || objNum >= this.size)
+			{
+				return false;
+			}
+			allocate();
+			if(this.types[objNum] != TYPE_UNRESOLVED)
+			{
+				return true;
+			}
+			section = findSection(objNum);
+			if(section == null)
+			{
+				// not in any section
+				this.types[objNum] = TYPE_FREE;
+				return true;
+			}
+		}
+		if(section.stream == null)
+		{
+			readTableEntry(objNum, section.offset + (objNum - section.start) * TABLE_ENTRY_LENGTH);
+		}
+		else
+		{
+			readStreamSection(section);
+		}
+		return true;
+	}
+
+	/**
+	 * Allocate the per-entry arrays, if they haven't been already.
+	 */
+	private void allocate()
+	{
+		if(this.types == null)
+		{
+			int size = this.size;
+			byte[] types = new byte[size];
+			for(int i = 0; i < size; i++)
+			{
+				types[i] = TYPE_UNRESOLVED;
+			}
+			this.offsets = new int[size];
+			this.generations = new int[size];
+			this.objects = new Object[size];
+			this.types = types;
+		}
+	}
+
+	private void readTableEntry(int objNum, int offset) throws IOException
+	{
+		final byte[] refline = new byte[TABLE_ENTRY_LENGTH];
+		int total = 0;
+		while(total < TABLE_ENTRY_LENGTH)
+		{
+			int r = this.source.read(offset + total, refline, total, TABLE_ENTRY_LENGTH - total);
+			if(r < 0)
+			{
+				throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.FILE_EOS));
+			}
+			total += r;
+		}
+
+		final byte entryType = refline[17];
+		if(entryType == 'n')
+		{
+			// active entry
+			int objOffset = Integer.parseInt(new String(refline, 0, 10));
+			int generation = Integer.parseInt(new String(refline, 11, 5));
+			synchronized(this)
+			{
+				if(this.types[objNum] == TYPE_UNRESOLVED)
+				{
+					this.offsets[objNum] = objOffset;
+					this.generations[objNum] = generation;
+					this.types[objNum] = TYPE_OBJ_IN_BODY;
+				}
+			}
+		}
+		else if(entryType == 'f')
+		{
+			// freed entry
+			synchronized(this)
+			{
+				if(this.types[objNum] == TYPE_UNRESOLVED)
+				{
+					this.types[objNum] = TYPE_FREE;
+				}
+			}
+		}
+		else
+		{
+			throw new PDFParseException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.FILE_UNK_XREF_ENTRY_TYPE, new Object[]{new Integer(entryType & 0xFF)}));
+		}
+	}
+
+	/**
+	 * Read every entry of an xref stream section. The stream is decoded, and the entries read, before any of them are stored, so other lookups
+	 * aren't held up by the decoding.
+	 */
+	private void readStreamSection(Section section) throws IOException
+	{
+		final int[] widths = section.widths;
+		final ByteBuffer table = section.stream.getStreamBuffer();
+		final int len = section.length;
+		byte[] types = new byte[len];
+		int[] field2s = new int[len];
+		int[] field3s = new int[len];
+
+		int pos = section.offset;
+		for(int i = 0; i < len; i++)
+		{
+			int type;
+			if(widths[0] == 0)
+			{
+				type = TYPE_OBJ_IN_BODY;
+			}
+			else
+			{
+				type = forTypeField(readInt(table, pos, widths[0]));
+			}
+			pos += widths[0];
+			field2s[i] = readInt(table, pos, widths[1]);
+			pos += widths[1];
+			// note that this is supposed to default to 0 if field 3
+			// length is 0 for type 1 entries, and that will work just fine
+			field3s[i] = readInt(table, pos, widths[2]);
+			pos += widths[2];
+
+			switch(type)
+			{
+				case TYPE_FREE:
+				case TYPE_OBJ_IN_BODY:
+				case TYPE_OBJ_IN_STREAM:
+					break;
+				default:
+					throw new UnsupportedOperationException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(ResourcesResource.XREF_ENTRY_UNHANDLED_TYPE, new Object[]{new Integer(type)}));
+			}
+			types[i] = (byte)type;
+		}
+
+		synchronized(this)
+		{
+			for(int i = 0; i < len; i++)
+			{
+				// entries that a newer section has are left for that section
+				int objNum = section.start + i;
+				if(this.types[objNum] == TYPE_UNRESOLVED && findSection(objNum) == section)
+				{
+					if(types[i] != TYPE_FREE)
+					{
+						this.offsets[objNum] = field2s[i];
+						this.generations[objNum] = field3s[i];
+					}
+					this.types[objNum] = types[i];
+				}
+			}
+		}
+	}
+
+	private static int forTypeField(int i)
+	{
+		if(i > 0 && i < 3)
+		{
+			return i; //'i' matches the value of the types
+		}
+		else
+		{
+			// if the type field is illegal then it should be treated
+			// as a null object, and returning a free field will
+			// do the job quite nicely!
+			return TYPE_FREE;
+		}
+	}
+
+	/**
+	 * Read an numBytes-bytes big-endian unsigned int from a table
+	 * @param table the table to read from
+	 * @param index the index to start reading at
+	 * @param numBytes the number of bytes to read
+	 * @return the integer read; 0 if numBytes is 0
+	 */
+	private static int readInt(ByteBuffer table, int index, int numBytes)
+	{
+		int val = 0;
+		while(numBytes-- > 0)
+		{
+			final int b = table.get(index++) & 0xFF;
+			val = (val << 8) | b;
+		}
+		return val;
+	}
+
+	/**
+	 * Get the type of the entry for an object number.
+	 * @param objNum The object number.
+	 * @return One of the TYPE_* values. Object numbers outside the table are {@link #TYPE_FREE}.
+	 */
+	public int getType(int objNum) throws IOException
+	{
+		if(!resolve(objNum))
+		{
+			return TYPE_FREE;
+		}
+		synchronized(this)
+		{
+			return this.types[objNum];
+		}
+	}
+
+	/**
+	 * Determine if a reference resolves to a live object; that is, if the entry is not free and has the same generation as the reference.
+	 * @param ref The reference.
+	 * @return <code>true</code> if the reference can be dereferenced.
+	 */
+	public boolean resolves(PDFXref ref) throws IOException
+	{
+		int objNum = ref.getObjectNumber();
+		int type = getType(objNum);
+		if(type == TYPE_FREE)
+		{
+			return false;
+		}
+		synchronized(this)
+		{
+			// stream objects will always have generation 0
+			return (type == TYPE_OBJ_IN_STREAM ? 0 : this.generations[objNum]) == ref.getGeneration();
+		}
+	}
+
+	/**
+	 * Get the offset into the file for in-body entries, or the index of the object within its object stream for in-stream entries.
+	 */
+	public int getOffset(int objNum) throws IOException
+	{
+		int type = getType(objNum);
+		synchronized(this)
+		{
+			switch(type)
+			{
+				case TYPE_OBJ_IN_BODY:
+					return this.offsets[objNum];
+				case TYPE_OBJ_IN_STREAM:
+					return this.generations[objNum];
+				default:
+					return -1;
+			}
+		}
+	}
+
+	/**
+	 * Get the object number of the object stream that contains an in-stream entry.
+	 * @return The object stream's object number or -1 if the entry is not in a stream.
+	 */
+	public int getStreamNumber(int objNum) throws IOException
+	{
+		if(getType(objNum) == TYPE_OBJ_IN_STREAM)
+		{
+			synchronized(this)
+			{
+				return this.offsets[objNum];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Claim an entry so the calling thread can read its object. If the object has already been read it is returned. If another thread is reading
+	 * it then this waits for that thread to finish and returns what it read. Otherwise the entry is marked as being read by the calling thread
+	 * and <code>null</code> is returned; the caller must then call {@link #releaseObject(int, PDFObject)} once it's done, even if it fails.
+	 * <p>
+	 * A thread that claims an entry it is already reading (a reference loop in a broken file) is not blocked, it gets to read the object again.
+	 * Neither is a thread that would wait on a thread that is, directly or through other threads, waiting on it (two threads reading objects
+	 * that need each other); it reads the object itself instead of waiting forever.
+	 * @param objNum The object number.
+	 * @return The object or <code>null</code> if the calling thread should read it.
+	 */
+	public synchronized PDFObject claimObject(int objNum)
+	{
+		if(objNum < 0 || objNum >= this.size)
+		{
+			return null;
+		}
+		allocate();
+		Thread current = Thread.currentThread();
+		while(true)
+		{
+			Object ref = this.objects[objNum];
+			if(ref instanceof SoftReference)
+			{
+				PDFObject obj = (PDFObject)((SoftReference)ref).get();
+				if(obj != null)
+				{
+					return obj;
+				}
+			}
+			else if(ref != null && ref != current)
+			{
+				if(isWaitingOn((Thread)ref, current))
+				{
+					//Waiting would deadlock, read the object without claiming it
+					return null;
+				}
+				
+				//Another thread is reading the object
+				this.waiting.put(current, new Integer(objNum));
+				try
+				{
+					wait();
+				}
+				catch(InterruptedException e)
+				{
+				}
+				finally
+				{
+					this.waiting.remove(current);
+				}
+				continue;
+			}
+			this.objects[objNum] = current;
+			return null;
+		}
+	}
+
+	/**
+	 * Determine if a thread is waiting, directly or through other waiting threads, for an entry claimed by another thread.
+	 */
+	private boolean isWaitingOn(Thread thread, Thread other)
+	{
+		//Each step follows one waiting thread, so a chain longer then the number of waiting threads is a loop that doesn't include other
+		for(int i = this.waiting.size(); i >= 0; i--)
+		{
+			Integer objNum = (Integer)this.waiting.get(thread);
+			if(objNum == null)
+			{
+				return false;
+			}
+			Object ref = this.objects[objNum.intValue()];
+			if(!(ref instanceof Thread))
+			{
+				return false;
+			}
+			thread = (Thread)ref;
+			if(thread == other)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Release an entry claimed with {@link #claimObject(int)}, caching the object that it resolves to and waking up any threads waiting for it.
+	 * @param objNum The object number.
+	 * @param obj The object that was read, or <code>null</code> if it couldn't be read.
+	 */
+	public synchronized void releaseObject(int objNum, PDFObject obj)
+	{
+		if(this.objects != null && objNum >= 0 && objNum < this.size)
+		{
+			//An object read without a claim, to break a deadlock, doesn't clear the claim of the thread still reading it
+			if(obj != null || this.objects[objNum] == Thread.currentThread())
+			{
+				this.objects[objNum] = obj == null ? null : new SoftReference(obj);
+			}
+			notifyAll();
+		}
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * File: PageImageListener.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 7:41:06 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import net.rim.device.api.system.Bitmap;
+
+/**
+ * Told when each pass of a progressive render of a page is ready.
+ * @author Vincent Simonetti
+ * @see PDFPage#getImageProgressive(int, int, com.sun.pdfview.helper.XYRectFloat, boolean, PageImageListener)
+ */
+public interface PageImageListener
+{
+	/**
+	 * Called when a pass is ready. This is called on a scheduler worker, not the event thread.
+	 * @param page The page that was rendered.
+	 * @param image The image of the page. A draft is smaller then the size that was asked for and has to be scaled up to be shown.
+	 * @param draft <code>true</code> if this is the quick draft, <code>false</code> if it is the final image.
+	 */
+	public void imageReady(PDFPage page, Bitmap image, boolean draft);
+}
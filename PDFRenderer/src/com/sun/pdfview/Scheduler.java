@@ -0,0 +1,352 @@
+/*
+ * File: Scheduler.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 5:12:26 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import java.util.Vector;
+
+import com.sun.pdfview.helper.DebugLog;
+
+/**
+ * Runs background work on a small pool of worker threads, most important work first. Parsers and renderers started with go() are run here
+ * a batch at a time, so a page the user is looking at doesn't have to wait behind thumbnails or prefetching, and the number of threads
+ * doesn't grow with the number of pages being worked on.
+ * <p>
+ * Workers are started as they are needed and exit after they have been idle for a while. If a worker has to wait for other queued work
+ * to finish (a synchronous render waiting on a parser, for example) an extra worker is allowed so the pool can't deadlock.
+ * @author Vincent Simonetti
+ */
+public final class Scheduler
+{
+	/** The priority of work that is only being done in case it is needed later. */
+	public static final int PRIORITY_PREFETCH = 0;
+	/** The priority of thumbnails. */
+	public static final int PRIORITY_THUMBNAIL = 1;
+	/** The priority of pages next to the one being shown. */
+	public static final int PRIORITY_ADJACENT = 2;
+	/** The priority of the page being shown. */
+	public static final int PRIORITY_VISIBLE = 3;
+
+	/** The default number of workers. */
+	public static final int DEFAULT_WORKERS = 2;
+	/** How long a worker waits for work before it exits, in milliseconds. */
+	private static final long IDLE_TIMEOUT = 30000;
+
+	private static Scheduler instance;
+
+	/**
+	 * A queued piece of work.
+	 */
+	private static final class Task
+	{
+		public Runnable work;
+		public int priority;
+
+		public Task(Runnable work, int priority)
+		{
+			this.work = work;
+			this.priority = priority;
+		}
+	}
+
+	/**
+	 * A thread that runs queued work.
+	 */
+	private static final class Worker extends Thread
+	{
+		public Scheduler scheduler;
+
+		public Worker(Scheduler scheduler)
+		{
+			this.scheduler = scheduler;
+		}
+
+		public void run()
+		{
+			Runnable work;
+			while((work = this.scheduler.next()) != null)
+			{
+				try
+				{
+					work.run();
+				}
+				catch(Throwable t)
+				{
+					if(DebugLog.ENABLED && DebugLog.isLoggable(DebugLog.WARNING))
+					{
+						DebugLog.log("Scheduled work failed: " + t, DebugLog.WARNING);
+						t.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+
+	/** The queued tasks, most important first and in the order they were queued within a priority. */
+	private Vector queue;
+	private int maxWorkers;
+	/** The number of workers alive. */
+	private int workers;
+	/** The number of workers waiting for work. */
+	private int idle;
+	/** The number of workers waiting on other work. */
+	private int blocked;
+
+	/**
+	 * Create a new scheduler.
+	 * @param maxWorkers The most workers that can run work at once.
+	 */
+	public Scheduler(int maxWorkers)
+	{
+		this.queue = new Vector();
+		this.maxWorkers = Math.max(maxWorkers, 1);
+	}
+
+	/**
+	 * Get the scheduler that parsers and renderers run on.
+	 */
+	public static synchronized Scheduler getDefault()
+	{
+		if(instance == null)
+		{
+			instance = new Scheduler(DEFAULT_WORKERS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Get the most workers that can run work at once.
+	 */
+	public synchronized int getMaxWorkers()
+	{
+		return this.maxWorkers;
+	}
+
+	/**
+	 * Set the most workers that can run work at once. If there are more workers then this they exit as they finish their current work.
+	 */
+	public synchronized void setMaxWorkers(int maxWorkers)
+	{
+		this.maxWorkers = Math.max(maxWorkers, 1);
+		dispatch();
+	}
+
+	/**
+	 * Get the number of tasks waiting to be run.
+	 */
+	public synchronized int getQueueSize()
+	{
+		return this.queue.size();
+	}
+
+	/**
+	 * Queue work to be run. If the work is already queued it is moved to the given priority instead of being queued twice.
+	 * @param work The work to run.
+	 * @param priority The priority of the work, one of the PRIORITY constants. Higher priorities are run first.
+	 */
+	public synchronized void schedule(Runnable work, int priority)
+	{
+		int index = indexOf(work);
+		if(index >= 0)
+		{
+			this.queue.removeElementAt(index);
+		}
+		insert(new Task(work, priority));
+		dispatch();
+	}
+
+	/**
+	 * Change the priority of queued work.
+	 * @return <code>true</code> if the work was queued, <code>false</code> if it isn't (it may already be running).
+	 */
+	public synchronized boolean setPriority(Runnable work, int priority)
+	{
+		int index = indexOf(work);
+		if(index < 0)
+		{
+			return false;
+		}
+		Task task = (Task)this.queue.elementAt(index);
+		if(task.priority != priority)
+		{
+			this.queue.removeElementAt(index);
+			task.priority = priority;
+			insert(task);
+		}
+		return true;
+	}
+
+	/**
+	 * Remove work from the queue. Work that is already running is not affected.
+	 * @return <code>true</code> if the work was queued and has been removed.
+	 */
+	public synchronized boolean cancel(Runnable work)
+	{
+		int index = indexOf(work);
+		if(index < 0)
+		{
+			return false;
+		}
+		this.queue.removeElementAt(index);
+		return true;
+	}
+
+	/**
+	 * Determine if work is waiting to be run.
+	 */
+	public synchronized boolean isQueued(Runnable work)
+	{
+		return indexOf(work) >= 0;
+	}
+
+	private int indexOf(Runnable work)
+	{
+		int len = this.queue.size();
+		for(int i = 0; i < len; i++)
+		{
+			if(((Task)this.queue.elementAt(i)).work == work)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Insert a task after all the tasks of the same or higher priority.
+	 */
+	private void insert(Task task)
+	{
+		int len = this.queue.size();
+		int i = len;
+		while(i > 0 && ((Task)this.queue.elementAt(i - 1)).priority < task.priority)
+		{
+			i--;
+		}
+		if(i == len)
+		{
+			this.queue.addElement(task);
+		}
+		else
+		{
+			this.queue.insertElementAt(task, i);
+		}
+	}
+
+	/**
+	 * Make sure there is a worker for the queued work, waking an idle one or starting a new one.
+	 */
+	private void dispatch()
+	{
+		if(this.queue.isEmpty())
+		{
+			return;
+		}
+		if(this.idle > 0)
+		{
+			notifyAll();
+		}
+		if(this.queue.size() > this.idle && this.workers - this.blocked < this.maxWorkers)
+		{
+			this.workers++;
+			new Worker(this).start();
+		}
+	}
+
+	/**
+	 * Get the next work to run, waiting for some if there is none.
+	 * @return The work, or <code>null</code> if the worker should exit.
+	 */
+	private synchronized Runnable next()
+	{
+		long end = System.currentTimeMillis() + IDLE_TIMEOUT;
+		while(true)
+		{
+			if(this.workers - this.blocked > this.maxWorkers)
+			{
+				// there are too many workers, normally because a blocked worker has carried on
+				this.workers--;
+				return null;
+			}
+			if(!this.queue.isEmpty())
+			{
+				Task task = (Task)this.queue.elementAt(0);
+				this.queue.removeElementAt(0);
+				return task.work;
+			}
+			long wait = end - System.currentTimeMillis();
+			if(wait <= 0)
+			{
+				this.workers--;
+				return null;
+			}
+			this.idle++;
+			try
+			{
+				wait(wait);
+			}
+			catch(InterruptedException e)
+			{
+			}
+			this.idle--;
+		}
+	}
+
+	/**
+	 * Called by a worker that is about to wait on other work.
+	 */
+	private synchronized void block()
+	{
+		this.blocked++;
+		dispatch();
+	}
+
+	/**
+	 * Called by a worker that has stopped waiting on other work.
+	 */
+	private synchronized void unblock()
+	{
+		this.blocked--;
+	}
+
+	/**
+	 * Called before the current thread waits for another watchable. If it is a worker the scheduler is allowed to start another worker in its
+	 * place, otherwise this does nothing. Must be followed by a call to {@link #endBlocking()}.
+	 */
+	static void beginBlocking()
+	{
+		Thread thread = Thread.currentThread();
+		if(thread instanceof Worker)
+		{
+			((Worker)thread).scheduler.block();
+		}
+	}
+
+	/**
+	 * Called after the current thread has finished waiting for another watchable.
+	 */
+	static void endBlocking()
+	{
+		Thread thread = Thread.currentThread();
+		if(thread instanceof Worker)
+		{
+			((Worker)thread).scheduler.unblock();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * File: TileInfo.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 7:04:51 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview;
+
+import com.sun.pdfview.helper.XYRectFloat;
+
+/**
+ * The information for one tile of a page rendered at a zoom level. Tiles are identified by the size of the whole page image and the tile's
+ * position, so the same tile is found again no matter how its clip was calculated.
+ * @author Vincent Simonetti
+ */
+final class TileInfo extends ImageInfo
+{
+	/** The width of the whole page image. */
+	int pageWidth;
+	/** The height of the whole page image. */
+	int pageHeight;
+	/** The column of the tile. */
+	int tileX;
+	/** The row of the tile. */
+	int tileY;
+	
+	public TileInfo(int pageWidth, int pageHeight, int tileX, int tileY, int width, int height, XYRectFloat clip)
+	{
+		super(width, height, clip, 0);
+		this.pageWidth = pageWidth;
+		this.pageHeight = pageHeight;
+		this.tileX = tileX;
+		this.tileY = tileY;
+	}
+	
+	public int hashCode()
+	{
+		return pageWidth ^ (pageHeight << 16) ^ (tileX << 8) ^ (tileY << 24);
+	}
+	
+	public boolean equals(Object o)
+	{
+		if (!(o instanceof TileInfo))
+		{
+			return false;
+		}
+		TileInfo ti = (TileInfo)o;
+		return pageWidth == ti.pageWidth && pageHeight == ti.pageHeight && tileX == ti.tileX && tileY == ti.tileY;
+	}
+}
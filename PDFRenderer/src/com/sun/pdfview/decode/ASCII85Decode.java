@@ -24,13 +24,15 @@
  */
 package com.sun.pdfview.decode;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
 import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFFile;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
@@ -40,30 +42,27 @@ import com.sun.pdfview.PDFParseException;
  * 
  * @author Mike Wessler
  */
-public class ASCII85Decode
+public class ASCII85Decode extends DecoderInputStream
 {
-	private ByteBuffer buf;
-	
-    /**
-     * initialize the decoder with byte buffer in ASCII85 format
+	/**
+     * initialize the decoder with a stream in ASCII85 format
      */
-    private ASCII85Decode(ByteBuffer buf)
+    private ASCII85Decode(InputStream in)
     {
-        this.buf = buf;
+        super(in, 4);
     }
     
     /**
      * get the next character from the input.
      * @return the next character, or -1 if at end of stream
      */
-    private int nextChar()
+    private int nextChar() throws IOException
     {
         // skip whitespace
         // returns next character, or -1 if end of stream
-        while (buf.remaining() > 0)
+        int c;
+        while ((c = readIn()) >= 0)
         {
-            char c = (char) buf.get();
-            
             if (!PDFFile.isWhiteSpace(c))
             {
                 return c;
@@ -78,11 +77,9 @@ public class ASCII85Decode
      * decode the next five ASCII85 characters into up to four decoded
      * bytes.  Return false when finished, or true otherwise.
      *
-     * @param baos the ByteArrayOutputStream to write output to, set to the
-     *        correct position
      * @return false when finished, or true otherwise.
      */
-    private boolean decode5(ByteArrayOutputStream baos) throws PDFParseException
+    private boolean decode5() throws IOException
     {
         // stream ends in ~>
         int[] five = new int[5];
@@ -138,30 +135,18 @@ public class ASCII85Decode
         for (int j = 0; j < i; j++)
         {
             int shift = 8 * (3 - j);
-            baos.write((byte) ((value >> shift) & 0xff));
+            out[outLen++] = (byte) ((value >> shift) & 0xff);
         }
         
         return (i == 4);
     }
 
     /**
-     * decode the bytes
-     * @return the decoded bytes
+     * decode the next group of bytes
      */
-    private ByteBuffer decode() throws PDFParseException
+    protected boolean decodeMore() throws IOException
     {
-        // start from the beginning of the data
-        buf.rewind();
-        
-        // allocate the output buffer
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        
-        // decode the bytes 
-        while (decode5(baos))
-        {
-        }
-        
-        return ByteBuffer.wrap(baos.toByteArray());
+        return decode5();
     }
 
     /**
@@ -175,9 +160,23 @@ public class ASCII85Decode
      * @param params parameters to the decoder (ignored)
      * @return the decoded bytes
      */
-    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws PDFParseException
+    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws IOException
+    {
+        // start from the beginning of the data
+        buf.rewind();
+        
+        return readAll(new ASCII85Decode(new ByteBufferInputStream(buf)));
+    }
+    
+    /**
+     * decode a stream in ASCII85 format as it is read.
+     *
+     * @param in the encoded ASCII85 characters
+     * @param params parameters to the decoder (ignored)
+     * @return a stream of the decoded bytes
+     */
+    public static InputStream decode(InputStream in, PDFObject params)
     {
-        ASCII85Decode me = new ASCII85Decode(buf);
-        return me.decode();
+        return new ASCII85Decode(in);
     }
 }
@@ -24,13 +24,15 @@
  */
 package com.sun.pdfview.decode;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
 import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
 import com.sun.pdfview.PDFFile;
@@ -40,32 +42,35 @@ import com.sun.pdfview.PDFFile;
  *
  * @author Mike Wessler
  */
-public class ASCIIHexDecode
+public class ASCIIHexDecode extends DecoderInputStream
 {
-	private ByteBuffer buf;
+	/** the size of the output buffer */
+	private static final int BUFFER_SIZE = 512;
+	
+	private boolean done;
     
     /**
-     * initialize the decoder with an array of bytes in ASCIIHex format
+     * initialize the decoder with a stream in ASCIIHex format
      */
-    private ASCIIHexDecode(ByteBuffer buf)
+    private ASCIIHexDecode(InputStream in)
     {
-    	this.buf = buf;
+    	super(in, BUFFER_SIZE);
     }
     
     /**
      * get the next character from the input
      * @return a number from 0-15, or -1 for the end character
      */
-    private int readHexDigit() throws PDFParseException
+    private int readHexDigit() throws IOException
     {    
         // read until we hit a non-whitespace character or the
         // end of the stream
-        while (buf.remaining() > 0)
+        int c;
+        while ((c = readIn()) >= 0)
         {
-            int c = (int) buf.get();
             
             // see if we found a useful character
-            if (!PDFFile.isWhiteSpace((char) c))
+            if (!PDFFile.isWhiteSpace(c))
             {
                 if (c >= '0' && c <= '9')
                 {
@@ -99,38 +104,38 @@ public class ASCIIHexDecode
     }
     
     /**
-     * decode the array
-     * @return the decoded bytes
+     * decode the next piece of the stream
      */
-    private ByteBuffer decode() throws PDFParseException
+    protected boolean decodeMore() throws IOException
     {
-        // start at the beginning of the buffer
-        buf.rewind();
-        
-        // allocate the output buffer
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        if (done)
+        {
+            return false;
+        }
         
-        while (true)
+        while (outLen < BUFFER_SIZE)
         {
         	int first = readHexDigit();
         	if (first == -1)
             {
+                done = true;
                 break;
             }
         	int second = readHexDigit();
         	
             if (second == -1)
             {
-            	baos.write((byte) (first << 4));
+            	out[outLen++] = (byte) (first << 4);
+            	done = true;
             	break;
             }
             else
             {
-            	baos.write((byte) ((first << 4) + second));
+            	out[outLen++] = (byte) ((first << 4) + second);
             }
         }
         
-        return ByteBuffer.wrap(baos.toByteArray());
+        return !done;
     }
     
     /**
@@ -145,9 +150,23 @@ public class ASCIIHexDecode
      * @param params parameters to the decoder (ignored)
      * @return the decoded bytes
      */
-    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws PDFParseException 
+    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws IOException 
+    {
+        // start at the beginning of the buffer
+        buf.rewind();
+        
+    	return readAll(new ASCIIHexDecode(new ByteBufferInputStream(buf)));
+    }
+    
+    /**
+     * decode a stream in ASCIIHex format as it is read.
+     * 
+     * @param in the encoded ASCIIHex characters
+     * @param params parameters to the decoder (ignored)
+     * @return a stream of the decoded bytes
+     */
+    public static InputStream decode(InputStream in, PDFObject params)
     {
-    	ASCIIHexDecode me = new ASCIIHexDecode(buf);
-    	return me.decode();
+    	return new ASCIIHexDecode(in);
     }
 }
@@ -0,0 +1,163 @@
+//#preprocessor
+
+/*
+ * File: DecoderInputStream.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 4:02:37 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.decode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+//#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
+import java.nio.ByteBuffer;
+//#else
+import com.sun.pdfview.helper.nio.ByteBuffer;
+//#endif
+
+/**
+ * A stage of a filter chain. Data is pulled from the stage before it and decoded a small piece at a time, into an output buffer that the reader
+ * drains, so a filter never needs the whole of its input or output in memory.
+ * @author Vincent Simonetti
+ */
+abstract class DecoderInputStream extends InputStream
+{
+	/** The stage before this one. */
+	protected InputStream in;
+	/** Decoded data that hasn't been read yet. */
+	protected byte[] out;
+	/** The position of the next byte to read in {@link #out}. */
+	protected int outPos;
+	/** The number of valid bytes in {@link #out}. */
+	protected int outLen;
+	private boolean eof;
+
+	/**
+	 * Create a new stage.
+	 * @param in The stage before this one.
+	 * @param size The initial size of the output buffer.
+	 */
+	protected DecoderInputStream(InputStream in, int size)
+	{
+		this.in = in;
+		this.out = new byte[size];
+	}
+
+	/**
+	 * Decode more data into {@link #out}. {@link #outPos} and {@link #outLen} are both 0 when this is called, the buffer can be replaced if it
+	 * is too small.
+	 * @return <code>false</code> if the end of the data has been reached.
+	 */
+	protected abstract boolean decodeMore() throws IOException;
+
+	private boolean fill() throws IOException
+	{
+		while(this.outPos >= this.outLen)
+		{
+			if(this.eof)
+			{
+				return false;
+			}
+			this.outPos = this.outLen = 0;
+			if(!decodeMore())
+			{
+				this.eof = true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Read one byte from the stage before this one.
+	 * @return The byte, or -1 at the end of the data.
+	 */
+	protected int readIn() throws IOException
+	{
+		return this.in.read();
+	}
+
+	/**
+	 * Read from the stage before this one until the array is full.
+	 * @return The number of bytes read, less then <code>len</code> only at the end of the data.
+	 */
+	protected int readInFully(byte[] b, int off, int len) throws IOException
+	{
+		int total = 0;
+		while(total < len)
+		{
+			int read = this.in.read(b, off + total, len - total);
+			if(read < 0)
+			{
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+
+	public int read() throws IOException
+	{
+		if(!fill())
+		{
+			return -1;
+		}
+		return this.out[this.outPos++] & 0xFF;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		if(len == 0)
+		{
+			return 0;
+		}
+		if(!fill())
+		{
+			return -1;
+		}
+		len = Math.min(len, this.outLen - this.outPos);
+		System.arraycopy(this.out, this.outPos, b, off, len);
+		this.outPos += len;
+		return len;
+	}
+
+	public int available() throws IOException
+	{
+		return this.outLen - this.outPos;
+	}
+
+	public void close() throws IOException
+	{
+		this.in.close();
+	}
+
+	/**
+	 * Read all of a stream into a buffer.
+	 */
+	static ByteBuffer readAll(InputStream in) throws IOException
+	{
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int read;
+		while((read = in.read(buf, 0, buf.length)) >= 0)
+		{
+			baos.write(buf, 0, read);
+		}
+		in.close();
+		return ByteBuffer.wrap(baos.toByteArray());
+	}
+}
@@ -24,9 +24,9 @@
  */
 package com.sun.pdfview.decode;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
@@ -35,6 +35,7 @@ import com.sun.pdfview.helper.nio.ByteBuffer;
 
 import net.rim.device.api.compress.ZLibInputStream;
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
 
@@ -58,20 +59,14 @@ public class FlateDecode
     {
         int bufSize = buf.remaining();
         
-        // copy the data, since the array() method is not supported
-        // on raf-based ByteBuffers
-        byte[] data = new byte[bufSize];
-        buf.get(data);
-        
-        // set the input to the inflater
-        ByteArrayInputStream bais = new ByteArrayInputStream(data);
-        ZLibInputStream inf = new ZLibInputStream(bais, false);
+        // read straight from the buffer, and undo any predictor as the
+        // data is inflated
+        InputStream inf = decode(dict, new ByteBufferInputStream(buf), params);
         
         // output to a byte-array output stream, since we don't
         // know how big the output will be
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] decomp = new byte[bufSize];
-        //int loc = 0;
+        byte[] decomp = new byte[Math.max(bufSize, 1)];
         int read = 0;
         
         try
@@ -90,6 +85,10 @@ public class FlateDecode
         		baos.write(decomp, 0, read);
         	}
         }
+        catch (PDFParseException pe)
+        {
+        	throw pe;
+        }
         catch (IOException dfe)
         {
             throw new PDFParseException(com.sun.pdfview.ResourceManager.getResource(com.sun.pdfview.ResourceManager.LOCALIZATION).getFormattedString(com.sun.pdfview.i18n.ResourcesResource.DECODE_FLATE_DATA_FORMAT_EXCEPTION, new Object[]{dfe.getMessage()}));
@@ -98,7 +97,21 @@ public class FlateDecode
         // return the output as a byte buffer
         ByteBuffer outBytes = ByteBuffer.wrap(baos.toByteArray());
         baos.close();
-        bais.close();
+        inf.close();
+        
+        return outBytes;
+    }
+    
+    /**
+     * decode a stream in Flate format as it is read.
+     *
+     * @param in the deflated input
+     * @param params parameters to the decoder, only used for a predictor
+     * @return a stream of the decoded (inflated) bytes
+     */
+    public static InputStream decode(PDFObject dict, InputStream in, PDFObject params) throws IOException
+    {
+        InputStream inf = new ZLibInputStream(in, false);
         
         // undo a predictor algorithm, if any was used
         if (params != null && params.getDictionary().containsKey("Predictor"))
@@ -106,10 +119,10 @@ public class FlateDecode
             Predictor predictor = Predictor.getPredictor(params);
             if (predictor != null)
             {
-                outBytes = predictor.unpredict(outBytes);
+                inf = predictor.unpredict(inf);
             }
         }
         
-        return outBytes;
+        return inf;
     }
 }
@@ -24,14 +24,15 @@
  */
 package com.sun.pdfview.decode;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
 import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
 
@@ -75,23 +76,28 @@ import com.sun.pdfview.PDFParseException;
  * 
  * @author Mike Wessler
  */
-public class LZWDecode
+public class LZWDecode extends DecoderInputStream
 {
-	ByteBuffer buf;
-    int bytepos;
+	/** the size the output buffer is filled to before it is read */
+	private static final int BUFFER_SIZE = 512;
+	
+	int curbyte;
+	int nextbyte;
     int bitpos;
     byte[] dict[] = new byte[4096][];
     int dictlen = 0;
     int bitspercode = 9;
+    int cW = CLEARDICT;
     static final int STOP = 257;
     static final int CLEARDICT = 256;
     
     /**
-     * initialize this decoder with an array of encoded bytes
-     * @param buf the buffer of bytes
+     * initialize this decoder with a stream of encoded bytes
+     * @param in the stream of bytes
      */
-    private LZWDecode(ByteBuffer buf) throws PDFParseException
+    private LZWDecode(InputStream in) throws IOException
     {
+        super(in, BUFFER_SIZE);
         for (int i = 0; i < 256; i++)
         {
             dict[i] = new byte[1];
@@ -99,8 +105,8 @@ public class LZWDecode
         }
         dictlen = 258;
         bitspercode = 9;
-        this.buf = buf;
-        bytepos = 0;
+        curbyte = readIn();
+        nextbyte = curbyte < 0 ? -1 : readIn();
         bitpos = 0;
     }
     
@@ -116,17 +122,22 @@ public class LZWDecode
     /**
      * get the next code from the input stream
      */
-    private int nextCode()
+    private int nextCode() throws IOException
     {
         int fillbits = bitspercode;
         int value = 0;
-        if (bytepos >= buf.limit() - 1)
+        // the last byte of the data is never read
+        if (nextbyte < 0)
         {
             return -1;
         }
         while (fillbits > 0)
         {
-            int nextbits = buf.get(bytepos);  // bitsource
+            if (curbyte < 0)
+            {
+                return -1;
+            }
+            int nextbits = curbyte;  // bitsource
             int bitsfromhere = 8 - bitpos;  // how many bits can we take?
             if (bitsfromhere > fillbits) // don't take more than we need
             {
@@ -138,24 +149,38 @@ public class LZWDecode
             if (bitpos >= 8)
             {
                 bitpos = 0;
-                bytepos++;
+                curbyte = nextbyte;
+                nextbyte = curbyte < 0 ? -1 : readIn();
             }
         }
         return value;
     }
+    
+    /**
+     * add a dictionary entry to the output.
+     */
+    private void write(byte[] entry)
+    {
+        int len = entry.length;
+        if (outLen + len > out.length)
+        {
+            byte[] buf = new byte[outLen + len];
+            System.arraycopy(out, 0, buf, 0, outLen);
+            out = buf;
+        }
+        System.arraycopy(entry, 0, out, outLen, len);
+        outLen += len;
+    }
 
     /**
-     * decode the array.
-     * @return the uncompressed byte array
+     * decode the next piece of the stream.
      */
-    private ByteBuffer decode() throws PDFParseException
+    protected boolean decodeMore() throws IOException
     {
         // algorithm derived from:
         // http://www.rasip.fer.hr/research/compress/algorithms/fund/lz/lzw.html
         // and the PDFReference
-        int cW = CLEARDICT;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        while (true)
+        while (outLen < BUFFER_SIZE)
         {
             int pW = cW;
             cW = nextCode();
@@ -165,7 +190,7 @@ public class LZWDecode
             }
             if (cW == STOP)
             {
-                break;
+                return false;
             }
             else if (cW == CLEARDICT)
             {
@@ -174,13 +199,13 @@ public class LZWDecode
             }
             else if (pW == CLEARDICT)
             {
-                baos.write(dict[cW], 0, dict[cW].length);
+                write(dict[cW]);
             } 
             else
             {
                 if (cW < dictlen) // it's a code in the dictionary
                 {
-                    baos.write(dict[cW], 0, dict[cW].length);
+                    write(dict[cW]);
                     byte[] p = new byte[dict[pW].length + 1];
                     System.arraycopy(dict[pW], 0, p, 0, dict[pW].length);
                     p[dict[pW].length] = dict[cW][0];
@@ -195,7 +220,7 @@ public class LZWDecode
                     byte[] p = new byte[dict[pW].length + 1];
                     System.arraycopy(dict[pW], 0, p, 0, dict[pW].length);
                     p[dict[pW].length] = p[0];
-                    baos.write(p, 0, p.length);
+                    write(p);
                     dict[dictlen++] = p;
                 }
                 if (dictlen >= (1 << bitspercode) - 1 && bitspercode < 12)
@@ -204,7 +229,7 @@ public class LZWDecode
                 }
             }
         }
-        return ByteBuffer.wrap(baos.toByteArray());
+        return true;
     }
     
     /**
@@ -217,8 +242,20 @@ public class LZWDecode
     public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws IOException
     {
         // decode the array
-        LZWDecode me = new LZWDecode(buf);
-        ByteBuffer outBytes = me.decode();
+        buf.rewind();
+        return readAll(decode(new ByteBufferInputStream(buf), params));
+    }
+    
+    /**
+     * decode a stream of LZW-encoded bytes as it is read.
+     *
+     * @param in the stream of encoded bytes
+     * @param params parameters for the decoder, only used for a predictor
+     * @return a stream of the decoded uncompressed bytes
+     */
+    public static InputStream decode(InputStream in, PDFObject params) throws IOException
+    {
+        InputStream decoded = new LZWDecode(in);
         
         // undo a predictor algorithm, if any was used
         if (params != null && params.getDictionary().containsKey("Predictor"))
@@ -226,10 +263,10 @@ public class LZWDecode
             Predictor predictor = Predictor.getPredictor(params);
             if (predictor != null)
             {
-                outBytes = predictor.unpredict(outBytes);
+                decoded = predictor.unpredict(decoded);
             }
         }
         
-        return outBytes;
+        return decoded;
     }
 }
@@ -27,12 +27,14 @@ package com.sun.pdfview.decode;
 import java.util.Vector;
 
 import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
 import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
 import com.sun.pdfview.decrypt.PDFDecrypterFactory;
@@ -197,6 +199,103 @@ public class PDFDecoder
         return streamBuf;
     }
     
+    /**
+     * decode a stream using the filters specified in the object's
+     * dictionary, as it is read.  Flate, LZW, ASCII85, ASCIIHex and
+     * RunLength filters, and any predictors, only decode as much as has
+     * been read.  Decryption is applied to the encoded data up front,
+     * since it always comes first, and filters that need all their input
+     * at once (such as DCT and CCITTFax) are given everything read from
+     * the filters before them.
+     * @param dict the dictionary associated with the stream
+     * @param streamBuf the data in the stream, as a byte buffer
+     */
+    public static InputStream decodeStreamInput(PDFObject dict, ByteBuffer streamBuf, Vector filterLimits) throws IOException
+    {
+        PDFObject filter = dict.getDictRef("Filter");
+        if (filter == null)
+        {
+            // just apply default decryption
+            return new ByteBufferInputStream(dict.getDecrypter().decryptBuffer(null, dict, streamBuf));
+        }
+        
+        // apply filters
+        FilterSpec spec = new FilterSpec(dict, filter);
+        
+        // decryption comes first, see decodeStream
+        boolean specificCryptFilter = spec.ary.length != 0 && spec.ary[0].getStringValue().equals("Crypt");
+        if (!specificCryptFilter)
+        {
+            streamBuf = dict.getDecrypter().decryptBuffer(null, dict, streamBuf);
+        }
+        
+        InputStream in = null;
+        int len = spec.ary.length;
+        for (int i = 0; i < len; i++)
+        {
+            String enctype = spec.ary[i].getStringValue();
+            if (filterLimits.contains(enctype))
+            {
+                break;
+            }
+            if (enctype == null)
+            {
+            }
+            else if (enctype.equals("Crypt") && in == null)
+            {
+                String cfName = getCryptFilterName(spec.params[i]);
+                streamBuf = dict.getDecrypter().decryptBuffer(cfName, null, streamBuf);
+            }
+            else
+            {
+                if (in == null)
+                {
+                    in = new ByteBufferInputStream(streamBuf);
+                    streamBuf = null;
+                }
+                if (enctype.equals("FlateDecode") || enctype.equals("Fl")) 
+                {
+                    in = FlateDecode.decode(dict, in, spec.params[i]);
+                }
+                else if (enctype.equals("LZWDecode") || enctype.equals("LZW"))
+                {
+                    in = LZWDecode.decode(in, spec.params[i]);
+                }
+                else if (enctype.equals("ASCII85Decode") || enctype.equals("A85"))
+                {
+                    in = ASCII85Decode.decode(in, spec.params[i]);
+                }
+                else if (enctype.equals("ASCIIHexDecode") || enctype.equals("AHx"))
+                {
+                    in = ASCIIHexDecode.decode(in, spec.params[i]);
+                }
+                else if (enctype.equals("RunLengthDecode") || enctype.equals("RL"))
+                {
+                    in = RunLengthDecode.decode(in, spec.params[i]);
+                }
+                else if (enctype.equals(FILTER_DCTDECODE) || enctype.equals(FILTER_DCT))
+                {
+                    in = new ByteBufferInputStream(DCTDecode.decode(dict, DecoderInputStream.readAll(in), spec.params[i]));
+                }
+                else if (enctype.equals("CCITTFaxDecode") || enctype.equals("CCF"))
+                {
+                    in = new ByteBufferInputStream(CCITTFaxDecode.decode(dict, DecoderInputStream.readAll(in), spec.params[i]));
+                }
+                else if (enctype.equals("Crypt"))
+                {
+                    String cfName = getCryptFilterName(spec.params[i]);
+                    in = new ByteBufferInputStream(dict.getDecrypter().decryptBuffer(cfName, null, DecoderInputStream.readAll(in)));
+                }
+                else
+                {
+                    throw new PDFParseException(com.sun.pdfview.ResourceManager.getResource(com.sun.pdfview.ResourceManager.LOCALIZATION).getFormattedString(com.sun.pdfview.i18n.ResourcesResource.DECODE_DECODER_UNK_CODING_METHOD, new Object[]{spec.ary[i].getStringValue()}));
+                }
+            }
+        }
+        
+        return in != null ? in : new ByteBufferInputStream(streamBuf);
+    }
+    
     /**
      * The name of the Crypt filter to apply
      * @param param the parameters to the Crypt filter
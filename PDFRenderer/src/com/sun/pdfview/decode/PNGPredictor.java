@@ -53,37 +53,16 @@ public class PNGPredictor extends Predictor
         byte[] prevLine = null;
         
         // get the number of bytes per row
-        int rowSize = getColumns() * getColors() * getBitsPerComponent();
-        rowSize = (int) Math.ceil(rowSize / 8.0);
+        int rowSize = getRowSize();
+        byte[] inLine = new byte[rowSize + 1];
         
         while(imageData.remaining() >= rowSize + 1)
         {
-            // the first byte determines the algorithm
-            int algorithm = (int) (imageData.get() & 0xff);
+            // read the line, including the algorithm
+            imageData.get(inLine);
             
-            // read the rest of the line
             curLine = new byte[rowSize];
-            imageData.get(curLine);
-            
-            // use the algorithm, Luke
-            switch (algorithm)
-            {
-                case 0:
-                    // none
-                    break;
-                case 1:
-                    doSubLine(curLine);
-                    break;
-                case 2:
-                    doUpLine(curLine, prevLine);
-                    break;
-                case 3:
-                    doAverageLine(curLine, prevLine);
-                    break;
-                case 4:
-                    doPaethLine(curLine, prevLine);
-                    break;
-            }
+            unpredictRow(inLine, curLine, prevLine);
             
             rows.addElement(curLine);
             prevLine = curLine;
@@ -103,6 +82,46 @@ public class PNGPredictor extends Predictor
         return outBuf;
     }
     
+    /**
+     * Each row starts with a byte giving the algorithm used for it
+     */
+    protected int getPredictedRowSize()
+    {
+        return getRowSize() + 1;
+    }
+    
+    /**
+     * Undo one row based on the png algorithm
+     */
+    protected void unpredictRow(byte[] in, byte[] curLine, byte[] prevLine) throws IOException
+    {
+        // the first byte determines the algorithm
+        int algorithm = (int) (in[0] & 0xff);
+        
+        // read the rest of the line
+        System.arraycopy(in, 1, curLine, 0, curLine.length);
+        
+        // use the algorithm, Luke
+        switch (algorithm)
+        {
+            case 0:
+                // none
+                break;
+            case 1:
+                doSubLine(curLine);
+                break;
+            case 2:
+                doUpLine(curLine, prevLine);
+                break;
+            case 3:
+                doAverageLine(curLine, prevLine);
+                break;
+            case 4:
+                doPaethLine(curLine, prevLine);
+                break;
+        }
+    }
+    
     /**
      * Return the value of the Sub algorithm on the line (compare bytes to
      * the previous byte of the same color on this line).
@@ -31,6 +31,7 @@ import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
 import java.io.IOException;
+import java.io.InputStream;
 
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFParseException;
@@ -72,6 +73,25 @@ public abstract class Predictor
      */
     public abstract ByteBuffer unpredict(ByteBuffer imageData) throws IOException;
     
+    /**
+     * Undo this algorithm on a row of decoded image data.
+     * Subclasses must implement this method
+     *
+     * @param in the predicted row, getPredictedRowSize() bytes long
+     * @param row where to put the row, getRowSize() bytes long
+     * @param prevRow the row before this one, or null for the first row
+     */
+    protected abstract void unpredictRow(byte[] in, byte[] row, byte[] prevRow) throws IOException;
+    
+    /**
+     * Undo this algorithm on a stream of decoded image data, a row at a
+     * time as it is read.
+     */
+    public InputStream unpredict(InputStream imageData)
+    {
+        return new PredictorInputStream(this, imageData);
+    }
+    
     /**
      * Get an instance of a predictor
      *
@@ -177,6 +197,22 @@ public abstract class Predictor
         this.bpc = bpc;
     }
     
+    /**
+     * Get the number of bytes in a row, once it has been unpredicted
+     */
+    public int getRowSize()
+    {
+        return (getColumns() * getColors() * getBitsPerComponent() + 7) / 8;
+    }
+    
+    /**
+     * Get the number of bytes a row takes up before it is unpredicted
+     */
+    protected int getPredictedRowSize()
+    {
+        return getRowSize();
+    }
+    
     /**
      * Get the number of columns
      */
@@ -0,0 +1,64 @@
+/*
+ * File: PredictorInputStream.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 4:19:52 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.decode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Undoes a {@link Predictor} on a stream, one row at a time. Only the current and previous rows are kept.
+ * @author Vincent Simonetti
+ */
+final class PredictorInputStream extends DecoderInputStream
+{
+	private Predictor predictor;
+	/** The current row, before it has been unpredicted. */
+	private byte[] predicted;
+	/** The row before the current one, or null if there hasn't been one yet. */
+	private byte[] prevRow;
+	/** The buffer the next row will be unpredicted into. */
+	private byte[] nextRow;
+
+	public PredictorInputStream(Predictor predictor, InputStream in)
+	{
+		super(in, predictor.getRowSize());
+		this.predictor = predictor;
+		this.predicted = new byte[predictor.getPredictedRowSize()];
+		this.nextRow = this.out;
+	}
+
+	protected boolean decodeMore() throws IOException
+	{
+		if(readInFully(this.predicted, 0, this.predicted.length) < this.predicted.length)
+		{
+			// only whole rows are decoded
+			return false;
+		}
+		byte[] row = this.nextRow;
+		this.predictor.unpredictRow(this.predicted, row, this.prevRow);
+
+		// the previous row has been read, so it can hold the next row
+		this.nextRow = this.prevRow == null ? new byte[row.length] : this.prevRow;
+		this.prevRow = row;
+		this.out = row;
+		this.outLen = row.length;
+		return true;
+	}
+}
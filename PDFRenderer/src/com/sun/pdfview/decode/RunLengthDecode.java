@@ -24,70 +24,66 @@
  */
 package com.sun.pdfview.decode;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
 import java.nio.ByteBuffer;
 //#else
 import com.sun.pdfview.helper.nio.ByteBuffer;
 //#endif
 
+import com.sun.pdfview.ByteBufferInputStream;
 import com.sun.pdfview.PDFObject;
-import com.sun.pdfview.PDFParseException;
 
 /**
  * decode an array of Run Length encoded bytes into a byte array
  *
  * @author Mike Wessler
  */
-public class RunLengthDecode
+public class RunLengthDecode extends DecoderInputStream
 {
 	/** the end of data in the RunLength encoding. */
     private static final int RUN_LENGTH_EOD = 128;
     
-    private ByteBuffer buf;
-    
     /**
-     * initialize the decoder with an array of bytes in RunLength format
+     * initialize the decoder with a stream in RunLength format
      */
-    private RunLengthDecode(ByteBuffer buf) 
+    private RunLengthDecode(InputStream in) 
     {
-        this.buf = buf;
+        super(in, 128);
     }
     
     /**
-     * decode the array
-     * @return the decoded bytes
+     * decode the next run
      */
-    private ByteBuffer decode() throws PDFParseException
+    protected boolean decodeMore() throws IOException
     {
-        // start at the beginning of the buffer
-        buf.rewind();
-        
-        // allocate the output buffer
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte dupAmount = -1;
-        byte[] buffer = new byte[128];
-        while ((dupAmount = buf.get()) != -1 && dupAmount != RUN_LENGTH_EOD)
+        int dupAmount = readIn();
+        if (dupAmount < 0 || dupAmount == RUN_LENGTH_EOD)
         {
-            if (dupAmount <= 127)
+            return false;
+        }
+        if (dupAmount < RUN_LENGTH_EOD)
+        {
+            // copy the next length+1 bytes
+            outLen = readInFully(out, 0, dupAmount + 1);
+        }
+        else
+        {
+            // repeat the next byte 257-length times
+            int dupByte = readIn();
+            if (dupByte < 0)
             {
-                int amountToCopy = dupAmount + 1;
-                while (amountToCopy > 0)
-                {
-                    buf.get(buffer, 0, amountToCopy);
-                    baos.write(buffer, 0, amountToCopy);
-                }
+                return false;
             }
-            else 
+            int count = 257 - dupAmount;
+            for (int i = 0; i < count; i++)
             {
-                byte dupByte = buf.get();
-                for (int i = 0; i < 257 - (int) (dupAmount & 0xFF); i++)
-                {
-                    baos.write(dupByte);
-                }
+                out[i] = (byte) dupByte;
             }
+            outLen = count;
         }
-        return ByteBuffer.wrap(baos.toByteArray());
+        return true;
     }
     
     /**
@@ -106,9 +102,23 @@ public class RunLengthDecode
      * @param params parameters to the decoder (ignored)
      * @return the decoded bytes
      */
-    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws PDFParseException
+    public static ByteBuffer decode(ByteBuffer buf, PDFObject params) throws IOException
+    {
+        // start at the beginning of the buffer
+        buf.rewind();
+        
+        return readAll(new RunLengthDecode(new ByteBufferInputStream(buf)));
+    }
+    
+    /**
+     * decode a stream in RunLength format as it is read.
+     *
+     * @param in the RunLength encoded bytes
+     * @param params parameters to the decoder (ignored)
+     * @return a stream of the decoded bytes
+     */
+    public static InputStream decode(InputStream in, PDFObject params)
     {
-        RunLengthDecode me = new RunLengthDecode(buf);
-        return me.decode();
+        return new RunLengthDecode(in);
     }
 }
@@ -49,78 +49,89 @@ public class TIFFPredictor extends Predictor
 	{
 		ByteBuffer out = ByteBuffer.allocateDirect(imageData.limit());
 		
-        final int numComponents = getColors();
-        final int pixelBits = numComponents * getBitsPerComponent();
-        
-        int bytePerRow = (getColumns() * pixelBits + 7) / 8;
-        
-        final byte[] row = new byte[bytePerRow];
+        final byte[] row = new byte[getRowSize()];
         
         while(imageData.remaining() > 0)
         {
             imageData.get(row);
-            if (getBitsPerComponent() == 8)
+            unpredictRow(row, row, null);
+            out.put(row);
+        }
+        
+        // reset start pointer
+        out.flip();
+        
+        // return
+        return out;
+	}
+	
+	/**
+     * Undo one row based on the TIFF algorithm
+     */
+	protected void unpredictRow(byte[] in, byte[] row, byte[] prevRow) throws IOException
+	{
+		if (in != row)
+		{
+			System.arraycopy(in, 0, row, 0, row.length);
+		}
+		
+        final int numComponents = getColors();
+        final int pixelBits = numComponents * getBitsPerComponent();
+        
+        if (getBitsPerComponent() == 8)
+        {
+            for (int i = numComponents; i < row.length; i += numComponents)
             {
-                for (int i = numComponents; i < row.length; i += numComponents)
+                for (int c = 0; c < numComponents; ++c)
                 {
-                    for (int c = 0; c < numComponents; ++c)
-                    {
-                        final int pos = i + c;
-                        row[pos] += row[pos - numComponents];
-                    }
+                    final int pos = i + c;
+                    row[pos] += row[pos - numComponents];
                 }
             }
-            else if (getBitsPerComponent() == 16)
+        }
+        else if (getBitsPerComponent() == 16)
+        {
+            final short[] prev = new short[numComponents];
+            for (int c = 0; c < numComponents; c += 1)
+            {
+                final int pos = c * 2;
+                prev[c] = (short) ((row[pos] << 8 | (row[pos + 1]) & 0xFFFF));
+            }
+            for (int i = numComponents * 2; i < row.length; i += numComponents * 2)
             {
-                final short[] prev = new short[numComponents];
                 for (int c = 0; c < numComponents; c += 1)
                 {
-                    final int pos = c * 2;
-                    prev[c] = (short) ((row[pos] << 8 | (row[pos + 1]) & 0xFFFF));
-                }
-                for (int i = numComponents * 2; i < row.length; i += numComponents * 2)
-                {
-                    for (int c = 0; c < numComponents; c += 1)
-                    {
-                        final int pos = i + c * 2;
-                        short cur = (short) ((row[pos] << 8 | (row[pos + 1]) & 0xFFFF));
-                        cur += prev[c];
-                        row[pos] = (byte) (cur >>> 8 & 0xFF);
-                        row[pos + 1] = (byte) (cur & 0xFF);
-                        prev[c] = cur;
-                    }
+                    final int pos = i + c * 2;
+                    short cur = (short) ((row[pos] << 8 | (row[pos + 1]) & 0xFFFF));
+                    cur += prev[c];
+                    row[pos] = (byte) (cur >>> 8 & 0xFF);
+                    row[pos + 1] = (byte) (cur & 0xFF);
+                    prev[c] = cur;
                 }
             }
-            else
+        }
+        else
+        {
+        	PDFUtil.assert(getBitsPerComponent() == 1 || getBitsPerComponent() == 2 || getBitsPerComponent() == 4, "getBitsPerComponent() == 1 || getBitsPerComponent() == 2 || getBitsPerComponent() == 4", "we don't want to grab components across pixel boundaries");
+            int bitsOnRow = pixelBits * getColumns(); // may be less than bytesOnRow * 8
+            byte prev[] = new byte[numComponents];
+            final int shiftWhenAligned = 8 - getBitsPerComponent();
+            final int mask = (1 << getBitsPerComponent()) - 1;
+            for (int c = 0; c < numComponents; ++c)
+            {
+                prev[c] = getbits(row, c * getBitsPerComponent(), shiftWhenAligned, mask);
+            }
+            for (int i = pixelBits; i < bitsOnRow; i += pixelBits)
             {
-            	PDFUtil.assert(getBitsPerComponent() == 1 || getBitsPerComponent() == 2 || getBitsPerComponent() == 4, "getBitsPerComponent() == 1 || getBitsPerComponent() == 2 || getBitsPerComponent() == 4", "we don't want to grab components across pixel boundaries");
-                int bitsOnRow = pixelBits * getColumns(); // may be less than bytesOnRow * 8
-                byte prev[] = new byte[numComponents];
-                final int shiftWhenAligned = 8 - getBitsPerComponent();
-                final int mask = (1 << getBitsPerComponent()) - 1;
                 for (int c = 0; c < numComponents; ++c)
                 {
-                    prev[c] = getbits(row, c * getBitsPerComponent(), shiftWhenAligned, mask);
-                }
-                for (int i = pixelBits; i < bitsOnRow; i += pixelBits)
-                {
-                    for (int c = 0; c < numComponents; ++c)
-                    {
-                        byte cur = getbits(row, i + c * getBitsPerComponent(), shiftWhenAligned, mask);
-                        cur += prev[c];
-                        prev[c] = cur;
-                        setbits(row, i + c * getBitsPerComponent(), shiftWhenAligned, mask, cur);
-                    }
+                    byte cur = getbits(row, i + c * getBitsPerComponent(), shiftWhenAligned, mask);
+                    cur += prev[c];
+                    prev[c] = cur;
+                    setbits(row, i + c * getBitsPerComponent(), shiftWhenAligned, mask, cur);
                 }
             }
-            out.put(row);
         }
-        
-        // reset start pointer
-        out.flip();
-        
-        // return
-        return out;
 	}
 	
 	private static byte getbits(byte[] data, int bitIndex, int shiftWhenByteAligned, int mask)
@@ -45,8 +45,105 @@ public abstract class PDFFont
     private PDFFontDescriptor descriptor;
     /** the CMap that maps this font to unicode values */
     private PDFCMap unicodeMap;
-    /** a cache of glyphs indexed by character */
-    private Hashtable charCache;
+    /** the glyphs of single byte characters, indexed by character.  Never
+     * changed once published; adding a glyph publishes a copy, so it can be
+     * read without locking */
+    private volatile PDFGlyph[] byteGlyphs;
+    /** the glyphs of all other characters, published like byteGlyphs */
+    private volatile GlyphTable wideGlyphs;
+    /** unpublished copies of byteGlyphs and wideGlyphs that glyphs are
+     * being added to.  Only used while holding the lock on this font */
+    private PDFGlyph[] pendingByteGlyphs;
+    private GlyphTable pendingWideGlyphs;
+    /** true while prepareGlyphs() is adding glyphs, so they are published
+     * together at the end instead of one at a time */
+    private boolean preparing;
+    
+    /**
+     * An open addressed map of characters to glyphs.  A table is never
+     * changed once it is published: glyphs are added to a copy, so readers
+     * never see a table being written.
+     */
+    private static final class GlyphTable
+    {
+        private char[] keys;
+        private PDFGlyph[] values;
+        private int count;
+        
+        GlyphTable(int capacity)
+        {
+            keys = new char[capacity];
+            values = new PDFGlyph[capacity];
+        }
+        
+        /**
+         * get the glyph for a character, or null if there isn't one
+         */
+        PDFGlyph get(char c)
+        {
+            int mask = keys.length - 1;
+            for (int i = hash(c) & mask;; i = (i + 1) & mask)
+            {
+                PDFGlyph glyph = values[i];
+                if (glyph == null || keys[i] == c)
+                {
+                    return glyph;
+                }
+            }
+        }
+        
+        /**
+         * make a copy of this table, which can be added to
+         */
+        GlyphTable copy()
+        {
+            int len = keys.length;
+            GlyphTable copy = new GlyphTable(len);
+            System.arraycopy(keys, 0, copy.keys, 0, len);
+            System.arraycopy(values, 0, copy.values, 0, len);
+            copy.count = count;
+            return copy;
+        }
+        
+        /**
+         * add a glyph to a table that hasn't been published yet
+         * @return this table, or a larger copy if this one was too full
+         */
+        GlyphTable put(char c, PDFGlyph glyph)
+        {
+            int len = keys.length;
+            
+            // keep at least a quarter of the table empty so lookups stay short
+            if ((count + 1) * 4 > len * 3)
+            {
+                GlyphTable larger = new GlyphTable(len * 2);
+                for (int i = 0; i < len; i++)
+                {
+                    if (values[i] != null)
+                    {
+                        larger.put(keys[i], values[i]);
+                    }
+                }
+                return larger.put(c, glyph);
+            }
+            int mask = len - 1;
+            int i = hash(c) & mask;
+            while (values[i] != null)
+            {
+                i = (i + 1) & mask;
+            }
+            keys[i] = c;
+            values[i] = glyph;
+            count++;
+            return this;
+        }
+        
+        private static int hash(char c)
+        {
+            // CID fonts use runs of codes, so spread them out
+            return c * 0x9E3779B1 >>> 16;
+        }
+    }
     
     /**
      * get the PDFFont corresponding to the font described in a PDFObject.
@@ -337,6 +434,28 @@ public abstract class PDFFont
         return outList;
     }
     
+    /**
+     * Make sure the glyphs of some text are in the cache, so drawing it
+     * doesn't have to create any.  Any glyphs that are missing are
+     * published together, instead of copying the cache once for each of
+     * them.
+     *
+     * @param text the text that will be drawn in this font
+     */
+    public synchronized void prepareGlyphs(String text)
+    {
+        preparing = true;
+        try
+        {
+            getGlyphs(text);
+        }
+        finally
+        {
+            preparing = false;
+            publishGlyphs();
+        }
+    }
+    
     /**
      * Get a glyph for a given character code.  The glyph is returned
      * from the cache if available, or added to the cache if not
@@ -347,24 +466,105 @@ public abstract class PDFFont
      */
     public PDFGlyph getCachedGlyph(char src, String name)
     {
-        if (charCache == null)
+        // try the cache, which doesn't need a lock
+        PDFGlyph glyph = findCachedGlyph(src);
+        
+        // if it's not there, add it to the cache
+        if (glyph == null)
         {
-            charCache = new Hashtable();
+            glyph = addCachedGlyph(src, name);
         }
         
-        // try the cache
-        PDFGlyph glyph = (PDFGlyph)charCache.get(new Character(src));
-        
-        // if it's not there, add it to the cache
+        return glyph;
+    }
+    
+    /**
+     * Find a glyph in the cache
+     *
+     * @return the glyph, or null if it isn't in the cache
+     */
+    private PDFGlyph findCachedGlyph(char src)
+    {
+        if (src < 256)
+        {
+            PDFGlyph[] glyphs = byteGlyphs;
+            return glyphs == null ? null : glyphs[src];
+        }
+        GlyphTable table = wideGlyphs;
+        return table == null ? null : table.get(src);
+    }
+    
+    /**
+     * Create a glyph and add it to the cache, unless another thread has
+     * already done so
+     */
+    private synchronized PDFGlyph addCachedGlyph(char src, String name)
+    {
+        PDFGlyph glyph = findCachedGlyph(src);
         if (glyph == null)
         {
-            glyph = getGlyph(src, name);
-            charCache.put(new Character(src), glyph);
+            // it may have been added by prepareGlyphs() but not published yet
+            if (src < 256)
+            {
+                glyph = pendingByteGlyphs == null ? null : pendingByteGlyphs[src];
+            }
+            else
+            {
+                glyph = pendingWideGlyphs == null ? null : pendingWideGlyphs.get(src);
+            }
+        }
+        if (glyph != null)
+        {
+            return glyph;
         }
         
+        glyph = getGlyph(src, name);
+        // readers don't lock, so fill in a copy and publish that
+        if (src < 256)
+        {
+            if (pendingByteGlyphs == null)
+            {
+                pendingByteGlyphs = new PDFGlyph[256];
+                if (byteGlyphs != null)
+                {
+                    System.arraycopy(byteGlyphs, 0, pendingByteGlyphs, 0, 256);
+                }
+            }
+            pendingByteGlyphs[src] = glyph;
+        }
+        else
+        {
+            if (pendingWideGlyphs == null)
+            {
+                pendingWideGlyphs = wideGlyphs == null ? new GlyphTable(64) : wideGlyphs.copy();
+            }
+            pendingWideGlyphs = pendingWideGlyphs.put(src, glyph);
+        }
+        if (!preparing)
+        {
+            publishGlyphs();
+        }
         return glyph;
     }
     
+    /**
+     * Publish the glyphs that have been added to the cache.  A published
+     * table is never written again.
+     */
+    private synchronized void publishGlyphs()
+    {
+        if (pendingByteGlyphs != null)
+        {
+            byteGlyphs = pendingByteGlyphs;
+            pendingByteGlyphs = null;
+        }
+        if (pendingWideGlyphs != null)
+        {
+            wideGlyphs = pendingWideGlyphs;
+            pendingWideGlyphs = null;
+        }
+    }
+    
     /**
      * Create a PDFFont given the base font name and the font descriptor
      * @param baseFont the postscript name of this font
@@ -26,6 +26,7 @@ import com.sun.pdfview.PDFPage;
 import com.sun.pdfview.PDFShapeCmd;
 import com.sun.pdfview.helper.AffineTransform;
 import com.sun.pdfview.helper.XYPointFloat;
+import com.sun.pdfview.helper.XYRectFloat;
 import com.sun.pdfview.helper.graphics.Geometry;
 
 /**
@@ -46,6 +47,9 @@ public class PDFGlyph
     /** the shape represented by this glyph (for all fonts but type 3) */
     private Geometry shape;
     
+    /** the bounds of the shape, worked out the first time they are needed */
+    private XYRectFloat bounds;
+    
     /** the PDFPage storing this glyph's commands (for type 3 fonts) */
     private PDFPage page;
     
@@ -94,8 +98,19 @@ public class PDFGlyph
     /** Add commands for this glyph to a page */
     public XYPointFloat addCommands(PDFPage cmds, AffineTransform transform, int mode)
     {
-        if(shape != null)
+        if(shape != null && mode == PDFShapeCmd.FILL)
+        {
+            // filled glyphs all share the one outline
+            if (bounds == null)
+            {
+                bounds = shape.getBounds2D();
+            }
+            cmds.addGlyph(shape, bounds, transform);
+        }
+        else if(shape != null)
         {
+            // the stroke width and clip are in user space, so the outline is
+            // copied into it
         	Geometry outline = (Geometry)shape.createTransformedShape(transform);
             cmds.addCommand(new PDFShapeCmd(outline, mode));
         }
@@ -325,6 +325,21 @@ public class AffineTransform
         this.m12 = m.m12;
 	}
 	
+	/**
+	 * Sets this transform to the matrix specified by the 6 floating point values.
+	 */
+	public void setTransform(float m00, float m10, float m01, float m11, float m02, float m12)
+	{
+		this.type = TYPE_UNKNOWN;
+        this.m00 = m00;
+        this.m10 = m10;
+        this.m01 = m01;
+        this.m11 = m11;
+        this.m02 = m02;
+        this.m12 = m12;
+        deriveMatrixType();
+	}
+	
 	/**
 	 * Sets this matrix to the identity matrix.
 	 */
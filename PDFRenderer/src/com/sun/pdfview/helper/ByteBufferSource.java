@@ -0,0 +1,131 @@
+//#preprocessor
+
+/*
+ * File: ByteBufferSource.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 9:20:11 AM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.helper;
+
+import java.io.IOException;
+//#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
+import java.nio.ByteBuffer;
+//#else
+import com.sun.pdfview.helper.nio.ByteBuffer;
+//#endif
+
+import com.sun.pdfview.ResourceManager;
+import com.sun.pdfview.i18n.ResourcesResource;
+
+/**
+ * A {@link RandomAccessSource} over a {@link ByteBuffer} that is already in memory. The buffer's position is never changed, all reads are
+ * absolute.
+ */
+public class ByteBufferSource implements RandomAccessSource
+{
+	private ByteBuffer buffer;
+	private int length;
+
+	/**
+	 * Create a new source.
+	 * @param buffer The buffer to read from. The data between index 0 and the buffer's limit is used.
+	 */
+	public ByteBufferSource(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+		this.length = buffer.limit();
+	}
+
+	/**
+	 * Get the backing array of the buffer, if it can be used directly.
+	 * @return The array backing the buffer where index 0 is the first byte of the source, or <code>null</code> if the buffer doesn't expose it's array
+	 * or it is a slice.
+	 */
+	public byte[] array()
+	{
+		ByteBuffer buffer = this.buffer;
+		if(buffer != null && buffer.hasArray() && buffer.arrayOffset() == 0)
+		{
+			return buffer.array();
+		}
+		return null;
+	}
+
+	/**
+	 * Create a buffer that shares the content of this source, without copying it.
+	 * @param position The position the slice starts at.
+	 * @param length The length of the slice.
+	 * @return The new buffer, positioned at 0 with a limit of <code>length</code>.
+	 */
+	public ByteBuffer slice(int position, int length) throws IOException
+	{
+		ByteBuffer buffer = this.buffer;
+		if(buffer == null)
+		{
+			throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_STREAM_CLOSED));
+		}
+		synchronized(buffer)
+		{
+			int pos = buffer.position();
+			buffer.position(position);
+			ByteBuffer slice = buffer.slice();
+			buffer.position(pos);
+			slice.limit(length);
+			return slice;
+		}
+	}
+
+	public int length() throws IOException
+	{
+		if(this.buffer == null)
+		{
+			throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_STREAM_CLOSED));
+		}
+		return this.length;
+	}
+
+	public int read(int position, byte[] b, int off, int len) throws IOException
+	{
+		ByteBuffer buffer = this.buffer;
+		if(buffer == null)
+		{
+			throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_STREAM_CLOSED));
+		}
+		if(position >= this.length)
+		{
+			return -1;
+		}
+		len = Math.min(len, this.length - position);
+		if(buffer.hasArray())
+		{
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + position, b, off, len);
+		}
+		else
+		{
+			for(int i = 0; i < len; i++)
+			{
+				b[off + i] = buffer.get(position + i);
+			}
+		}
+		return len;
+	}
+
+	public void close() throws IOException
+	{
+		this.buffer = null;
+	}
+}
@@ -0,0 +1,126 @@
+//#preprocessor
+
+/*
+ * File: DebugLog.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 3:05:41 PM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.helper;
+
+import com.sun.pdfview.ResourceManager;
+
+/**
+ * Debug logging for the library. A message is only printed if its level is greater then the current level.
+ * <p>
+ * Messages should only be built if they will be printed, so call sites check first:
+ * <pre>
+ * if (DebugLog.ENABLED &amp;&amp; DebugLog.isLoggable(level))
+ * {
+ *     DebugLog.log(ResourcesResource.SOME_MESSAGE, new Object[]{arg}, level);
+ * }
+ * </pre>
+ * Defining the preprocessor symbol <code>PDF_STRIP_DEBUG_LOG</code> makes {@link #ENABLED} false so the compiler removes every such block.
+ * @author Vincent Simonetti
+ */
+public final class DebugLog
+{
+	/** If debug logging is compiled in. */
+//#ifdef PDF_STRIP_DEBUG_LOG
+	public static final boolean ENABLED = false;
+//#else
+	public static final boolean ENABLED = true;
+//#endif
+
+	/** The level of warnings about problems in a file that can be worked around. These print at the default level. */
+	public static final int WARNING = 5000;
+
+	private static int level = 4000;
+
+	private DebugLog()
+	{
+	}
+
+	/**
+	 * Get the current level. Messages must be above this level to be printed.
+	 */
+	public static int getLevel()
+	{
+		return level;
+	}
+
+	/**
+	 * Set the current level. Messages must be above this level to be printed.
+	 */
+	public static void setLevel(int level)
+	{
+		DebugLog.level = level;
+	}
+
+	/**
+	 * Determine if a message at the given level would be printed.
+	 */
+	public static boolean isLoggable(int level)
+	{
+		return ENABLED && level > DebugLog.level;
+	}
+
+	/**
+	 * Print a message, if it's level is high enough.
+	 * @param msg The message.
+	 * @param level The level of the message.
+	 */
+	public static void log(String msg, int level)
+	{
+		if(isLoggable(level))
+		{
+			System.out.println(escape(msg));
+		}
+	}
+
+	/**
+	 * Print a localized message, if it's level is high enough. The message is only formatted if it will be printed.
+	 * @param id The resource ID of the message.
+	 * @param args The arguments to format the message with.
+	 * @param level The level of the message.
+	 */
+	public static void log(long id, Object[] args, int level)
+	{
+		if(isLoggable(level))
+		{
+			System.out.println(escape(ResourceManager.getResource(ResourceManager.LOCALIZATION).getFormattedString(id, args)));
+		}
+	}
+
+	/**
+	 * Replace any control or non-ASCII characters, other then new lines, with '?'.
+	 */
+	public static String escape(String msg)
+	{
+		StringBuffer sb = new StringBuffer();
+		int len = msg.length();
+		for(int i = 0; i < len; i++)
+		{
+			char c = msg.charAt(i);
+			if(c != '\n' && (c < 32 || c >= 127))
+			{
+				c = '?';
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * File: RandomAccessSource.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 9:12:40 AM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.helper;
+
+import java.io.IOException;
+
+/**
+ * A read-only source of bytes that can be read at any absolute position. Reads do not share a "current position" so a source can be read by
+ * multiple {@link SourceBuffer}s at once.
+ */
+public interface RandomAccessSource
+{
+	/**
+	 * Get the total length of the source.
+	 * @return The number of bytes in the source.
+	 * @throws IOException If the source is closed or the length can't be determined.
+	 */
+	public int length() throws IOException;
+
+	/**
+	 * Read bytes from an absolute position in the source.
+	 * @param position The position in the source to start reading from.
+	 * @param b The buffer to read the data into.
+	 * @param off The offset in <code>b</code> to start writing at.
+	 * @param len The maximum number of bytes to read.
+	 * @return The number of bytes actually read, or -1 if <code>position</code> is at or past the end of the source.
+	 * @throws IOException If an I/O error occurs or the source is closed.
+	 */
+	public int read(int position, byte[] b, int off, int len) throws IOException;
+
+	/**
+	 * Close the source, releasing any resources it holds.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void close() throws IOException;
+}
@@ -0,0 +1,102 @@
+/*
+ * File: SeekableInputSource.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 9:31:52 AM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.helper;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.rim.device.api.io.Seekable;
+
+import com.sun.pdfview.ResourceManager;
+import com.sun.pdfview.i18n.ResourcesResource;
+
+/**
+ * A {@link RandomAccessSource} over an {@link InputStream} that implements {@link Seekable}, such as the stream returned by
+ * <code>FileConnection.openInputStream()</code> or a {@link SeekableStream}. Only the data that is asked for is ever read from the stream.
+ */
+public class SeekableInputSource implements RandomAccessSource
+{
+	private InputStream in;
+	private int length;
+
+	/**
+	 * Create a new source.
+	 * @param in The stream to read from. Must implement {@link Seekable}.
+	 * @param length The length of the stream, in bytes.
+	 * @throws IllegalArgumentException If <code>in</code> doesn't implement {@link Seekable}.
+	 */
+	public SeekableInputSource(InputStream in, long length)
+	{
+		if(!(in instanceof Seekable))
+		{
+			throw new IllegalArgumentException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSOURCE_NOT_SEEKABLE));
+		}
+		if(length < 0 || length > Integer.MAX_VALUE)
+		{
+			throw new IllegalArgumentException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_POS_OUTOFBOUNDS));
+		}
+		this.in = in;
+		this.length = (int)length;
+	}
+
+	public int length() throws IOException
+	{
+		if(this.in == null)
+		{
+			throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_STREAM_CLOSED));
+		}
+		return this.length;
+	}
+
+	public synchronized int read(int position, byte[] b, int off, int len) throws IOException
+	{
+		if(this.in == null)
+		{
+			throw new IOException(ResourceManager.getResource(ResourceManager.LOCALIZATION).getString(ResourcesResource.HELPER_SEEKSTREAM_STREAM_CLOSED));
+		}
+		if(position >= this.length)
+		{
+			return -1;
+		}
+		len = Math.min(len, this.length - position);
+		((Seekable)this.in).setPosition(position);
+		int total = 0;
+		while(total < len)
+		{
+			int r = this.in.read(b, off + total, len - total);
+			if(r < 0)
+			{
+				break;
+			}
+			total += r;
+		}
+		return total == 0 ? -1 : total;
+	}
+
+	public synchronized void close() throws IOException
+	{
+		if(this.in != null)
+		{
+			InputStream in = this.in;
+			this.in = null;
+			in.close();
+		}
+	}
+}
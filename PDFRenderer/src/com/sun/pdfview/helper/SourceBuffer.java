@@ -0,0 +1,293 @@
+/*
+ * File: SourceBuffer.java
+ * Version: 1.0
+ * Initial Creation: Oct 18, 2026 9:44:05 AM
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+package com.sun.pdfview.helper;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * A cursor over a {@link RandomAccessSource} with ByteBuffer style relative and absolute reads. Only a small window of the source is held in
+ * memory at a time, it gets refilled as the position moves outside of it. If the source is a {@link ByteBufferSource} with an accessible array then
+ * the array is used directly and nothing is copied.
+ * <p>
+ * A SourceBuffer is not thread safe, but any number of SourceBuffers can read from the same source. Use {@link #duplicate()} to get a cursor
+ * for another thread.
+ */
+public final class SourceBuffer
+{
+	/** The default number of bytes held in memory by a cursor. */
+	public static final int DEFAULT_WINDOW_SIZE = 4096;
+
+	/** When the window is refilled, this many bytes before the requested position are kept, since the parser often steps back a character. */
+	private static final int WINDOW_BACKTRACK = 32;
+
+	private RandomAccessSource source;
+	private int base;
+	private int limit;
+	private int position;
+
+	private byte[] window;
+	private int windowStart;
+	private int windowEnd;
+	/** Add to a position to get the index into the window. */
+	private int windowDelta;
+	private boolean shared;
+
+	/**
+	 * Create a cursor over an entire source.
+	 * @param source The source to read.
+	 * @throws IOException If the length of the source can't be read.
+	 */
+	public SourceBuffer(RandomAccessSource source) throws IOException
+	{
+		this(source, 0, source.length(), DEFAULT_WINDOW_SIZE);
+	}
+
+	/**
+	 * Create a cursor over part of a source.
+	 * @param source The source to read.
+	 * @param base The position within the source that position 0 of this cursor represents.
+	 * @param length The number of bytes the cursor covers.
+	 * @param windowSize The number of bytes to hold in memory at a time.
+	 */
+	public SourceBuffer(RandomAccessSource source, int base, int length, int windowSize)
+	{
+		this.source = source;
+		this.base = base;
+		this.limit = length;
+		if(source instanceof ByteBufferSource)
+		{
+			byte[] array = ((ByteBufferSource)source).array();
+			if(array != null)
+			{
+				this.window = array;
+				this.windowStart = 0;
+				this.windowEnd = length;
+				this.windowDelta = base;
+				this.shared = true;
+			}
+		}
+		if(!this.shared)
+		{
+			this.window = new byte[Math.max(windowSize, WINDOW_BACKTRACK * 2)];
+			this.windowStart = this.windowEnd = 0;
+		}
+	}
+
+	/**
+	 * Get the source this cursor reads from.
+	 */
+	public RandomAccessSource getSource()
+	{
+		return this.source;
+	}
+
+	/**
+	 * Get the position within the source that position 0 of this cursor represents.
+	 */
+	public int getBase()
+	{
+		return this.base;
+	}
+
+	/**
+	 * Create a new cursor over the same range of the same source, starting at the same position. The two cursors have independent positions.
+	 * @return The new cursor.
+	 */
+	public SourceBuffer duplicate()
+	{
+		SourceBuffer dup = new SourceBuffer(this.source, this.base, this.limit, this.shared ? DEFAULT_WINDOW_SIZE : this.window.length);
+		dup.position = this.position;
+		return dup;
+	}
+
+	/**
+	 * Create a new cursor that starts at the current position and is <code>length</code> bytes long.
+	 * @param length The length of the new cursor.
+	 * @return The new cursor.
+	 */
+	public SourceBuffer slice(int length)
+	{
+		if(length < 0 || this.position + length > this.limit)
+		{
+			throw new IllegalArgumentException();
+		}
+		return new SourceBuffer(this.source, this.base + this.position, length, this.shared ? DEFAULT_WINDOW_SIZE : this.window.length);
+	}
+
+	/**
+	 * Returns this cursor's position.
+	 */
+	public int position()
+	{
+		return this.position;
+	}
+
+	/**
+	 * Sets this cursor's position.
+	 * @param newPosition The new position value; must be non-negative and no larger than the limit.
+	 */
+	public void position(int newPosition)
+	{
+		if(newPosition < 0 || newPosition > this.limit)
+		{
+			throw new IllegalArgumentException();
+		}
+		this.position = newPosition;
+	}
+
+	/**
+	 * Returns this cursor's limit, which is the length of the data it covers.
+	 */
+	public int limit()
+	{
+		return this.limit;
+	}
+
+	/**
+	 * Returns the number of bytes between the current position and the limit.
+	 */
+	public int remaining()
+	{
+		return this.limit - this.position;
+	}
+
+	/**
+	 * Set the position to 0.
+	 */
+	public void rewind()
+	{
+		this.position = 0;
+	}
+
+	/**
+	 * Relative get method. Reads the byte at the current position, and then increments the position.
+	 * @return The byte at the current position.
+	 * @throws EOFException If the position is at the limit.
+	 * @throws IOException If the source can't be read.
+	 */
+	public byte get() throws IOException
+	{
+		int p = this.position;
+		if(p >= this.limit)
+		{
+			throw new EOFException();
+		}
+		if(p < this.windowStart || p >= this.windowEnd)
+		{
+			fill(p);
+		}
+		this.position = p + 1;
+		return this.window[p + this.windowDelta];
+	}
+
+	/**
+	 * Absolute get method. Reads the byte at the given index without changing the position.
+	 * @param index The index to read.
+	 * @return The byte at <code>index</code>.
+	 * @throws IOException If the source can't be read.
+	 */
+	public byte get(int index) throws IOException
+	{
+		if(index < 0 || index >= this.limit)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		if(index < this.windowStart || index >= this.windowEnd)
+		{
+			fill(index);
+		}
+		return this.window[index + this.windowDelta];
+	}
+
+	/**
+	 * Relative bulk get method.
+	 * @param dst The array to fill.
+	 * @throws EOFException If there are less then <code>dst.length</code> bytes remaining.
+	 * @throws IOException If the source can't be read.
+	 */
+	public void get(byte[] dst) throws IOException
+	{
+		get(dst, 0, dst.length);
+	}
+
+	/**
+	 * Relative bulk get method.
+	 * @param dst The array to write into.
+	 * @param off The offset in <code>dst</code> to start writing at.
+	 * @param len The number of bytes to read.
+	 * @throws EOFException If there are less then <code>len</code> bytes remaining.
+	 * @throws IOException If the source can't be read.
+	 */
+	public void get(byte[] dst, int off, int len) throws IOException
+	{
+		if(len > remaining())
+		{
+			throw new EOFException();
+		}
+		int p = this.position;
+		if(p >= this.windowStart && p + len <= this.windowEnd)
+		{
+			System.arraycopy(this.window, p + this.windowDelta, dst, off, len);
+		}
+		else
+		{
+			//Larger then what is in memory, read it straight from the source
+			int total = 0;
+			while(total < len)
+			{
+				int r = this.source.read(this.base + p + total, dst, off + total, len - total);
+				if(r < 0)
+				{
+					throw new EOFException();
+				}
+				total += r;
+			}
+		}
+		this.position = p + len;
+	}
+
+	/**
+	 * Read the window so that it contains the given position.
+	 */
+	private void fill(int p) throws IOException
+	{
+		int start = Math.max(0, p - WINDOW_BACKTRACK);
+		int len = Math.min(this.window.length, this.limit - start);
+		int total = 0;
+		while(total < len)
+		{
+			int r = this.source.read(this.base + start + total, this.window, total, len - total);
+			if(r < 0)
+			{
+				break;
+			}
+			total += r;
+		}
+		if(start + total <= p)
+		{
+			this.windowStart = this.windowEnd = 0;
+			throw new EOFException();
+		}
+		this.windowStart = start;
+		this.windowEnd = start + total;
+		this.windowDelta = -start;
+	}
+}
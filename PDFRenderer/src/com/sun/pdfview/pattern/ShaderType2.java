@@ -27,7 +27,6 @@ package com.sun.pdfview.pattern;
 import java.io.IOException;
 
 import net.rim.device.api.system.Bitmap;
-import net.rim.device.api.ui.Color;
 //#ifndef BlackBerrySDK4.5.0
 import net.rim.device.api.util.MathUtilities;
 //#endif
@@ -35,6 +34,7 @@ import net.rim.device.api.util.MathUtilities;
 import com.sun.pdfview.PDFObject;
 import com.sun.pdfview.PDFPaint;
 import com.sun.pdfview.PDFParseException;
+import com.sun.pdfview.colorspace.PDFColorSpace;
 import com.sun.pdfview.function.PDFFunction;
 import com.sun.pdfview.helper.AffineTransform;
 import com.sun.pdfview.helper.ColorSpace;
@@ -275,9 +275,26 @@ public class ShaderType2 extends PDFShader
         }
 
         public int getColor()
-		{
-			return Color.BLACK;
-		}
+        {
+            // the color halfway along the axis stands in for the shading
+            PDFFunction[] functions = getFunctions();
+            PDFColorSpace cs = ShaderType2.this.getColorSpace();
+            float[] inputs = new float[] { (getMinT() + getMaxT()) / 2 };
+            float[] outputs = new float[cs.getNumComponents()];
+            if (functions.length == 1)
+            {
+                functions[0].calculate(inputs, 0, outputs, 0);
+            }
+            else
+            {
+                int len = functions.length;
+                for (int c = 0; c < len; c++)
+                {
+                    functions[c].calculate(inputs, 0, outputs, c);
+                }
+            }
+            return cs.getPaint(outputs).getPaint().getColor();
+        }
     }
     
     /** 
@@ -43,8 +43,91 @@ public class FullPageField extends GestureField
 	
 	private PDFPage page;
 	private int curRenderWidth, curRenderHeight;
-	private Bitmap drawnPage;
+	/** A quick draft of the current page, shown where tiles haven't been rendered yet. */
+	private Bitmap draftPage;
 	private boolean needRerender;
+	/** Set while {@link #renderTask} is running. */
+	private volatile boolean rendering;
+	/** Set if the last render finished without every tile it needed, so a missing tile isn't rendered again until something changes. */
+	private volatile boolean tilesFailed;
+	/** Renders the visible tiles of the current page, queued on the scheduler. Only one render is queued however many times the page changes. */
+	private Runnable renderTask = new Runnable()
+	{
+		public void run()
+		{
+			FullPageField.this.rendering = true;
+			try
+			{
+				render();
+			}
+			finally
+			{
+				FullPageField.this.rendering = false;
+			}
+		}
+		
+		private void render()
+		{
+			FullPageField fpf = FullPageField.this;
+			PDFPage page = fpf.page;
+			if(page == null)
+			{
+				return;
+			}
+			int width = Fixed32.toInt(fpf.sW);
+			int height = Fixed32.toInt(fpf.sH);
+			if(fpf.draftPage == null)
+			{
+				//Show something straight away, the draft works at any zoom
+				Bitmap draft = page.getDraftImage(width, height, null, true, true);
+				if(page != fpf.page)
+				{
+					return;
+				}
+				fpf.draftPage = draft;
+			}
+			fpf.curRenderWidth = width;
+			fpf.curRenderHeight = height;
+			fpf.tilesFailed = false;
+			fpf.invalidate();
+			int[] xPts = new int[4];
+			int[] yPts = new int[4];
+			int rows = PDFPage.getTileCount(height);
+			int cols = PDFPage.getTileCount(width);
+			//Only tiles that can be seen, and haven't already been rendered, need rendering
+			boolean[] needed = new boolean[rows * cols];
+			for(int ty = 0; ty < rows; ty++)
+			{
+				for(int tx = 0; tx < cols; tx++)
+				{
+					if(fpf.getTilePath(tx, ty, xPts, yPts) && page.getCachedTile(width, height, tx, ty) == null)
+					{
+						//Start them all so they render at the same time
+						needed[ty * cols + tx] = true;
+						page.renderTiles(width, height, tx * PDFPage.TILE_SIZE, ty * PDFPage.TILE_SIZE, 1, 1, true, false);
+					}
+				}
+			}
+			for(int i = 0; i < needed.length; i++)
+			{
+				if(page != fpf.page || width != fpf.curRenderWidth || height != fpf.curRenderHeight)
+				{
+					//The page or zoom changed, a new render will be queued
+					return;
+				}
+				if(needed[i])
+				{
+					//Show each tile as it finishes
+					page.renderTiles(width, height, (i % cols) * PDFPage.TILE_SIZE, (i / cols) * PDFPage.TILE_SIZE, 1, 1, true, true);
+					if(page.getCachedTile(width, height, i % cols, i / cols) == null)
+					{
+						fpf.tilesFailed = true;
+					}
+					fpf.invalidate();
+				}
+			}
+		}
+	};
 	
 	private int sW, sH;
 	
@@ -70,7 +153,7 @@ public class FullPageField extends GestureField
 		
 		XYRect extent = this.getExtent();
 		if(super.gestureProcessing && //Simple way to check if a PDF is in use
-				this.drawnPage != null) //Only draw if a page exists
+				this.page != null && this.curRenderWidth > 0) //Only draw if a page exists
 		{
 			//Clear the background
 			graphics.setColor(Color.GRAY);
@@ -99,8 +182,47 @@ public class FullPageField extends GestureField
 			int duy = Fixed32.div(this.mat[DRAWING_MATRIX + 3], heightScale);
 			int dvy = Fixed32.div(this.mat[DRAWING_MATRIX + 4], heightScale);
 			
-			//Draw
-			graphics.drawTexturedPath(xPts, yPts, null, null, xPts[0], yPts[0], dux, dvx, duy, dvy, this.drawnPage);
+			//Draw the draft, or a blank page, for tiles that haven't been rendered yet
+			Bitmap draft = this.draftPage;
+			if(draft != null)
+			{
+				int draftX = Fixed32.div(Fixed32.toFP(draft.getWidth()), Fixed32.toFP(this.curRenderWidth));
+				int draftY = Fixed32.div(Fixed32.toFP(draft.getHeight()), Fixed32.toFP(this.curRenderHeight));
+				graphics.drawTexturedPath(xPts, yPts, null, null, xPts[0], yPts[0], Fixed32.mul(dux, draftX), Fixed32.mul(dvx, draftY), Fixed32.mul(duy, draftX), Fixed32.mul(dvy, draftY), draft);
+			}
+			else
+			{
+				graphics.setColor(Color.WHITE);
+				graphics.drawFilledPath(xPts, yPts, null, null);
+			}
+			
+			//Draw the visible tiles that have been rendered
+			boolean missing = false;
+			int rows = PDFPage.getTileCount(this.curRenderHeight);
+			int cols = PDFPage.getTileCount(this.curRenderWidth);
+			for(int ty = 0; ty < rows; ty++)
+			{
+				for(int tx = 0; tx < cols; tx++)
+				{
+					if(getTilePath(tx, ty, xPts, yPts))
+					{
+						Bitmap tile = this.page.getCachedTile(this.curRenderWidth, this.curRenderHeight, tx, ty);
+						if(tile != null)
+						{
+							graphics.drawTexturedPath(xPts, yPts, null, null, xPts[0], yPts[0], dux, dvx, duy, dvy, tile);
+						}
+						else
+						{
+							missing = true;
+						}
+					}
+				}
+			}
+			if(missing && !this.rendering && !this.tilesFailed)
+			{
+				//A visible tile was evicted after it was rendered, render it again instead of leaving the draft showing
+				renderPDF();
+			}
 		}
 		else
 		{
@@ -115,6 +237,30 @@ public class FullPageField extends GestureField
 		graphics.setColor(pcolor);
 	}
 	
+	/**
+	 * Get the on screen path of a tile of the current render.
+	 * @return <code>true</code> if any of the tile is visible, <code>false</code> otherwise.
+	 */
+	private boolean getTilePath(int tx, int ty, int[] xPts, int[] yPts)
+	{
+		int x0 = tx * PDFPage.TILE_SIZE;
+		int y0 = ty * PDFPage.TILE_SIZE;
+		int x1 = Math.min(x0 + PDFPage.TILE_SIZE, this.curRenderWidth);
+		int y1 = Math.min(y0 + PDFPage.TILE_SIZE, this.curRenderHeight);
+		xPts[0] = xPts[1] = x0;
+		xPts[2] = xPts[3] = x1;
+		yPts[0] = yPts[3] = y0;
+		yPts[1] = yPts[2] = y1;
+		
+		VecMath.transformPoints(mat, DRAWING_MATRIX, xPts, yPts, xPts, yPts);
+		
+		int minX = Math.min(Math.min(xPts[0], xPts[1]), Math.min(xPts[2], xPts[3]));
+		int maxX = Math.max(Math.max(xPts[0], xPts[1]), Math.max(xPts[2], xPts[3]));
+		int minY = Math.min(Math.min(yPts[0], yPts[1]), Math.min(yPts[2], yPts[3]));
+		int maxY = Math.max(Math.max(yPts[0], yPts[1]), Math.max(yPts[2], yPts[3]));
+		return maxX > 0 && maxY > 0 && minX < this.getWidth() && minY < this.getHeight();
+	}
+	
 	protected boolean interactionMove(int x, int y)
 	{
 		GestureField.matrixSetTranslate(mat, WORKING_MATRIX, x, y);
@@ -152,23 +298,16 @@ public class FullPageField extends GestureField
 			//Make sure that if the page will be rescaled to refit the screen that this doesn't run... yet.
 			if(this.page != null)
 			{
-				if(!this.page.isFinished())
-				{
-					this.page.stop(this.curRenderWidth, this.curRenderHeight, null);
-					try
-					{
-						this.page.waitForFinish();
-					}
-					catch (InterruptedException e)
-					{
-					}
-				}
+				//Tiles of the old zoom will never be shown, don't let them compete with the new ones
+				this.page.stopTiles(this.curRenderWidth, this.curRenderHeight);
 				renderPDF();
 			}
 			this.needRerender = false;
 		}
 		else
 		{
+			//Panning may have uncovered tiles that haven't been rendered
+			renderPDF();
 			invalidate();
 		}
 	}
@@ -196,45 +335,38 @@ public class FullPageField extends GestureField
 		{
 			if(this.page != null)
 			{
-				if(!this.page.isFinished())
-				{
-					this.page.stop(this.curRenderWidth, this.curRenderHeight, null);
-					try
-					{
-						this.page.waitForFinish();
-					}
-					catch (InterruptedException e)
-					{
-					}
-				}
+				//The old page's parse can carry on in the background, only its tiles are of no use now
+				this.page.stopTiles(this.curRenderWidth, this.curRenderHeight);
 			}
 			this.page = page;
+			this.draftPage = null;
 			GestureField.matrixSetIdentity(mat, DRAWING_MATRIX);
 			renderPDF();
 		}
 	}
 	
+	/**
+	 * Get the width pages are currently rendered at.
+	 */
+	public int getRenderWidth()
+	{
+		return Fixed32.toInt(sW);
+	}
+	
+	/**
+	 * Get the height pages are currently rendered at.
+	 */
+	public int getRenderHeight()
+	{
+		return Fixed32.toInt(sH);
+	}
+	
 	private void renderPDF()
 	{
 		this.gestureProcessing = this.page != null;
 		if(this.page != null)
 		{
-			Thread thread = new Thread(new Runnable()
-			{
-				public void run()
-				{
-					FullPageField fpf = FullPageField.this;
-					fpf.curRenderWidth = Fixed32.toInt(fpf.sW);
-					fpf.curRenderHeight = Fixed32.toInt(fpf.sH);
-					Bitmap bmp = fpf.page.getImage(fpf.curRenderWidth, fpf.curRenderHeight, null, true, true);
-					if(fpf.page.isFinished())
-					{
-						fpf.drawnPage = bmp;
-						fpf.invalidate();
-					}
-				}
-			});
-			thread.start();
+			Scheduler.getDefault().schedule(this.renderTask, Scheduler.PRIORITY_VISIBLE);
 		}
 	}
 	
@@ -23,11 +23,9 @@ package com.sun.pdfview;
 
 import java.io.InputStream;
 //#ifndef BlackBerrySDK4.5.0 | BlackBerrySDK4.6.0 | BlackBerrySDK4.6.1 | BlackBerrySDK4.7.0 | BlackBerrySDK4.7.1
-import java.nio.ByteBuffer;
 import net.rim.device.api.io.URI;
 import net.rim.device.api.ui.picker.FilePicker;
 //#else
-import com.sun.pdfview.helper.nio.ByteBuffer;
 import com.sun.pdfview.ui.FilePicker;
 //#endif
 
@@ -35,8 +33,8 @@ import javax.microedition.io.Connector;
 import javax.microedition.io.file.FileConnection;
 
 import com.sun.pdfview.decrypt.PDFAuthenticationFailureException;
+import com.sun.pdfview.helper.SeekableInputSource;
 
-import net.rim.device.api.io.IOUtilities;
 import net.rim.device.api.math.Fixed32;
 import net.rim.device.api.system.Characters;
 import net.rim.device.api.system.EncodedImage;
@@ -82,6 +80,7 @@ public class PDFViewer extends UiApplication
 		private static final int FP_TWO = Fixed32.ONE * 2;
 		
 		private PDFFile file;
+		private FileConnection fileConnection;
 		
 		//Various menu items, loaded as needed
 		private MenuItem openPDF, closePDF, zoomIn, zoomOut, fit2screen, viewOutline;
@@ -233,9 +232,9 @@ public class PDFViewer extends UiApplication
 				
 				file = (FileConnection)Connector.open(uri.toString(), Connector.READ);
 				in = file.openInputStream();
-				ByteBuffer buf = ByteBuffer.wrap(IOUtilities.streamToBytes(in));
 				
-				nFile = new PDFFile(buf);
+				//The file is read as it is needed, so it stays open until the PDF is closed
+				nFile = new PDFFile(new SeekableInputSource(in, file.fileSize()));
 			}
 			catch(PDFAuthenticationFailureException e)
 			{
@@ -249,7 +248,7 @@ public class PDFViewer extends UiApplication
 			}
 			finally
 			{
-				if(file != null)
+				if(error && file != null)
 				{
 					try
 					{
@@ -280,6 +279,7 @@ public class PDFViewer extends UiApplication
 			if(nFile != null)
 			{
 				this.file = nFile;
+				this.fileConnection = file;
 			}
 			this.title.setText(TITLE + ": " + getFileName(uri));
 			
@@ -447,10 +447,26 @@ public class PDFViewer extends UiApplication
 			{
 				page = pageCount;
 			}
+			//Keep the displayed page cached
+			Cache cache = file.getCache();
+			if(currentpage > 0)
+			{
+				cache.unpinPage(new Integer(currentpage));
+				//Let the old page finish in the background without holding up the new one
+				file.setPagePriority(currentpage, Math.abs(currentpage - page) == 1 ? Scheduler.PRIORITY_ADJACENT : Scheduler.PRIORITY_PREFETCH);
+			}
 			currentpage = page;
+			cache.pinPage(new Integer(currentpage));
 			pageTextField.setText(Integer.toString(page));
-			pageField.showPage(file.getPage(currentpage));
+			PDFPage pdfPage = file.getPage(currentpage, false, Scheduler.PRIORITY_VISIBLE);
+			if(pdfPage != null)
+			{
+				pdfPage.setPriority(Scheduler.PRIORITY_VISIBLE);
+			}
+			pageField.showPage(pdfPage);
 			thumbNails.showThumbnail(currentpage);
+			//Get the pages around this one ready in case they are next
+			file.prefetch(currentpage, PDFFile.DEFAULT_PREFETCH_DISTANCE, pageField.getRenderWidth(), pageField.getRenderHeight());
 		}
 		
 		private void showOutline()
@@ -510,7 +526,19 @@ public class PDFViewer extends UiApplication
 			this.thumbNails.reset();
 			//TODO: Pop thumbnails off stack if PDF is closed but thumbnails is visible.
 			PDFFile.appClosing();
+			try
+			{
+				file.close();
+				if(fileConnection != null)
+				{
+					fileConnection.close();
+				}
+			}
+			catch(Exception e)
+			{
+			}
 			file = null;
+			fileConnection = null;
 		}
 		
 		public void close()
@@ -41,8 +41,10 @@ public class ThumbnailPopup extends PopupScreen implements ScrollChangeListener,
 	
 	/** The PDFFile being displayed */
 	private PDFFile file;
-	/** Thread that renders each thumbnail in turn */
-	private Thread anim;
+	/** True while thumbnails are being rendered, one at a time on the scheduler */
+	private boolean running;
+	/** The thumbnail we'll be rendering next */
+	private int workingon;
 	/**
      * Which thumbnail needs to be drawn next, or -1 if the previous
      * needy thumbnail is being processed.
@@ -102,8 +104,9 @@ public class ThumbnailPopup extends PopupScreen implements ScrollChangeListener,
 	
 	public void startProcess()
 	{
-		anim = new Thread(this);
-        anim.start();
+		workingon = 0;
+		running = true;
+		Scheduler.getDefault().schedule(this, Scheduler.PRIORITY_THUMBNAIL);
 	}
 	
 	public void reset()
@@ -119,21 +122,10 @@ public class ThumbnailPopup extends PopupScreen implements ScrollChangeListener,
 	
 	public void stop()
 	{
-		if(anim != null)
+		if(running)
 		{
-			if(anim.isAlive())
-			{
-				anim = null; //This should cause the thread to stop looping and return
-				/*
-				try
-				{
-					anim.join();
-				}
-				catch (InterruptedException e)
-				{
-				}
-				*/
-			}
+			running = false; //This stops the next thumbnail from being queued
+			Scheduler.getDefault().cancel(this);
 		}
 	}
 	
@@ -178,98 +170,110 @@ public class ThumbnailPopup extends PopupScreen implements ScrollChangeListener,
 
 	public void run()
 	{
-		int workingon = 0;	// the thumbnail we'll be rendering next.
+		if (!running)
+		{
+			return;
+		}
 		
-		while (anim == Thread.currentThread())
+		if (needdrawn >= 0)
 		{
-			if (needdrawn >= 0)
-			{
-                workingon = needdrawn;
-                needdrawn = -1;
+            workingon = needdrawn;
+            needdrawn = -1;
+        }
+		
+        // find an unfinished page
+        int loop;
+        PageField pageField;
+        for (loop = this.getFieldCount(); loop > 0; loop--)
+        {
+        	pageField = (PageField)this.getField(workingon);
+            if (pageField.getPage() == null)
+            {
+                break;
             }
-			
-            // find an unfinished page
-            int loop;
-            PageField pageField;
-            for (loop = this.getFieldCount(); loop > 0; loop--)
+            workingon++;
+            if (workingon >= this.getFieldCount())
             {
-            	pageField = (PageField)this.getField(workingon);
-                if (pageField.getPage() == null)
-                {
-                    break;
-                }
-                workingon++;
-                if (workingon >= this.getFieldCount())
-                {
-                    workingon = 0;
-                }
+                workingon = 0;
             }
-            if (loop == 0)
+        }
+        if (loop == 0)
+        {
+            // done all pages.
+            running = false;
+            return;
+        }
+        
+        // build the page
+        try
+        {
+            int pagetoread = workingon + 1;
+            //int pagetoread = 1;
+            //System.out.println("Read page: " + pagetoread);
+            PDFPage p = file.getPage(pagetoread, true, Scheduler.PRIORITY_THUMBNAIL);
+            if(workingon == 0)
             {
-                // done all pages.
-                break;
+            	synchronized(this.tracker)
+            	{
+            		this.tracker.click(workingon);
+            	}
             }
             
-            // build the page
-            try
+            int hi = THUMB_HEIGHT - THUMB_BUFFER;
+            int wid = (int)Math.ceil(hi * p.getAspectRatio());
+            //if (!p.isFinished())
+            //{
+            //	System.out.println("Page not finished!");
+            //	p.waitForFinish();
+            //}
+            //int pagetowrite = 0;
+            int pagetowrite = workingon;
+            
+            //Thumbnails come after the page being read, but before prefetched pages
+            if(p.getPriority() < Scheduler.PRIORITY_THUMBNAIL)
+            {
+            	p.setPriority(Scheduler.PRIORITY_THUMBNAIL);
+            }
+            Bitmap i = p.getImage(wid, hi, null, true, true);
+            
+            // images[0] = i;
+            synchronized (Application.getEventLock())
+            {
+            	pageField = (PageField)this.getField(pagetowrite);
+            	//if(pageField.getMaxWidth() > wid || pageField.getMaxHeight() > hi)
+            	//{
+            		pageField.setMax(wid, hi);
+            	//}
+            	pageField.setPage(i);
+            }
+            
+            invalidate();
+        }
+        catch (Exception e)
+        {
+            int size = THUMB_HEIGHT - THUMB_BUFFER;
+            synchronized (Application.getEventLock())
             {
-                int pagetoread = workingon + 1;
-                //int pagetoread = 1;
-                //System.out.println("Read page: " + pagetoread);
-                PDFPage p = file.getPage(pagetoread, true);
-                if(workingon == 0)
-                {
-                	synchronized(this.tracker)
-                	{
-                		this.tracker.click(workingon);
-                	}
-                }
-                
-                int hi = THUMB_HEIGHT - THUMB_BUFFER;
-                int wid = (int)Math.ceil(hi * p.getAspectRatio());
-                //if (!p.isFinished())
-                //{
-                //	System.out.println("Page not finished!");
-                //	p.waitForFinish();
-                //}
-                //int pagetowrite = 0;
-                int pagetowrite = workingon;
-                
-                Bitmap i = p.getImage(wid, hi, null, true, true);
-                
-                // images[0] = i;
-                synchronized (Application.getEventLock())
-                {
-                	pageField = (PageField)this.getField(pagetowrite);
-                	//if(pageField.getMaxWidth() > wid || pageField.getMaxHeight() > hi)
-                	//{
-                		pageField.setMax(wid, hi);
-                	//}
-                	pageField.setPage(i);
-                }
-                
-                invalidate();
+            	pageField = (PageField)this.getField(workingon);
+            	//if(pageField.getMaxWidth() > size || pageField.getMaxHeight() > size)
+            	//{
+            		pageField.setMax(size, size);
+            	//}
+            	pageField.setPage(new Bitmap(size, size));
             }
-            catch (Exception e)
+            if(workingon == 0)
             {
-                int size = THUMB_HEIGHT - THUMB_BUFFER;
-                synchronized (Application.getEventLock())
-                {
-                	pageField = (PageField)this.getField(workingon);
-                	//if(pageField.getMaxWidth() > size || pageField.getMaxHeight() > size)
-                	//{
-                		pageField.setMax(size, size);
-                	//}
-                	pageField.setPage(new Bitmap(size, size));
-                }
-                if(workingon == 0)
-                {
-                	synchronized(this.tracker)
-                	{
-                		this.tracker.click(workingon);
-                	}
-                }
+            	synchronized(this.tracker)
+            	{
+            		this.tracker.click(workingon);
+            	}
             }
+        }
+		
+		// go to the back of the queue so the page being shown isn't held up
+		if (running)
+		{
+			Scheduler.getDefault().schedule(this, Scheduler.PRIORITY_THUMBNAIL);
 		}
 	}
 }